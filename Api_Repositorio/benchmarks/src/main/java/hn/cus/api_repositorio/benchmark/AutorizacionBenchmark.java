@@ -0,0 +1,83 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.benchmark;
+
+import hn.cus.api_repositorio.repository.UsuarioRepository;
+import hn.cus.api_repositorio.service.AuthorizationService;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Comprobación de permisos con los permisos ya compilados en caché y, sin
+ * caché, el coste de compilarlos (el repositorio devuelve filas en memoria,
+ * así que no incluye la consulta a la base de datos).
+ * @author EG490082
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutorizacionBenchmark {
+
+    private static final List<String> PERMISOS = List.of("VIEW_DOCUMENT", "UPLOAD_DOCUMENT",
+            "DOWNLOAD_DOCUMENT", "DELETE_DOCUMENT", "MANAGE_USERS", "MANAGE_ROLES", "VIEW_AUDIT", "MANAGE_WORKFLOW");
+
+    private AuthorizationService cacheado;
+    private AuthorizationService sinCache;
+
+    @Setup
+    public void setUp() {
+        List<Object[]> filas = new ArrayList<>();
+        PERMISOS.forEach(permiso -> filas.add(new Object[] {"ADMIN", permiso}));
+        filas.add(new Object[] {"USER", "VIEW_DOCUMENT"});
+        UsuarioRepository repositorio = (UsuarioRepository) Proxy.newProxyInstance(
+                UsuarioRepository.class.getClassLoader(), new Class<?>[] {UsuarioRepository.class},
+                (proxy, metodo, args) -> switch (metodo.getName()) {
+                    case "buscarRolesYPermisos" -> filas;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "UsuarioRepository en memoria";
+                    default -> throw new UnsupportedOperationException(metodo.getName());
+                });
+        cacheado = nuevo(repositorio, 10_000);
+        sinCache = nuevo(repositorio, 0);
+        cacheado.hasPermission("admin", "VIEW_AUDIT");
+    }
+
+    private static AuthorizationService nuevo(UsuarioRepository repositorio, int cacheMaximo) {
+        AuthorizationService servicio = new AuthorizationService();
+        Campos.asignar(servicio, "usuarioRepository", repositorio);
+        Campos.asignar(servicio, "cacheMaximo", cacheMaximo);
+        Campos.asignar(servicio, "cacheTtlMs", 600_000L);
+        servicio.init();
+        return servicio;
+    }
+
+    @Benchmark
+    public boolean hasPermissionCacheado() {
+        return cacheado.hasPermission("admin", "VIEW_AUDIT");
+    }
+
+    @Benchmark
+    public boolean hasPermissionInexistente() {
+        return cacheado.hasPermission("admin", "NO_EXISTE");
+    }
+
+    @Benchmark
+    public boolean hasPermissionSinCache() {
+        return sinCache.hasPermission("admin", "VIEW_AUDIT");
+    }
+
+    @Benchmark
+    public Set<String> getUserPermissions() {
+        return cacheado.getUserPermissions("admin");
+    }
+}
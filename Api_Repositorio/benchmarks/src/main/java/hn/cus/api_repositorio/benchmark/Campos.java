@@ -0,0 +1,29 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.benchmark;
+
+import java.lang.reflect.Field;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Asigna los campos que en la aplicación inyecta Spring (@Autowired, @Value),
+ * para medir los servicios sin levantar el contexto.
+ * @author EG490082
+ */
+final class Campos {
+
+    private Campos() {
+    }
+
+    static <T> T asignar(T objeto, String nombre, Object valor) {
+        Field campo = ReflectionUtils.findField(objeto.getClass(), nombre);
+        if (campo == null) {
+            throw new IllegalArgumentException("Campo inexistente: " + objeto.getClass().getSimpleName() + "." + nombre);
+        }
+        ReflectionUtils.makeAccessible(campo);
+        ReflectionUtils.setField(campo, objeto, valor);
+        return objeto;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.benchmark;
+
+import hn.cus.api_repositorio.service.CompresionService;
+import hn.cus.api_repositorio.service.CompresionService.ContenidoCodificado;
+import hn.cus.api_repositorio.service.impl.CompresionServiceImpl;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Transformaciones del contenido de documentos pequeños (guardados en la base
+ * de datos): decodificación Base64 de las filas antiguas en la descarga,
+ * codificación Base64 del endpoint /content y compresión gzip al subir y al
+ * descargar sin Accept-Encoding.
+ * @author EG490082
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContenidoBenchmark {
+
+    @Param({"16384", "1048576"})
+    private int tamano;
+
+    private CompresionService compresionService;
+    private byte[] contenido;
+    private String contenidoBase64;
+    private byte[] comprimido;
+
+    @Setup
+    public void setUp() {
+        compresionService = new CompresionServiceImpl();
+        Campos.asignar(compresionService, "habilitada", true);
+        Campos.asignar(compresionService, "tamanoMinimo", 1024L);
+        Campos.asignar(compresionService, "ahorroMinimo", 10);
+        Campos.asignar(compresionService, "nivel", 6);
+        Campos.asignar(compresionService, "tiposMime", List.of("text/*"));
+        ((CompresionServiceImpl) compresionService).init();
+
+        // Texto tipo CSV: se comprime como los documentos de texto reales
+        StringBuilder texto = new StringBuilder(tamano);
+        Random random = new Random(42);
+        while (texto.length() < tamano) {
+            texto.append(random.nextInt(100_000)).append(";cliente ").append(random.nextInt(500))
+                 .append(";").append(random.nextDouble()).append('\n');
+        }
+        contenido = texto.substring(0, tamano).getBytes(StandardCharsets.UTF_8);
+        // Como se guardaban las filas antiguas: Base64 básico, sin saltos de línea
+        contenidoBase64 = Base64.getEncoder().encodeToString(contenido);
+        comprimido = compresionService.codificar(contenido, "text/csv").datos();
+    }
+
+    @Benchmark
+    public byte[] decodificarBase64Legado() {
+        return Base64.getDecoder().decode(contenidoBase64);
+    }
+
+    @Benchmark
+    public String codificarBase64() {
+        return Base64.getEncoder().encodeToString(contenido);
+    }
+
+    @Benchmark
+    public ContenidoCodificado comprimir() {
+        return compresionService.codificar(contenido, "text/csv");
+    }
+
+    @Benchmark
+    public byte[] descomprimir() {
+        return compresionService.decodificar(comprimido, CompresionService.GZIP);
+    }
+}
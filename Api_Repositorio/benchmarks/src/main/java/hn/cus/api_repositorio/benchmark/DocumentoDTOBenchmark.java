@@ -0,0 +1,78 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hn.cus.api_repositorio.dto.DocumentoResponseDTO;
+import hn.cus.api_repositorio.entity.Documento;
+import hn.cus.api_repositorio.entity.Usuario;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Respuesta de un listado: conversión de entidades a DocumentoResponseDTO y
+ * serialización JSON de la página, con un ObjectMapper configurado como el de
+ * Spring Boot.
+ * @author EG490082
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentoDTOBenchmark {
+
+    @Param({"20", "100"})
+    private int elementos;
+
+    private ObjectMapper objectMapper;
+    private List<Documento> documentos;
+    private List<DocumentoResponseDTO> pagina;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        Usuario usuario = new Usuario();
+        usuario.setId(1L);
+        usuario.setUsername("admin");
+
+        documentos = new ArrayList<>(elementos);
+        LocalDateTime fecha = LocalDateTime.of(2024, 1, 1, 10, 0);
+        for (int i = 0; i < elementos; i++) {
+            Documento documento = new Documento();
+            documento.setId((long) i);
+            documento.setNombreOriginal("informe-trimestral-" + i + ".pdf");
+            documento.setTipoMime("application/pdf");
+            documento.setRutaArchivo("/uploads/ab/cd/abcd" + i + ".pdf");
+            documento.setPublico(i % 2 == 0);
+            documento.setCreadoPor(usuario);
+            documento.setFechaCreacion(fecha.plusMinutes(i));
+            documento.setIdTarea(1000L + i);
+            documentos.add(documento);
+        }
+        pagina = mapear();
+    }
+
+    @Benchmark
+    public List<DocumentoResponseDTO> mapear() {
+        List<DocumentoResponseDTO> dtos = new ArrayList<>(documentos.size());
+        for (Documento documento : documentos) {
+            dtos.add(new DocumentoResponseDTO(documento));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public byte[] serializar() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(pagina);
+    }
+}
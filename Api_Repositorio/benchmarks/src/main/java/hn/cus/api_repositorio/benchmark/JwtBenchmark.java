@@ -0,0 +1,78 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.benchmark;
+
+import hn.cus.api_repositorio.security.FiltroBloom;
+import hn.cus.api_repositorio.security.JwtUtil;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Emisión y lectura de tokens: lo que paga el login y cada petición autenticada.
+ * extraerUsernameSinCache mide la verificación completa de la firma (primera
+ * petición con un token); extraerUsernameCacheado, las siguientes.
+ * revocacionNoRevocado mide la comprobación de revocación en memoria que
+ * sigue en cada petición, con el filtro de Bloom a su capacidad.
+ * @author EG490082
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final List<String> ROLES = List.of("ADMIN");
+    private static final List<String> PERMISOS = List.of("VIEW_DOCUMENT", "UPLOAD_DOCUMENT",
+            "DOWNLOAD_DOCUMENT", "DELETE_DOCUMENT", "MANAGE_USERS", "MANAGE_ROLES", "VIEW_AUDIT", "MANAGE_WORKFLOW");
+
+    private JwtUtil cacheado;
+    private JwtUtil sinCache;
+    private String token;
+    private FiltroBloom revocados;
+
+    @Setup
+    public void setUp() {
+        cacheado = nuevo(10_000);
+        sinCache = nuevo(0);
+        token = cacheado.generarToken("admin", 1L, ROLES, PERMISOS);
+        cacheado.extraerUsername(token);
+
+        revocados = new FiltroBloom(100_000, 0.001);
+        for (int i = 0; i < 100_000; i++) {
+            revocados.agregar("jti:" + UUID.randomUUID());
+        }
+    }
+
+    private static JwtUtil nuevo(int cacheMaximo) {
+        JwtUtil jwtUtil = Campos.asignar(new JwtUtil(), "cacheMaximo", cacheMaximo);
+        Campos.asignar(jwtUtil, "accesoMinutos", 15L);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    @Benchmark
+    public String generarToken() {
+        return cacheado.generarToken("admin", 1L, ROLES, PERMISOS);
+    }
+
+    @Benchmark
+    public String extraerUsernameCacheado() {
+        return cacheado.extraerUsername(token);
+    }
+
+    @Benchmark
+    public String extraerUsernameSinCache() {
+        return sinCache.extraerUsername(token);
+    }
+
+    @Benchmark
+    public boolean revocacionNoRevocado() {
+        return revocados.puedeContener("jti:" + cacheado.verificar(token).id());
+    }
+}
@@ -10,8 +10,10 @@ package hn.cus.api_repositorio;
  */
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class Api_Repositorio {
 
     public static void main(String[] args) {
@@ -0,0 +1,94 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Pools de hilos de la aplicación, acotados para que una carga alta no
+ * cree hilos sin límite
+ * @author EG490082
+ */
+@Configuration
+public class EjecutorConfig {
+
+    // Escritura a disco, hash y compresión de los archivos de una subida por lote
+    @Bean(name = "subidaLoteExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskExecutor subidaLoteExecutor(@Value("${app.upload.lote.hilos:4}") int hilos) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(hilos * 25);
+        executor.setThreadNamePrefix("subida-lote-");
+        // Con la cola llena el hilo de la petición procesa el archivo él mismo
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    // Con spring.threads.virtual.enabled (Java 21): un hilo virtual por archivo,
+    // con el mismo límite de archivos simultáneos; al alcanzarlo el hilo de la
+    // petición, también virtual, espera sin ocupar un hilo de plataforma
+    @Bean(name = "subidaLoteExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskExecutor subidaLoteExecutorVirtual(@Value("${app.upload.lote.hilos:4}") int hilos) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("subida-lote-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(hilos);
+        return executor;
+    }
+
+    // Hashing y verificación de contraseñas (BCrypt), fuera de los hilos de Tomcat.
+    // Con la cola llena se rechaza (AbortPolicy) y la petición responde 429.
+    // Es trabajo de CPU: sigue en hilos de plataforma también con hilos virtuales
+    @Bean(name = "hashContrasenaExecutor")
+    public ThreadPoolTaskExecutor hashContrasenaExecutor(
+            @Value("${app.seguridad.bcrypt.hilos:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int hilos,
+            @Value("${app.seguridad.bcrypt.capacidad-cola:50}") int capacidadCola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(capacidadCola);
+        executor.setThreadNamePrefix("hash-contrasena-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    // Extracción de texto e indexación para la búsqueda, tras confirmar cada
+    // alta o comentario, y los lotes de pendientes. Con la cola llena indexa el
+    // hilo que confirmó; un lote de pendientes se deja para la siguiente vez
+    @Bean(name = "indexacionExecutor")
+    public ThreadPoolTaskExecutor indexacionExecutor(@Value("${app.busqueda.hilos:2}") int hilos) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(hilos * 250);
+        executor.setThreadNamePrefix("indexacion-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    // Miniaturas y vistas previas tras confirmar cada alta, y los lotes de
+    // pendientes. Con la cola llena se rechazan (AbortPolicy) y MiniaturaService
+    // las deja para generarPendientes; nunca se generan en el hilo que las envía
+    @Bean(name = "miniaturasExecutor")
+    public ThreadPoolTaskExecutor miniaturasExecutor(@Value("${app.miniaturas.hilos:2}") int hilos) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(hilos * 250);
+        executor.setThreadNamePrefix("miniaturas-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+}
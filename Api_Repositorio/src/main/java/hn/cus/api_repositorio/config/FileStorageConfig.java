@@ -25,17 +25,29 @@ public class FileStorageConfig implements WebMvcConfigurer {
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
 
+    @Value("${app.upload.tmp-dir:${app.upload.dir:uploads}-tmp}")
+    private String tmpDir;
+
     @Value("${app.max-file-size-base64:1048576}") // 1MB por defecto
     private long maxFileSizeBase64;
 
+    // Niveles de subdirectorios por prefijo del hash: con 2, ab/cd/abcd...
+    @Value("${app.upload.fanout.niveles:2}")
+    private int nivelesFanout;
+
     @PostConstruct
     public void init() {
+        if (nivelesFanout < 0 || nivelesFanout > 4) {
+            throw new IllegalStateException("app.upload.fanout.niveles debe estar entre 0 y 4");
+        }
         try {
             Path uploadPath = Paths.get(uploadDir);
             if (!Files.exists(uploadPath)) {
                 Files.createDirectories(uploadPath);
                 System.out.println("Directorio de uploads creado: " + uploadPath.toAbsolutePath());
             }
+            // Directorio de archivos parciales; fuera de /uploads/** para no publicarlos
+            Files.createDirectories(Paths.get(tmpDir));
         } catch (IOException e) {
             System.err.println("Error al crear directorio de uploads: " + e.getMessage());
         }
@@ -51,7 +63,20 @@ public class FileStorageConfig implements WebMvcConfigurer {
         return uploadDir;
     }
 
+    public String getTmpDir() {
+        return tmpDir;
+    }
+
     public long getMaxFileSizeBase64() {
         return maxFileSizeBase64;
     }
+
+    /** Ruta de un blob relativa al directorio de uploads, repartida en subdirectorios por su hash */
+    public String rutaBlob(String hash) {
+        StringBuilder ruta = new StringBuilder();
+        for (int i = 0; i < nivelesFanout; i++) {
+            ruta.append(hash, 2 * i, 2 * i + 2).append('/');
+        }
+        return ruta.append(hash).toString();
+    }
 }
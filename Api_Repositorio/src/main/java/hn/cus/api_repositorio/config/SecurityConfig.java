@@ -1,6 +1,8 @@
 package hn.cus.api_repositorio.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -13,12 +15,14 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import hn.cus.api_repositorio.security.JwtAuthenticationFilter;
+import hn.cus.api_repositorio.security.PasswordEncoderAcotado;
 import hn.cus.api_repositorio.service.AuthService;
 
 import java.util.Arrays;
@@ -52,9 +56,13 @@ public class SecurityConfig {
         return http.build();
     }
 
+    // BCrypt en un pool propio y acotado (ver EjecutorConfig); el coste solo
+    // afecta a los hashes nuevos, los existentes llevan el suyo
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Qualifier("hashContrasenaExecutor") ThreadPoolTaskExecutor executor,
+                                           @Value("${app.seguridad.bcrypt.coste:10}") int coste,
+                                           @Value("${app.seguridad.bcrypt.espera-maxima-ms:3000}") long esperaMaximaMs) {
+        return new PasswordEncoderAcotado(new BCryptPasswordEncoder(coste), executor, esperaMaximaMs);
     }
 
     @Bean
@@ -0,0 +1,46 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Open-in-view (EntityManager abierto durante toda la petición) en lugar del
+ * de Spring Boot, desactivado con spring.jpa.open-in-view=false. Con él la
+ * conexión JDBC se retiene desde la primera consulta hasta el final de la
+ * respuesta; en las descargas eso incluye toda la lectura del almacenamiento,
+ * y un almacenamiento lento agotaría el pool de conexiones (con hilos
+ * virtuales, el único límite de concurrencia). Las rutas que envían
+ * contenido (descarga, contenido, descarga de versión y miniatura) solo usan
+ * datos ya cargados o DTOs y se excluyen: la conexión vuelve al pool al
+ * terminar cada transacción del servicio. Una ruta nueva que envíe archivos
+ * debe añadirse aquí.
+ * @author EG490082
+ */
+@Configuration
+public class VistaAbiertaJpaConfig implements WebMvcConfigurer {
+
+    private static final String[] SIN_VISTA_ABIERTA = {
+        "/api/documentos/*/download",
+        "/api/documentos/*/content",
+        "/api/documentos/*/versiones/*/download",
+        "/api/documentos/*/thumbnail"
+    };
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+        interceptor.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(interceptor).excludePathPatterns(SIN_VISTA_ABIERTA);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.controller;
+
+import hn.cus.api_repositorio.dto.FiltroAuditoriaDTO;
+import hn.cus.api_repositorio.service.AuditoriaService;
+import hn.cus.api_repositorio.service.AuthorizationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Consulta del registro de auditoría, reservada a quien tiene el permiso VIEW_AUDIT.
+ * @author EG490082
+ */
+@RestController
+@RequestMapping("/api/auditoria")
+@Tag(name = "Auditoría", description = "Consulta de eventos de auditoría")
+public class AuditoriaController {
+
+    @Autowired private AuditoriaService auditoriaService;
+    @Autowired private AuthorizationService authorizationService;
+
+    @Operation(summary = "Listar eventos por páginas",
+               description = "Eventos más recientes primero, filtrados por usuario, acción y rango de fechas [desde, hasta). "
+                       + "Para la siguiente página se envía el siguienteCursor recibido")
+    @GetMapping
+    public ResponseEntity<?> listarEventos(Principal principal,
+                                           @RequestParam(value = "cursor", required = false) String cursor,
+                                           @RequestParam(value = "limite", defaultValue = "50") int limite,
+                                           @RequestParam(value = "usuarioId", required = false) Long usuarioId,
+                                           @RequestParam(value = "accion", required = false) String accion,
+                                           @RequestParam(value = "desde", required = false)
+                                           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+                                           @RequestParam(value = "hasta", required = false)
+                                           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
+        if (principal == null || !authorizationService.hasPermission(principal.getName(), "VIEW_AUDIT")) {
+            return ResponseEntity.status(403).body(Map.of(
+                "error", "No tienes permisos para consultar la auditoría",
+                "requiredPermission", "VIEW_AUDIT"
+            ));
+        }
+        try {
+            FiltroAuditoriaDTO filtro = new FiltroAuditoriaDTO(usuarioId, accion, desde, hasta);
+            return ResponseEntity.ok(auditoriaService.listarPagina(filtro, cursor, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
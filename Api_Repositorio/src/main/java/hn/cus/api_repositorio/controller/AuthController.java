@@ -11,22 +11,26 @@ package hn.cus.api_repositorio.controller;
 import hn.cus.api_repositorio.dto.*;
 import hn.cus.api_repositorio.entity.Documento;
 import hn.cus.api_repositorio.security.JwtUtil;
-import hn.cus.api_repositorio.service.AuthService;
+import hn.cus.api_repositorio.service.AuditoriaService;
+import hn.cus.api_repositorio.service.SesionService;
 //import hn.cus.api_repositorio.service.*;
+import io.jsonwebtoken.JwtException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
 import org.springframework.security.authentication.*;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -36,21 +40,64 @@ public class AuthController {
 
     @Autowired private AuthenticationManager authenticationManager;
     @Autowired private JwtUtil jwtUtil;
-    @Autowired private AuthService authService;
+    @Autowired private AuditoriaService auditoriaService;
+    @Autowired private SesionService sesionService;
 
-    @Operation(summary = "Login de usuario", description = "Devuelve un token JWT si las credenciales son válidas")
+    @Operation(summary = "Login de usuario",
+               description = "Devuelve un token JWT de vida corta y un refresh token si las credenciales son válidas")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Autenticación exitosa"),
         @ApiResponse(responseCode = "401", description = "Credenciales inválidas")
     })
     @PostMapping("/login")
     public ResponseEntity<LoginResponse> login(@RequestBody @Valid LoginRequest request) {
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword()));
+        final Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword()));
+        } catch (AuthenticationException e) {
+            auditoriaService.registrar(request.getUsername(), AuditoriaService.LOGIN_FALLIDO, e.getMessage());
+            throw e;
+        }
 
-        final UserDetails userDetails = authService.loadUserByUsername(request.getUsername());
-        final String token = jwtUtil.generarToken(userDetails.getUsername());
-        return ResponseEntity.ok(new LoginResponse(token));
+        final String username = authentication.getName();
+        final LoginResponse sesion = sesionService.iniciarSesion(username);
+        auditoriaService.registrar(username, AuditoriaService.LOGIN, "Inicio de sesión");
+        return ResponseEntity.ok(sesion);
+    }
+
+    @Operation(summary = "Renovar sesión",
+               description = "Canjea el refresh token por un token de acceso y un refresh token nuevos; el usado deja de servir")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Sesión renovada"),
+        @ApiResponse(responseCode = "401", description = "Refresh token inválido, expirado o revocado")
+    })
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody @Valid RefreshTokenRequest request) {
+        try {
+            return ResponseEntity.ok(sesionService.renovar(request.getRefreshToken()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Cerrar sesión",
+               description = "Revoca el token de acceso enviado en Authorization y, si se incluye, el refresh token")
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(HttpServletRequest httpRequest,
+                                    @RequestBody(required = false) RefreshTokenRequest request) {
+        String token = jwtUtil.extractTokenFromRequest(httpRequest);
+        if (token == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Token de acceso requerido"));
+        }
+        try {
+            String username = jwtUtil.extraerUsername(token);
+            sesionService.cerrarSesion(token, request != null ? request.getRefreshToken() : null);
+            auditoriaService.registrar(username, AuditoriaService.LOGOUT, "Cierre de sesión");
+            return ResponseEntity.noContent().build();
+        } catch (JwtException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Token de acceso inválido"));
+        }
     }
 }
 
@@ -5,7 +5,17 @@
 package hn.cus.api_repositorio.controller;
 
 import hn.cus.api_repositorio.entity.Documento;
+import hn.cus.api_repositorio.entity.DocumentoMiniatura;
+import hn.cus.api_repositorio.service.BusquedaService;
 import hn.cus.api_repositorio.service.DocumentoService;
+import hn.cus.api_repositorio.service.DocumentoVersionService;
+import hn.cus.api_repositorio.service.AuditoriaService;
+import hn.cus.api_repositorio.service.CompresionService;
+import hn.cus.api_repositorio.service.CompresionService.ContenidoCodificado;
+import hn.cus.api_repositorio.service.EstadisticaDocumentoService;
+import hn.cus.api_repositorio.service.MetadataService;
+import hn.cus.api_repositorio.service.MiniaturaService;
+import hn.cus.api_repositorio.service.SubidaLoteService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.constraints.NotNull;
@@ -13,6 +23,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -24,17 +35,43 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import hn.cus.api_repositorio.dto.DocumentoBase64Request;
 import hn.cus.api_repositorio.dto.DocumentoResponseDTO;
+import hn.cus.api_repositorio.dto.DocumentoVersionDTO;
+import hn.cus.api_repositorio.dto.CambiosMetadatosDTO;
+import hn.cus.api_repositorio.dto.FiltroDocumentoDTO;
+import hn.cus.api_repositorio.dto.MetadatosDocumentoRequest;
+import hn.cus.api_repositorio.dto.ResultadoSubidaDTO;
 import hn.cus.api_repositorio.config.FileStorageConfig;
-import java.net.MalformedURLException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.stream.Collectors;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 
 /**
@@ -48,7 +85,19 @@ import java.util.HashMap;
 public class DocumentoController {
 
     @Autowired private DocumentoService documentoService;
+    @Autowired private DocumentoVersionService documentoVersionService;
+    @Autowired private BusquedaService busquedaService;
+    @Autowired private MetadataService metadataService;
+    @Autowired private EstadisticaDocumentoService estadisticaDocumentoService;
+    @Autowired private SubidaLoteService subidaLoteService;
+    @Autowired private AuditoriaService auditoriaService;
     @Autowired private FileStorageConfig fileStorageConfig;
+    @Autowired private CompresionService compresionService;
+    @Autowired private MiniaturaService miniaturaService;
+
+    // Tiempo que el navegador usa la miniatura sin revalidarla; cambia con una versión nueva
+    @Value("${app.miniaturas.cache-segundos:3600}")
+    private long cacheMiniaturas;
 
     @Operation(summary = "Subir documento", description = "Permite subir un archivo y registrar su información")
     @PostMapping(value = "/subir", consumes = "multipart/form-data")
@@ -59,9 +108,109 @@ public class DocumentoController {
         System.out.println("Usuario ID: " + usuarioId);
         
         Documento doc = documentoService.guardarDocumento(archivo, usuarioId);
+        auditoriaService.registrar(AuditoriaService.SUBIDA, "Documento " + doc.getId() + ": " + doc.getNombreOriginal());
         return ResponseEntity.ok(doc);
     }
 
+    @Operation(summary = "Subir nueva versión",
+               description = "Sustituye el contenido del documento y conserva el anterior como versión. Cada versión se guarda "
+                           + "como delta contra la anterior cuando ocupa menos; un archivo igual a la versión actual no crea otra")
+    @PostMapping(value = "/{id}/versiones", consumes = "multipart/form-data")
+    public ResponseEntity<?> subirVersion(@PathVariable("id") Long id,
+                                          @RequestParam("file") @NotNull(message = "El archivo es obligatorio") MultipartFile archivo,
+                                          @RequestParam("usuarioId") @NotNull(message = "El ID del usuario es obligatorio") Long usuarioId) {
+        System.out.println("Recibiendo versión de " + id + ": " + archivo.getOriginalFilename() + " (" + archivo.getSize() + " bytes)");
+        try {
+            DocumentoVersionDTO version = documentoVersionService.crearVersion(id, archivo, usuarioId);
+            auditoriaService.registrar(AuditoriaService.SUBIDA,
+                    "Documento " + id + ": versión " + version.getVersion() + " (" + version.getNombreOriginal() + ")");
+            return ResponseEntity.ok(version);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Historial de versiones",
+               description = "Versiones del documento, más recientes primero, sin su contenido. Para la siguiente página se envía el siguienteCursor recibido")
+    @GetMapping("/{id}/versiones")
+    public ResponseEntity<?> listarVersiones(@PathVariable("id") Long id,
+                                             @RequestParam(value = "cursor", required = false) String cursor,
+                                             @RequestParam(value = "limite", defaultValue = "20") int limite) {
+        if (!documentoService.existeDocumento(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(documentoVersionService.listarVersiones(id, cursor, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Descargar versión",
+               description = "Descarga el contenido de una versión. Las versiones no cambian: se pueden guardar en caché y admiten peticiones condicionales (304)")
+    @GetMapping("/{id}/versiones/{version}/download")
+    public ResponseEntity<Resource> descargarVersion(@PathVariable("id") Long id,
+                                                     @PathVariable("version") int numero,
+                                                     ServletWebRequest webRequest,
+                                                     HttpServletResponse response) {
+        DocumentoVersionDTO version;
+        try {
+            version = documentoVersionService.obtenerVersion(id, numero);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // El contenido de una versión no cambia nunca; se revalida solo si el
+        // cliente la pide de nuevo pasado el max-age
+        String etag = "\"" + (version.getHashContenido() != null
+                ? version.getHashContenido() : "doc-" + id + "-v" + numero) + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().getHeaderValue());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        try {
+            InputStream contenido = documentoVersionService.abrirContenidoVersion(id, numero);
+            auditoriaService.registrar(AuditoriaService.DESCARGA, "Documento " + id + ": versión " + numero);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(version.getTipoMime() != null
+                    ? MediaType.parseMediaType(version.getTipoMime()) : MediaType.APPLICATION_OCTET_STREAM);
+            headers.set(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"" + version.getNombreOriginal() + "\"");
+            headers.setETag(etag);
+            if (version.getTamano() != null) {
+                headers.setContentLength(version.getTamano());
+            }
+            // Se envía mientras se lee: una versión en el almacén de blobs no pasa por memoria
+            return ResponseEntity.ok().headers(headers).body(new InputStreamResource(contenido));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (RuntimeException e) {
+            System.err.println("Error al descargar la versión " + numero + " del documento " + id + ": " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @Operation(summary = "Subir lote de documentos",
+               description = "Sube varios archivos (parámetro files repetido) con una tarea común. Devuelve el resultado de cada archivo; uno vacío o ilegible no impide guardar los demás. "
+                           + "Los válidos se guardan en una sola transacción: si falla, no se guarda ninguno")
+    @PostMapping(value = "/subir-lote", consumes = "multipart/form-data")
+    public ResponseEntity<?> subirLote(@RequestParam("files") List<MultipartFile> archivos,
+                                       @RequestParam("usuarioId") @NotNull(message = "El ID del usuario es obligatorio") Long usuarioId,
+                                       @RequestParam(value = "idTarea", required = false) Long idTarea) {
+        System.out.println("Recibiendo lote de " + archivos.size() + " archivos del usuario " + usuarioId);
+        try {
+            List<ResultadoSubidaDTO> resultados = subidaLoteService.subirLote(archivos, usuarioId, idTarea);
+            resultados.stream().filter(ResultadoSubidaDTO::isExito).forEach(r -> auditoriaService.registrar(
+                    AuditoriaService.SUBIDA, "Documento " + r.getId() + ": " + r.getNombreOriginal() + " (lote)"));
+            return ResponseEntity.ok(resultados);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @Operation(summary = "Health check", description = "Verifica que el controlador de documentos esté funcionando")
     @GetMapping("/health")
     public ResponseEntity<String> health() {
@@ -106,7 +255,7 @@ public class DocumentoController {
     @GetMapping("/count")
     public ResponseEntity<Long> contarDocumentos() {
         try {
-            long count = documentoService.listarTodos().size();
+            long count = documentoService.contarDocumentos();
             return ResponseEntity.ok(count);
         } catch (Exception e) {
             System.err.println("Error al contar documentos: " + e.getMessage());
@@ -115,18 +264,25 @@ public class DocumentoController {
         }
     }
 
+    @Operation(summary = "Estadísticas de documentos",
+               description = "Cantidad de documentos y bytes por dimensión (TOTAL, USUARIO, TIPO_MIME, TAREA, DIA); sin dimensión devuelve todas")
+    @GetMapping("/estadisticas")
+    public ResponseEntity<?> obtenerEstadisticas(@RequestParam(value = "dimension", required = false) String dimension) {
+        try {
+            return ResponseEntity.ok(estadisticaDocumentoService.obtener(dimension));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @Operation(summary = "Listar documentos", description = "Devuelve una lista de documentos almacenados")
     @GetMapping
     public ResponseEntity<List<DocumentoResponseDTO>> listarDocumentos() {
         try {
             System.out.println("Obteniendo lista de documentos...");
-            List<Documento> documentos = documentoService.listarTodos();
-            System.out.println("Documentos encontrados: " + documentos.size());
-            
-            // Convertir a DTOs para evitar problemas de serialización
-            List<DocumentoResponseDTO> documentosDTO = documentos.stream()
-                    .map(DocumentoResponseDTO::new)
-                    .collect(Collectors.toList());
+            // Proyección directa a DTO: no se cargan entidades ni contenido
+            List<DocumentoResponseDTO> documentosDTO = documentoService.listarResumen();
+            System.out.println("Documentos encontrados: " + documentosDTO.size());
             
             return ResponseEntity.ok(documentosDTO);
         } catch (Exception e) {
@@ -136,6 +292,66 @@ public class DocumentoController {
         }
     }
 
+    @Operation(summary = "Listar documentos por páginas",
+               description = "Documentos más recientes primero, con filtros opcionales. Para la siguiente página se envía el siguienteCursor recibido")
+    @GetMapping("/pagina")
+    public ResponseEntity<?> listarDocumentosPaginados(@RequestParam(value = "cursor", required = false) String cursor,
+                                                       @RequestParam(value = "limite", defaultValue = "20") int limite,
+                                                       @RequestParam(value = "creadoPor", required = false) Long creadoPor,
+                                                       @RequestParam(value = "tipoMime", required = false) String tipoMime,
+                                                       @RequestParam(value = "idTarea", required = false) Long idTarea,
+                                                       @RequestParam(value = "publico", required = false) Boolean publico) {
+        try {
+            FiltroDocumentoDTO filtro = new FiltroDocumentoDTO(creadoPor, tipoMime, idTarea, publico);
+            return ResponseEntity.ok(documentoService.listarPagina(filtro, cursor, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Buscar documentos por metadatos",
+               description = "Condiciones clave/valor con AND, OR y paréntesis, por ejemplo expediente=123 AND tipo=factura AND fecha>2025-01-01. "
+                           + "Operadores: = != > >= < <=. Más recientes primero; para la siguiente página se envía el siguienteCursor recibido")
+    @GetMapping("/metadatos")
+    public ResponseEntity<?> buscarPorMetadatos(@RequestParam("q") String consulta,
+                                                @RequestParam(value = "cursor", required = false) String cursor,
+                                                @RequestParam(value = "limite", defaultValue = "20") int limite) {
+        try {
+            return ResponseEntity.ok(documentoService.buscarPorMetadatos(consulta, cursor, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Cargar metadatos de varios documentos",
+               description = "Agrega o actualiza las claves recibidas de cada documento en una transacción; con reemplazar=true elimina además las que no vienen. "
+                           + "Devuelve solo las claves agregadas, modificadas y eliminadas")
+    @PostMapping("/metadatos/lote")
+    public ResponseEntity<?> escribirMetadatosLote(@RequestBody List<MetadatosDocumentoRequest> lote) {
+        try {
+            List<CambiosMetadatosDTO> cambios = metadataService.escribirLote(lote);
+            auditoriaService.registrar(AuditoriaService.METADATOS,
+                    "Carga de metadatos de " + lote.size() + " documentos; " + cambios.size() + " con cambios");
+            return ResponseEntity.ok(cambios);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Buscar documentos",
+               description = "Búsqueda de texto completo en el nombre, los metadatos, los comentarios y el texto de los archivos de texto y PDF. "
+                           + "Los más relevantes primero; admite \"frase exacta\", OR y -excluir. Para la siguiente página se envía el siguienteCursor recibido")
+    @GetMapping("/buscar")
+    public ResponseEntity<?> buscarDocumentos(@RequestParam("q") String texto,
+                                              @RequestParam(value = "cursor", required = false) String cursor,
+                                              @RequestParam(value = "limite", defaultValue = "20") int limite) {
+        try {
+            return ResponseEntity.ok(busquedaService.buscar(texto, cursor, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @Operation(summary = "Obtener documento por ID", description = "Devuelve un documento específico por su ID")
     @GetMapping("/{id}")
     public ResponseEntity<?> obtenerDocumento(@PathVariable("id") Long id) {
@@ -143,23 +359,18 @@ public class DocumentoController {
             System.out.println("=== INICIO obtenerDocumento ===");
             System.out.println("Obteniendo documento con ID: " + id);
             
-            // Paso 1: Verificar si existe
-            System.out.println("Paso 1: Verificando existencia...");
-            boolean existe = documentoService.existeDocumento(id);
-            System.out.println("Documento existe: " + existe);
-            
-            if (!existe) {
+            // Paso 1: Obtener metadatos (proyección, sin cargar la entidad)
+            DocumentoResponseDTO documento;
+            try {
+                documento = documentoService.obtenerResumenPorId(id);
+            } catch (IllegalArgumentException e) {
                 System.out.println("Documento no encontrado con ID: " + id);
                 return ResponseEntity.notFound().build();
             }
-            
-            // Paso 2: Obtener documento
-            System.out.println("Paso 2: Obteniendo documento...");
-            Documento documento = documentoService.obtenerPorId(id);
             System.out.println("Documento obtenido: " + documento.getNombreOriginal());
             
-            // Paso 3: Crear respuesta básica
-            System.out.println("Paso 3: Creando respuesta...");
+            // Paso 2: Crear respuesta básica
+            System.out.println("Paso 2: Creando respuesta...");
             Map<String, Object> response = new HashMap<>();
             response.put("id", documento.getId());
             response.put("nombreOriginal", documento.getNombreOriginal());
@@ -168,7 +379,7 @@ public class DocumentoController {
             response.put("publico", documento.getPublico());
             response.put("fechaCreacion", documento.getFechaCreacion() != null ? documento.getFechaCreacion().toString() : null);
             response.put("idTarea", documento.getIdTarea());
-            response.put("username", "admin");
+            response.put("username", documento.getUsername());
             
             System.out.println("Respuesta creada exitosamente");
             System.out.println("=== FIN obtenerDocumento ===");
@@ -200,15 +411,22 @@ public class DocumentoController {
             Documento documento = documentoService.obtenerPorId(id);
             System.out.println("Documento encontrado: " + documento.getNombreOriginal());
             
-            // Verificar si tiene contenido Base64
-            if (documento.getContenidoBase64() == null || documento.getContenidoBase64().isEmpty()) {
+            // Verificar si tiene contenido en la base de datos
+            byte[] contenido;
+            try {
+                contenido = documentoService.obtenerContenido(documento);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Contenido Base64 inválido en el documento " + id + ": " + e.getMessage());
+                return ResponseEntity.badRequest().body(Map.of("error", "El contenido Base64 del documento no es válido"));
+            }
+            if (contenido == null) {
                 System.out.println("Documento no tiene contenido Base64");
                 return ResponseEntity.badRequest().body(Map.of("error", "Documento no tiene contenido Base64"));
             }
             
-            // Crear respuesta con el contenido Base64
+            // Crear respuesta con el contenido Base64 (se codifica solo para este endpoint)
             Map<String, Object> response = new HashMap<>();
-            response.put("content", documento.getContenidoBase64());
+            response.put("content", java.util.Base64.getEncoder().encodeToString(contenido));
             response.put("tipoMime", documento.getTipoMime());
             response.put("nombreOriginal", documento.getNombreOriginal());
             
@@ -229,66 +447,288 @@ public class DocumentoController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> eliminarDocumento(@PathVariable("id") Long id) {
         documentoService.eliminar(id);
+        auditoriaService.registrar(AuditoriaService.ELIMINACION, "Documento " + id);
         return ResponseEntity.noContent().build();
     }
 
     @Operation(summary = "Subir documento Base64", description = "Sube un documento en formato Base64")
     @PostMapping("/uploadBase64")
-    public ResponseEntity<Documento> subirDocumentoBase64(@RequestBody DocumentoBase64Request request) {
-        Documento doc = documentoService.guardarDocumentoBase64(request);
-        return ResponseEntity.ok(doc);
+    public ResponseEntity<?> subirDocumentoBase64(@RequestBody DocumentoBase64Request request) {
+        try {
+            Documento doc = documentoService.guardarDocumentoBase64(request);
+            auditoriaService.registrar(AuditoriaService.SUBIDA, "Documento " + doc.getId() + ": " + doc.getNombreOriginal());
+            return ResponseEntity.ok(doc);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Miniatura de documento",
+               description = "Imagen JPEG reducida de una imagen o de la primera página de un PDF: tipo=miniatura (por defecto) "
+                           + "o tipo=vista-previa. 404 si el tipo de archivo no se puede renderizar. Admite peticiones condicionales (304)")
+    @GetMapping("/{id}/thumbnail")
+    public ResponseEntity<?> obtenerMiniatura(@PathVariable("id") Long id,
+                                              @RequestParam(value = "tipo", defaultValue = "miniatura") String tipo,
+                                              ServletWebRequest webRequest,
+                                              HttpServletResponse response) {
+        String tipoMiniatura = switch (tipo.toLowerCase()) {
+            case "miniatura" -> DocumentoMiniatura.MINIATURA;
+            case "vista-previa" -> DocumentoMiniatura.VISTA_PREVIA;
+            default -> null;
+        };
+        if (tipoMiniatura == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "El tipo debe ser miniatura o vista-previa"));
+        }
+
+        DocumentoMiniatura miniatura;
+        try {
+            miniatura = miniaturaService.obtener(id, tipoMiniatura);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+        if (miniatura == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // El hash de la imagen sirve de ETag: una petición condicional no lee el archivo
+        String etag = "\"" + miniatura.getHashBlob() + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(Duration.ofSeconds(cacheMiniaturas)).cachePrivate().getHeaderValue());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.IMAGE_JPEG);
+        headers.setETag(etag);
+        return ResponseEntity.ok().headers(headers).body(miniaturaService.leer(miniatura));
     }
 
-    @Operation(summary = "Descargar documento", description = "Descarga un documento por su ID")
+    @Operation(summary = "Descargar documento", description = "Descarga un documento por su ID. Admite Range (206) y peticiones condicionales (304)")
     @GetMapping("/{id}/download")
-    public ResponseEntity<Resource> descargarDocumento(@PathVariable("id") Long id) {
+    public ResponseEntity<Resource> descargarDocumento(@PathVariable("id") Long id,
+                                                       ServletWebRequest webRequest,
+                                                       HttpServletRequest request,
+                                                       HttpServletResponse response) {
         try {
             System.out.println("Descargando documento con ID: " + id);
             Documento documento = documentoService.obtenerPorId(id);
             System.out.println("Documento encontrado para descarga: " + documento.getNombreOriginal());
             System.out.println("Ruta del archivo: " + documento.getRutaArchivo());
-            
-            if (documento.getRutaArchivo().startsWith("base64://")) {
-                // Archivo guardado como Base64
-                if (documento.getContenidoBase64() == null) {
+
+            // Contenido guardado comprimido: si el cliente acepta la misma codificación
+            // y pide el documento entero se le envían los bytes almacenados sin tocarlos
+            String codificacion = documentoService.obtenerCodificacion(documento);
+            boolean enviarCodificado = codificacion != null
+                    && request.getHeader(HttpHeaders.RANGE) == null
+                    && aceptaCodificacion(request.getHeader(HttpHeaders.ACCEPT_ENCODING), codificacion);
+
+            // El contenido solo cambia con una versión nueva, que siempre guarda el hash:
+            // el hash (o el id, si nunca cambió) sirve de ETag y una petición condicional se
+            // responde sin tocar el almacenamiento. Cada codificación es una representación
+            // distinta y lleva su propio ETag
+            String etag = "\"" + (documento.getHashContenido() != null
+                    ? documento.getHashContenido() : "doc-" + documento.getId())
+                    + (enviarCodificado ? "-" + codificacion : "") + "\"";
+            LocalDateTime fechaContenido = documento.getFechaModificacion() != null
+                    ? documento.getFechaModificacion() : documento.getFechaCreacion();
+            long ultimaModificacion = fechaContenido != null
+                    ? fechaContenido.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+            // Sin esto Spring Security responde con no-store y el navegador nunca revalida
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+            if (codificacion != null) {
+                response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            if (webRequest.checkNotModified(etag, ultimaModificacion)) {
+                return null;
+            }
+            // If-Range: los rangos solo valen si el cliente tiene esta misma versión;
+            // si el contenido cambió se envía completo con 200
+            boolean atenderRango = request.getHeader(HttpHeaders.RANGE) != null
+                    && rangoVigente(request.getHeader(HttpHeaders.IF_RANGE), etag, ultimaModificacion);
+            auditoriaService.registrar(AuditoriaService.DESCARGA, "Documento " + id
+                    + (atenderRango ? " (rango)" : ""));
+
+            MediaType tipo = documento.getTipoMime() != null
+                    ? MediaType.parseMediaType(documento.getTipoMime()) : MediaType.APPLICATION_OCTET_STREAM;
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(tipo);
+            headers.set(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"" + documento.getNombreOriginal() + "\"");
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+            headers.setETag(etag);
+            if (ultimaModificacion >= 0) {
+                headers.setLastModified(ultimaModificacion);
+            }
+            if (enviarCodificado) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, codificacion);
+            }
+
+            byte[] fileBytes = enviarCodificado
+                    ? contenidoAlmacenado(documento)
+                    : documentoService.obtenerContenido(documento);
+            if (documento.getRutaArchivo().startsWith("base64://") || fileBytes != null) {
+                // Archivo guardado en la base de datos
+                if (fileBytes == null) {
                     return ResponseEntity.notFound().build();
                 }
-                
-                // Convertir Base64 a bytes
-                byte[] fileBytes = java.util.Base64.getDecoder().decode(documento.getContenidoBase64());
-                
-                // Crear Resource desde bytes
-                Resource resource = new org.springframework.core.io.ByteArrayResource(fileBytes);
-                
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(documento.getTipoMime()))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, 
-                                "attachment; filename=\"" + documento.getNombreOriginal() + "\"")
-                        .body(resource);
-                        
-            } else {
-                // Archivo guardado físicamente
-                Path filePath = Paths.get(fileStorageConfig.getUploadDir())
-                        .resolve(documento.getRutaArchivo().replace("/uploads/", ""));
-                
-                Resource resource = new UrlResource(filePath.toUri());
-                
-                if (!resource.exists()) {
-                    return ResponseEntity.notFound().build();
+
+                if (!atenderRango) {
+                    // InputStreamResource: Spring no le aplica Range
+                    headers.setContentLength(fileBytes.length);
+                    return ResponseEntity.ok().headers(headers)
+                            .body(new InputStreamResource(new ByteArrayInputStream(fileBytes)));
                 }
-                
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(documento.getTipoMime()))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, 
-                                "attachment; filename=\"" + documento.getNombreOriginal() + "\"")
-                        .body(resource);
+                // Spring resuelve Range sobre un Resource (206 o multipart/byteranges)
+                return ResponseEntity.ok().headers(headers).body(new ByteArrayResource(fileBytes));
             }
-            
-        } catch (MalformedURLException e) {
-            return ResponseEntity.badRequest().build();
+
+            // Archivo guardado físicamente
+            Path filePath = Paths.get(fileStorageConfig.getUploadDir())
+                    .resolve(documento.getRutaArchivo().replace("/uploads/", ""));
+            if (!Files.isReadable(filePath)) {
+                return ResponseEntity.notFound().build();
+            }
+            // Comprimido en disco y enviado sin comprimir: la longitud es la del original
+            boolean descomprimir = codificacion != null && !enviarCodificado;
+            long longitud = descomprimir ? documento.getTamano() : Files.size(filePath);
+
+            List<HttpRange> rangos = List.of();
+            String cabeceraRange = request.getHeader(HttpHeaders.RANGE);
+            if (atenderRango) {
+                try {
+                    rangos = HttpRange.parseRanges(cabeceraRange);
+                } catch (IllegalArgumentException e) {
+                    // Range mal formado: se ignora y se envía el archivo completo
+                }
+            }
+            if (rangos.size() > 1) {
+                if (!descomprimir) {
+                    // Varios rangos: Spring arma la respuesta multipart/byteranges
+                    return ResponseEntity.ok().headers(headers).body(new FileSystemResource(filePath));
+                }
+                // Sobre un archivo comprimido no se atienden varios rangos: se envía completo
+                rangos = List.of();
+            }
+
+            long inicio = 0;
+            long fin = longitud - 1;
+            if (rangos.size() == 1) {
+                inicio = rangos.get(0).getRangeStart(longitud);
+                fin = rangos.get(0).getRangeEnd(longitud);
+                if (inicio >= longitud || inicio > fin) {
+                    headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + longitud);
+                    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + longitud);
+            }
+
+            headers.forEach((nombre, valores) -> response.setHeader(nombre, valores.get(0)));
+            response.setContentLengthLong(fin - inicio + 1);
+            if (!"HEAD".equals(request.getMethod())) {
+                if (descomprimir) {
+                    enviarDescomprimido(filePath, codificacion, inicio, fin - inicio + 1, response);
+                } else {
+                    enviarArchivo(filePath, inicio, fin - inicio + 1, request, response);
+                }
+            }
+            return null;
+
         } catch (Exception e) {
             System.err.println("Error al descargar documento: " + e.getMessage());
             return ResponseEntity.internalServerError().build();
         }
     }
-}
\ No newline at end of file
+
+    // Comparación fuerte con el ETag, o fecha igual a Last-Modified (con precisión de segundos)
+    private static boolean rangoVigente(String ifRange, String etag, long ultimaModificacion) {
+        if (ifRange == null) {
+            return true;
+        }
+        String valor = ifRange.trim();
+        if (valor.startsWith("\"") || valor.startsWith("W/")) {
+            return valor.equals(etag);
+        }
+        if (ultimaModificacion < 0) {
+            return false;
+        }
+        try {
+            long fecha = ZonedDateTime.parse(valor, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+            return fecha == ultimaModificacion / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private byte[] contenidoAlmacenado(Documento documento) {
+        ContenidoCodificado contenido = documentoService.obtenerContenidoCodificado(documento);
+        return contenido != null ? contenido.datos() : null;
+    }
+
+    // Acepta la codificación si aparece en Accept-Encoding (o hay un *) sin q=0
+    private static boolean aceptaCodificacion(String acceptEncoding, String codificacion) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String parte : acceptEncoding.split(",")) {
+            String[] elementos = parte.trim().split(";");
+            String nombre = elementos[0].trim();
+            if (!nombre.equalsIgnoreCase(codificacion) && !nombre.equals("*")) {
+                continue;
+            }
+            for (int i = 1; i < elementos.length; i++) {
+                String parametro = elementos[i].trim().replace(" ", "");
+                if (parametro.matches("[qQ]=0(\\.0{0,3})?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // Descomprime al vuelo y envía solo el tramo pedido; no hay copia directa al socket
+    private void enviarDescomprimido(Path archivo, String codificacion, long inicio, long longitud,
+                                     HttpServletResponse response) throws IOException {
+        try (InputStream in = compresionService.decodificar(Files.newInputStream(archivo), codificacion)) {
+            in.skipNBytes(inicio);
+            OutputStream salida = response.getOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            long restante = longitud;
+            while (restante > 0) {
+                int leidos = in.read(buffer, 0, (int) Math.min(buffer.length, restante));
+                if (leidos < 0) {
+                    break;
+                }
+                salida.write(buffer, 0, leidos);
+                restante -= leidos;
+            }
+        }
+    }
+
+    // Envía el archivo sin pasarlo por el heap: con el conector NIO de Tomcat se usa
+    // sendfile (copia kernel a socket); si no, FileChannel.transferTo sobre la salida
+    private void enviarArchivo(Path archivo, long inicio, long longitud,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            request.setAttribute("org.apache.tomcat.sendfile.filename", archivo.toAbsolutePath().toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", inicio);
+            request.setAttribute("org.apache.tomcat.sendfile.end", inicio + longitud);
+            return;
+        }
+
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            WritableByteChannel salida = Channels.newChannel(response.getOutputStream());
+            long posicion = inicio;
+            long restante = longitud;
+            while (restante > 0) {
+                long enviados = canal.transferTo(posicion, restante, salida);
+                if (enviados <= 0) {
+                    break;
+                }
+                posicion += enviados;
+                restante -= enviados;
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.controller;
+
+import hn.cus.api_repositorio.dto.DocumentoResponseDTO;
+import hn.cus.api_repositorio.dto.SesionSubidaDTO;
+import hn.cus.api_repositorio.dto.SesionSubidaRequest;
+import hn.cus.api_repositorio.entity.Documento;
+import hn.cus.api_repositorio.exception.OffsetInvalidoException;
+import hn.cus.api_repositorio.service.AuditoriaService;
+import hn.cus.api_repositorio.service.SubidaFragmentadaService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import java.io.IOException;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Subida de documentos grandes por fragmentos reanudables:
+ * iniciar sesión, enviar fragmentos con su offset y completar.
+ * @author EG490082
+ */
+@RestController
+@RequestMapping("/api/documentos/subidas")
+@Tag(name = "Subidas por fragmentos", description = "Subida reanudable de documentos grandes")
+@Validated
+public class SubidaFragmentadaController {
+
+    @Autowired private SubidaFragmentadaService subidaFragmentadaService;
+    @Autowired private AuditoriaService auditoriaService;
+
+    @Operation(summary = "Iniciar subida", description = "Crea una sesión de subida y devuelve su ID")
+    @PostMapping
+    public ResponseEntity<SesionSubidaDTO> iniciarSubida(@RequestBody @Valid SesionSubidaRequest request) {
+        return ResponseEntity.ok(subidaFragmentadaService.iniciarSesion(request));
+    }
+
+    @Operation(summary = "Estado de subida", description = "Devuelve los bytes recibidos para reanudar la subida")
+    @GetMapping("/{sesionId}")
+    public ResponseEntity<?> obtenerSubida(@PathVariable("sesionId") String sesionId) {
+        try {
+            return ResponseEntity.ok(subidaFragmentadaService.obtenerSesion(sesionId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Enviar fragmento", description = "Escribe el cuerpo de la petición (application/octet-stream) a partir del offset indicado")
+    @PutMapping(value = "/{sesionId}", consumes = "application/octet-stream")
+    public ResponseEntity<?> enviarFragmento(@PathVariable("sesionId") String sesionId,
+                                             @RequestParam("offset") long offset,
+                                             HttpServletRequest request) {
+        try {
+            // Se lee el cuerpo como stream: no pasa por multipart ni se carga en memoria
+            return ResponseEntity.ok(subidaFragmentadaService.escribirFragmento(sesionId, offset, request.getInputStream()));
+        } catch (OffsetInvalidoException e) {
+            return ResponseEntity.status(409).body(Map.of(
+                "error", e.getMessage(),
+                "bytesRecibidos", e.getBytesRecibidos()
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No se pudo leer el fragmento: " + e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Completar subida", description = "Registra el documento una vez recibidos todos los bytes")
+    @PostMapping("/{sesionId}/completar")
+    public ResponseEntity<?> completarSubida(@PathVariable("sesionId") String sesionId) {
+        try {
+            Documento doc = subidaFragmentadaService.completarSesion(sesionId);
+            auditoriaService.registrar(AuditoriaService.SUBIDA, "Documento " + doc.getId() + ": " + doc.getNombreOriginal());
+            return ResponseEntity.ok(new DocumentoResponseDTO(doc));
+        } catch (OffsetInvalidoException e) {
+            return ResponseEntity.status(409).body(Map.of(
+                "error", e.getMessage(),
+                "bytesRecibidos", e.getBytesRecibidos()
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Cancelar subida", description = "Elimina la sesión y el archivo parcial")
+    @DeleteMapping("/{sesionId}")
+    public ResponseEntity<?> cancelarSubida(@PathVariable("sesionId") String sesionId) {
+        try {
+            subidaFragmentadaService.cancelarSesion(sesionId);
+            return ResponseEntity.noContent().build();
+        } catch (OffsetInvalidoException e) {
+            return ResponseEntity.status(409).body(Map.of(
+                "error", e.getMessage(),
+                "bytesRecibidos", e.getBytesRecibidos()
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
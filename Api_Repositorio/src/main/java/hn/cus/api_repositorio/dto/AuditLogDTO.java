@@ -0,0 +1,26 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Evento de auditoría tal como se devuelve en la consulta paginada
+ * @author EG490082
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditLogDTO {
+    private Long id;
+    private Long usuarioId;
+    private String username;
+    private String accion;
+    private String descripcion;
+    private LocalDateTime fecha;
+}
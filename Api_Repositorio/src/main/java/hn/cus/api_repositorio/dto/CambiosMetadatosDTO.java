@@ -0,0 +1,30 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Claves de un documento que cambiaron en una carga masiva de metadatos;
+ * las que ya tenían el mismo valor no aparecen
+ * @author EG490082
+ */
+@Data
+@NoArgsConstructor
+public class CambiosMetadatosDTO {
+    private Long documentoId;
+    private Map<String, String> agregadas = new TreeMap<>();
+    private Map<String, String> modificadas = new TreeMap<>();
+    private List<String> eliminadas = new ArrayList<>();
+
+    public CambiosMetadatosDTO(Long documentoId) {
+        this.documentoId = documentoId;
+    }
+}
@@ -34,7 +34,7 @@ public class DocumentoResponseDTO {
         this.tipoMime = documento.getTipoMime();
         this.rutaArchivo = documento.getRutaArchivo();
         this.publico = documento.getPublico();
-        this.username = "admin"; // Temporalmente fijo para evitar problemas de relación
+        this.username = documento.getCreadoPor() != null ? documento.getCreadoPor().getUsername() : null;
         this.fechaCreacion = documento.getFechaCreacion();
         this.idTarea = documento.getIdTarea();
     }
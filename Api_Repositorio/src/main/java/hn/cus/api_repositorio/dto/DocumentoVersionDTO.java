@@ -0,0 +1,32 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Versión de un documento, sin su contenido
+ * @author EG490082
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentoVersionDTO {
+
+    private Long documentoId;
+    private Integer version;
+    private String nombreOriginal;
+    private String tipoMime;
+    private Long tamano;
+    private String hashContenido;
+    private String almacenamiento;  // COMPLETA o DELTA
+    private Integer versionBase;    // versión sobre la que se aplica el delta
+    private Long tamanoAlmacenado;  // bytes guardados en la fila; null si está en el almacén de blobs
+    private String username;
+    private LocalDateTime fechaCreacion;
+}
@@ -0,0 +1,31 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.dto;
+
+import hn.cus.api_repositorio.entity.EstadisticaDocumento;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ *
+ * @author EG490082
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticaDocumentoDTO {
+    private String dimension;
+    private String clave;
+    private Long documentos;
+    private Long bytes;
+
+    public EstadisticaDocumentoDTO(EstadisticaDocumento estadistica) {
+        this.dimension = estadistica.getId().getDimension();
+        this.clave = estadistica.getId().getClave();
+        this.documentos = estadistica.getDocumentos();
+        this.bytes = estadistica.getBytes();
+    }
+}
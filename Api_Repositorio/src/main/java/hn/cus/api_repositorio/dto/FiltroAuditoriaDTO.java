@@ -0,0 +1,25 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Filtros opcionales de la consulta de auditoría; los campos null no filtran.
+ * desde y hasta acotan las particiones mensuales que se recorren.
+ * @author EG490082
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroAuditoriaDTO {
+    private Long usuarioId;
+    private String accion;
+    private LocalDateTime desde;
+    private LocalDateTime hasta;
+}
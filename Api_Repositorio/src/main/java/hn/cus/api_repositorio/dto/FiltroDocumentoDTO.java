@@ -0,0 +1,23 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Filtros opcionales del listado de documentos; los campos null no filtran.
+ * @author EG490082
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroDocumentoDTO {
+    private Long creadoPor;
+    private String tipoMime;
+    private Long idTarea;
+    private Boolean publico;
+}
@@ -17,6 +17,11 @@ import lombok.NoArgsConstructor;
 @Data
 @AllArgsConstructor
 public class LoginResponse {
+    // Token de acceso (JWT de vida corta)
     private String token;
+    // Se canjea en /api/auth/refresh por un par nuevo
+    private String refreshToken;
+    // Segundos de vigencia del token de acceso
+    private long expiraEn;
 }
 
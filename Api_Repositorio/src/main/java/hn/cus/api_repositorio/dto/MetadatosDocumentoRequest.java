@@ -0,0 +1,24 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.dto;
+
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Metadatos de un documento en una carga masiva. Las claves recibidas se
+ * agregan o actualizan; con reemplazar, las que no vienen se eliminan.
+ * @author EG490082
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetadatosDocumentoRequest {
+    private Long documentoId;
+    private Map<String, String> metadatos;
+    private boolean reemplazar;
+}
@@ -0,0 +1,24 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Página de resultados paginados por cursor. Para pedir la siguiente se
+ * envía siguienteCursor tal cual; es null cuando no hay más resultados.
+ * @author EG490082
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaCursorDTO<T> {
+    private List<T> elementos;
+    private String siguienteCursor;
+    private boolean hayMas;
+}
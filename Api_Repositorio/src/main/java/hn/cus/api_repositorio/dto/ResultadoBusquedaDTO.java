@@ -0,0 +1,28 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Documento encontrado por la búsqueda de texto completo, con su relevancia
+ * y un fragmento del texto con las coincidencias entre <b> y </b>
+ * @author EG490082
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoBusquedaDTO {
+    private Long documentoId;
+    private String nombreOriginal;
+    private String tipoMime;
+    private Long tamano;
+    private LocalDateTime fechaCreacion;
+    private Double relevancia;
+    private String fragmento;
+}
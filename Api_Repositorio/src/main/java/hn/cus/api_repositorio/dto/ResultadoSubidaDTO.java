@@ -0,0 +1,34 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.dto;
+
+import hn.cus.api_repositorio.entity.Documento;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de cada archivo de una subida por lote, en el orden en que se enviaron
+ * @author EG490082
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoSubidaDTO {
+
+    private String nombreOriginal;
+    private boolean exito;
+    private Long id;
+    private String rutaArchivo;
+    private String error;
+
+    public static ResultadoSubidaDTO exito(Documento doc) {
+        return new ResultadoSubidaDTO(doc.getNombreOriginal(), true, doc.getId(), doc.getRutaArchivo(), null);
+    }
+
+    public static ResultadoSubidaDTO error(String nombreOriginal, String error) {
+        return new ResultadoSubidaDTO(nombreOriginal, false, null, null, error);
+    }
+}
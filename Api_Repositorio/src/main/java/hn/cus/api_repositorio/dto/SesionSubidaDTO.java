@@ -0,0 +1,35 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.dto;
+
+import hn.cus.api_repositorio.entity.SesionSubida;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * DTO con el estado de una sesión de subida por fragmentos
+ * @author EG490082
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SesionSubidaDTO {
+
+    private String id;
+    private String nombreOriginal;
+    private Long tamanoTotal;
+    private Long bytesRecibidos;
+    private LocalDateTime fechaActualizacion;
+
+    public SesionSubidaDTO(SesionSubida sesion) {
+        this.id = sesion.getId();
+        this.nombreOriginal = sesion.getNombreOriginal();
+        this.tamanoTotal = sesion.getTamanoTotal();
+        this.bytesRecibidos = sesion.getBytesRecibidos();
+        this.fechaActualizacion = sesion.getFechaActualizacion();
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+/**
+ * Petición para iniciar una subida por fragmentos
+ * @author EG490082
+ */
+@Data
+public class SesionSubidaRequest {
+
+    @NotBlank(message = "El nombre del archivo es obligatorio")
+    @Size(max = 255, message = "El nombre del archivo no puede exceder 255 caracteres")
+    private String nombreOriginal;
+
+    private String tipoMime;
+
+    @NotNull(message = "El tamaño total es obligatorio")
+    @Positive(message = "El tamaño total debe ser mayor que cero")
+    private Long tamanoTotal;
+
+    @NotNull(message = "El ID del usuario es obligatorio")
+    private Long usuarioId;
+
+    private Long idTarea;
+}
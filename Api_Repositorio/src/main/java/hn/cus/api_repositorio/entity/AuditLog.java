@@ -19,7 +19,9 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 public class AuditLog {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_log_seq")
+    @SequenceGenerator(name = "audit_log_seq", schema = "gestdoc_ow", sequenceName = "audit_log_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -31,5 +33,7 @@ public class AuditLog {
     
     private String descripcion;
     
+    // Clave de partición de audit_log (un mes por partición)
+    @Column(nullable = false)
     private LocalDateTime fecha = LocalDateTime.now();
 }
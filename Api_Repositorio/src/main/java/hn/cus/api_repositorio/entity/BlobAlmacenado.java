@@ -0,0 +1,44 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Contenido físico en el directorio de uploads, identificado por su SHA-256.
+ * Varios documentos con el mismo contenido comparten un único blob; el
+ * archivo se elimina cuando referencias llega a cero.
+ * @author EG490082
+ */
+@Entity
+@Table(name = "blob_almacenado", schema = "gestdoc_ow")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlobAlmacenado {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    // Ruta relativa al directorio de uploads
+    @Column(nullable = false)
+    private String rutaArchivo;
+
+    // Tamaño del contenido original, aunque el archivo esté comprimido
+    @Column(nullable = false)
+    private Long tamano;
+
+    // Content-Encoding del archivo en disco (gzip), null si está sin comprimir
+    @Column(length = 16)
+    private String codificacion;
+
+    @Column(nullable = false)
+    private Integer referencias;
+
+    private LocalDateTime fechaCreacion = LocalDateTime.now();
+}
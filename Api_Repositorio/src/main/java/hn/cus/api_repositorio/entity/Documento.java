@@ -8,7 +8,6 @@ package hn.cus.api_repositorio.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
-import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.time.LocalDateTime;
 
@@ -19,8 +18,11 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Documento {
 
+    // Ids reservados de 50 en 50 (db/008_secuencias_ids.sql): con IDENTITY
+    // Hibernate no puede agrupar las inserciones en lotes JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "documentos_seq")
+    @SequenceGenerator(name = "documentos_seq", schema = "gestdoc_ow", sequenceName = "documentos_id_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "El nombre original es obligatorio")
@@ -40,13 +42,21 @@ public class Documento {
     @JoinColumn(name = "creado_por")
     private Usuario creadoPor;
 
+    @Column(nullable = false)
     private LocalDateTime fechaCreacion;
 
-    @Lob
-    @Column(name = "contenido_base64", columnDefinition = "TEXT")
-    @JsonIgnore
-    private String contenidoBase64;
-
     @Column(name = "id_tarea")
     private Long idTarea;
+
+    // SHA-256 del contenido; en archivos físicos es la clave del blob compartido
+    @Column(name = "hash_contenido", length = 64)
+    private String hashContenido;
+
+    private Long tamano;
+
+    // Fecha de la última versión subida; null si el contenido no ha cambiado
+    @Column(name = "fecha_modificacion")
+    private LocalDateTime fechaModificacion;
+
+    // El contenido de los archivos pequeños está en DocumentoContenido
 }
@@ -21,7 +21,8 @@ import java.time.LocalDateTime;
 public class DocumentoComentario {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "documento_comentarios_seq")
+    @SequenceGenerator(name = "documento_comentarios_seq", schema = "gestdoc_ow", sequenceName = "documento_comentarios_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,57 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Contenido de los documentos guardados en la base de datos, separado de
+ * Documento para que listados y consultas de metadatos no lo carguen.
+ * Comparte la clave primaria con su documento.
+ * @author EG490082
+ */
+@Entity
+@Table(name = "documento_contenido", schema = "gestdoc_ow")
+@Data
+@NoArgsConstructor
+public class DocumentoContenido {
+
+    @Id
+    @Column(name = "documento_id")
+    private Long id;
+
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @MapsId
+    @JoinColumn(name = "documento_id")
+    @JsonIgnore
+    @ToString.Exclude
+    private Documento documento;
+
+    @Column(name = "contenido_binario")
+    @ToString.Exclude
+    private byte[] contenidoBinario;
+
+    // Content-Encoding de contenidoBinario (gzip), null si está sin comprimir
+    @Column(length = 16)
+    private String codificacion;
+
+    // Solo filas antiguas, hasta que MigracionContenidoService las convierte
+    @Lob
+    @Column(name = "contenido_base64", columnDefinition = "TEXT")
+    @ToString.Exclude
+    private String contenidoBase64;
+
+    public DocumentoContenido(Documento documento, byte[] contenidoBinario) {
+        this.documento = documento;
+        this.contenidoBinario = contenidoBinario;
+    }
+
+    public DocumentoContenido(Documento documento, byte[] contenidoBinario, String codificacion) {
+        this(documento, contenidoBinario);
+        this.codificacion = codificacion;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Miniatura o vista previa de un documento, guardada como JPEG en el almacén
+ * de blobs (ver db/015_miniaturas.sql).
+ * @author EG490082
+ */
+@Entity
+@Table(name = "documento_miniatura", schema = "gestdoc_ow")
+@Data
+@NoArgsConstructor
+public class DocumentoMiniatura {
+
+    public static final String MINIATURA = "MINIATURA";
+    public static final String VISTA_PREVIA = "VISTA_PREVIA";
+
+    @EmbeddedId
+    private DocumentoMiniaturaId id;
+
+    // hash_contenido del documento del que se generó
+    @Column(name = "hash_origen", length = 64)
+    private String hashOrigen;
+
+    // Blob con la imagen; null si el contenido no se pudo renderizar
+    @Column(name = "hash_blob", length = 64)
+    private String hashBlob;
+
+    private Integer ancho;
+
+    private Integer alto;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion = LocalDateTime.now();
+}
@@ -0,0 +1,27 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import java.io.Serializable;
+import lombok.*;
+
+/**
+ * Clave de una imagen derivada: el documento y el tipo (MINIATURA, VISTA_PREVIA).
+ * @author EG490082
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentoMiniaturaId implements Serializable {
+
+    @Column(name = "documento_id")
+    private Long documentoId;
+
+    @Column(length = 20)
+    private String tipo;
+}
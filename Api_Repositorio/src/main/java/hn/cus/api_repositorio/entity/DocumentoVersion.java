@@ -14,12 +14,19 @@ import java.time.LocalDateTime;
  */
 // DocumentoVersion
 @Entity
-@Table(name = "documento_version", schema = "gestdoc_ow")
+@Table(name = "documento_version", schema = "gestdoc_ow",
+       uniqueConstraints = @UniqueConstraint(name = "uq_documento_version", columnNames = {"documento_id", "version"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class DocumentoVersion {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+
+    public static final String COMPLETA = "COMPLETA";
+    public static final String DELTA = "DELTA";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "documento_version_seq")
+    @SequenceGenerator(name = "documento_version_seq", schema = "gestdoc_ow", sequenceName = "documento_version_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -37,6 +44,30 @@ public class DocumentoVersion {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "creado_por")
     private Usuario creadoPor;
+
+    // COMPLETA: el contenido entero, en datos o en el blob hashContenido;
+    // DELTA: datos es un DeltaBinario sobre el contenido de versionBase
+    @Column(nullable = false, length = 10)
+    private String almacenamiento = COMPLETA;
+
+    private Integer versionBase;
+
+    @ToString.Exclude
+    private byte[] datos;
+
+    // Content-Encoding de datos (gzip), null si está sin comprimir
+    @Column(length = 16)
+    private String codificacion;
+
+    // SHA-256 del contenido entero de la versión, aunque se guarde como delta
+    @Column(length = 64)
+    private String hashContenido;
+
+    private Long tamano;
+
+    private String nombreOriginal;
+
+    private String tipoMime;
 }
 
 
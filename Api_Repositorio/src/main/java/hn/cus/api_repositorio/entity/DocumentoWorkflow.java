@@ -18,7 +18,9 @@ import lombok.*;
 @NoArgsConstructor
 @AllArgsConstructor
 public class DocumentoWorkflow {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "documento_workflow_seq")
+    @SequenceGenerator(name = "documento_workflow_seq", schema = "gestdoc_ow", sequenceName = "documento_workflow_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
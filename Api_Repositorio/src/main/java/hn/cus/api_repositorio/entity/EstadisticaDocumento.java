@@ -0,0 +1,30 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Contador de documentos y bytes por dimensión, mantenido al crear y
+ * eliminar documentos para no tener que contarlos.
+ * @author EG490082
+ */
+@Entity
+@Table(name = "estadistica_documento", schema = "gestdoc_ow")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticaDocumento {
+
+    @EmbeddedId
+    private EstadisticaDocumentoId id;
+
+    @Column(nullable = false)
+    private Long documentos;
+
+    @Column(nullable = false)
+    private Long bytes;
+}
@@ -0,0 +1,28 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import java.io.Serializable;
+import lombok.*;
+
+/**
+ * Clave de un contador: la dimensión (TOTAL, USUARIO, TIPO_MIME, TAREA, DIA)
+ * y el valor dentro de ella.
+ * @author EG490082
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticaDocumentoId implements Serializable {
+
+    @Column(length = 20)
+    private String dimension;
+
+    @Column(length = 255)
+    private String clave;
+}
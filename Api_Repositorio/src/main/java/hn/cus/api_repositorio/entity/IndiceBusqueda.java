@@ -0,0 +1,39 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Texto indexado de un documento para la búsqueda de texto completo. Las
+ * filas se escriben con las consultas nativas de IndiceBusquedaRepository;
+ * la columna vector la calcula PostgreSQL y no se mapea (ver
+ * db/011_indice_busqueda.sql).
+ * @author EG490082
+ */
+@Entity
+@Table(name = "indice_busqueda", schema = "gestdoc_ow")
+@Data
+@NoArgsConstructor
+public class IndiceBusqueda {
+
+    @Id
+    @Column(name = "documento_id")
+    private Long documentoId;
+
+    private String nombre;
+
+    private String metadatos;
+
+    private String comentarios;
+
+    @ToString.Exclude
+    private String contenido;
+
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private LocalDateTime fechaActualizacion;
+}
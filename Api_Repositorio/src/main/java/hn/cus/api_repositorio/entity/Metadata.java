@@ -13,12 +13,15 @@ import lombok.*;
  */
 // Metadata
 @Entity
-@Table(name = "metadata", schema = "gestdoc_ow")
+@Table(name = "metadata", schema = "gestdoc_ow",
+       uniqueConstraints = @UniqueConstraint(name = "uq_metadata_documento_clave", columnNames = {"documento_id", "clave"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Metadata {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "metadata_seq")
+    @SequenceGenerator(name = "metadata_seq", schema = "gestdoc_ow", sequenceName = "metadata_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -14,7 +14,8 @@ import lombok.*;
 public class Permiso {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "permisos_seq")
+    @SequenceGenerator(name = "permisos_seq", schema = "gestdoc_ow", sequenceName = "permisos_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Long id;
 
@@ -0,0 +1,43 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Refresh token de una sesión. Solo se guarda el hash SHA-256 del valor
+ * entregado al cliente; al canjearlo se marca fechaUso y ya no sirve. Al
+ * cerrar o revocar sesiones la fila se borra.
+ * @author EG490082
+ */
+@Entity
+@Table(name = "refresh_token", schema = "gestdoc_ow")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "refresh_token_seq")
+    @SequenceGenerator(name = "refresh_token_seq", schema = "gestdoc_ow", sequenceName = "refresh_token_id_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "usuario_id", nullable = false)
+    private Usuario usuario;
+
+    @Column(nullable = false, length = 64, unique = true)
+    private String hash;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaCreacion = LocalDateTime.now();
+
+    @Column(nullable = false)
+    private LocalDateTime fechaExpiracion;
+
+    private LocalDateTime fechaUso;
+}
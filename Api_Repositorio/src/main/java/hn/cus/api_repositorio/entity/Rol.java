@@ -19,7 +19,8 @@ import java.util.Set;
 public class Rol {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "roles_seq")
+    @SequenceGenerator(name = "roles_seq", schema = "gestdoc_ow", sequenceName = "roles_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Long id;
 
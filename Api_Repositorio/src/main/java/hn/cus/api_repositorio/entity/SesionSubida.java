@@ -0,0 +1,49 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Sesión de subida por fragmentos. Los bytes recibidos se escriben en un
+ * archivo parcial en el directorio temporal de uploads hasta que la sesión
+ * se completa.
+ * @author EG490082
+ */
+@Entity
+@Table(name = "sesion_subida", schema = "gestdoc_ow")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SesionSubida {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "usuario_id", nullable = false)
+    private Usuario usuario;
+
+    @Column(nullable = false)
+    private String nombreOriginal;
+
+    private String tipoMime;
+
+    @Column(nullable = false)
+    private Long tamanoTotal;
+
+    @Column(nullable = false)
+    private Long bytesRecibidos = 0L;
+
+    @Column(name = "id_tarea")
+    private Long idTarea;
+
+    private LocalDateTime fechaCreacion = LocalDateTime.now();
+
+    private LocalDateTime fechaActualizacion = LocalDateTime.now();
+}
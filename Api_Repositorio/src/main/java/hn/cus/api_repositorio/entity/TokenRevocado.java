@@ -0,0 +1,37 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Revocación de tokens de acceso aún vigentes: uno concreto ('jti:<id>') o
+ * todos los de un usuario emitidos hasta fechaRevocacion ('usuario:<id>').
+ * Se conserva hasta fechaExpiracion, cuando esos tokens ya habrán expirado.
+ * @author EG490082
+ */
+@Entity
+@Table(name = "token_revocado", schema = "gestdoc_ow")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenRevocado {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "token_revocado_seq")
+    @SequenceGenerator(name = "token_revocado_seq", schema = "gestdoc_ow", sequenceName = "token_revocado_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String clave;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaRevocacion;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaExpiracion;
+}
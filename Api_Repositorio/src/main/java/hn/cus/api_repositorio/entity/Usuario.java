@@ -26,7 +26,8 @@ import java.util.Set;
 public class Usuario {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "usuarios_seq")
+    @SequenceGenerator(name = "usuarios_seq", schema = "gestdoc_ow", sequenceName = "usuarios_id_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "El nombre de usuario es obligatorio")
@@ -19,7 +19,9 @@ import lombok.*;
 @NoArgsConstructor
 @AllArgsConstructor
 public class Workflow {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "workflows_seq")
+    @SequenceGenerator(name = "workflows_seq", schema = "gestdoc_ow", sequenceName = "workflows_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false, length = 100)
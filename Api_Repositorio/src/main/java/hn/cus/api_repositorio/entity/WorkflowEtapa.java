@@ -18,7 +18,9 @@ import lombok.*;
 @NoArgsConstructor
 @AllArgsConstructor
 public class WorkflowEtapa {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "workflow_etapas_seq")
+    @SequenceGenerator(name = "workflow_etapas_seq", schema = "gestdoc_ow", sequenceName = "workflow_etapas_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
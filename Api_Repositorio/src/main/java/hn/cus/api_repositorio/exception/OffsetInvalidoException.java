@@ -0,0 +1,19 @@
+package hn.cus.api_repositorio.exception;
+
+/**
+ * Se lanza cuando un fragmento no empieza en el offset que espera la sesión
+ * de subida. Incluye los bytes ya recibidos para que el cliente reanude.
+ */
+public class OffsetInvalidoException extends RuntimeException {
+
+    private final long bytesRecibidos;
+
+    public OffsetInvalidoException(String message, long bytesRecibidos) {
+        super(message);
+        this.bytesRecibidos = bytesRecibidos;
+    }
+
+    public long getBytesRecibidos() {
+        return bytesRecibidos;
+    }
+}
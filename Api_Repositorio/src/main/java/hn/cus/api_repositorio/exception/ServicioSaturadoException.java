@@ -0,0 +1,19 @@
+package hn.cus.api_repositorio.exception;
+
+/**
+ * Se lanza cuando un recurso acotado (por ejemplo, el pool de hashing de
+ * contraseñas) no admite más trabajo. Se responde 429 con Retry-After.
+ */
+public class ServicioSaturadoException extends RuntimeException {
+
+    private final long reintentarSegundos;
+
+    public ServicioSaturadoException(String message, long reintentarSegundos) {
+        super(message);
+        this.reintentarSegundos = reintentarSegundos;
+    }
+
+    public long getReintentarSegundos() {
+        return reintentarSegundos;
+    }
+}
@@ -8,15 +8,33 @@ import hn.cus.api_repositorio.entity.AuditLog;
 import hn.cus.api_repositorio.entity.DocumentoWorkflow;
 import hn.cus.api_repositorio.entity.Workflow;
 import hn.cus.api_repositorio.entity.WorkflowEtapa;
+import java.time.LocalDate;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  *
  * @author EG490082
  */
-public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
+public interface AuditLogRepository extends JpaRepository<AuditLog, Long>, AuditLogRepositoryCustom {
     List<AuditLog> findByUsuario_Id(Long usuarioId);
+
+    // Falso mientras no se aplique db/009 (y en las pruebas, con el esquema de Hibernate)
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table "
+            + "WHERE partrelid = to_regclass('gestdoc_ow.audit_log'))", nativeQuery = true)
+    boolean estaParticionada();
+
+    // Funciones de db/009; el DDL necesita una transacción de escritura
+    @Transactional
+    @Query(value = "SELECT gestdoc_ow.crear_particiones_audit_log(:desde, :hasta)", nativeQuery = true)
+    int crearParticiones(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    @Transactional
+    @Query(value = "SELECT gestdoc_ow.eliminar_particiones_audit_log(:antesDe)", nativeQuery = true)
+    List<String> eliminarParticiones(@Param("antesDe") LocalDate antesDe);
 }
 
 
@@ -0,0 +1,24 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.repository;
+
+import hn.cus.api_repositorio.dto.AuditLogDTO;
+import hn.cus.api_repositorio.dto.FiltroAuditoriaDTO;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Consultas de auditoría que se arman según los filtros recibidos.
+ * @author EG490082
+ */
+public interface AuditLogRepositoryCustom {
+
+    /**
+     * Eventos ordenados por (fecha, id) descendente, a partir del último
+     * elemento de la página anterior (keyset). Con desdeFecha null empieza
+     * por el más reciente.
+     */
+    List<AuditLogDTO> listarPagina(FiltroAuditoriaDTO filtro, LocalDateTime desdeFecha, Long desdeId, int limite);
+}
@@ -0,0 +1,72 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.repository;
+
+import hn.cus.api_repositorio.dto.AuditLogDTO;
+import hn.cus.api_repositorio.dto.FiltroAuditoriaDTO;
+import hn.cus.api_repositorio.entity.AuditLog;
+import hn.cus.api_repositorio.entity.Usuario;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author EG490082
+ */
+public class AuditLogRepositoryImpl implements AuditLogRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<AuditLogDTO> listarPagina(FiltroAuditoriaDTO filtro, LocalDateTime desdeFecha, Long desdeId, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<AuditLogDTO> query = cb.createQuery(AuditLogDTO.class);
+        Root<AuditLog> a = query.from(AuditLog.class);
+        Join<AuditLog, Usuario> u = a.join("usuario", JoinType.LEFT);
+
+        List<Predicate> condiciones = new ArrayList<>();
+        if (filtro.getUsuarioId() != null) {
+            condiciones.add(cb.equal(a.get("usuario").get("id"), filtro.getUsuarioId()));
+        }
+        if (filtro.getAccion() != null) {
+            condiciones.add(cb.equal(a.get("accion"), filtro.getAccion()));
+        }
+        // Las condiciones sobre fecha descartan las particiones fuera del rango
+        if (filtro.getDesde() != null) {
+            condiciones.add(cb.greaterThanOrEqualTo(a.get("fecha"), filtro.getDesde()));
+        }
+        if (filtro.getHasta() != null) {
+            condiciones.add(cb.lessThan(a.get("fecha"), filtro.getHasta()));
+        }
+        if (desdeFecha != null) {
+            // Igual que el listado de documentos: fecha <= :f acota el recorrido
+            // y el OR desempata por id dentro de la misma fecha
+            condiciones.add(cb.lessThanOrEqualTo(a.get("fecha"), desdeFecha));
+            condiciones.add(cb.or(
+                    cb.lessThan(a.get("fecha"), desdeFecha),
+                    cb.lessThan(a.get("id"), desdeId)));
+        }
+
+        query.select(cb.construct(AuditLogDTO.class,
+                        a.get("id"), u.get("id"), u.get("username"), a.get("accion"),
+                        a.get("descripcion"), a.get("fecha")))
+                .where(condiciones.toArray(new Predicate[0]))
+                .orderBy(cb.desc(a.get("fecha")), cb.desc(a.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limite)
+                .getResultList();
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.repository;
+
+import hn.cus.api_repositorio.entity.BlobAlmacenado;
+import jakarta.persistence.LockModeType;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ *
+ * @author EG490082
+ */
+public interface BlobAlmacenadoRepository extends JpaRepository<BlobAlmacenado, String> {
+
+    // Alta o +1 referencia en una sola sentencia; dos subidas simultáneas del
+    // mismo contenido se serializan sobre la fila del hash. Un blob existente
+    // conserva su ruta y codificación. No vacía el contexto de persistencia:
+    // quien ya tuviera cargada la fila debe refrescarla
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO gestdoc_ow.blob_almacenado (hash, ruta_archivo, tamano, codificacion, referencias, fecha_creacion) "
+            + "VALUES (:hash, :ruta, :tamano, :codificacion, 1, now()) "
+            + "ON CONFLICT (hash) DO UPDATE SET referencias = blob_almacenado.referencias + 1",
+            nativeQuery = true)
+    int registrarReferencia(@Param("hash") String hash,
+                            @Param("ruta") String rutaArchivo,
+                            @Param("tamano") Long tamano,
+                            @Param("codificacion") String codificacion);
+
+    List<BlobAlmacenado> findByHashGreaterThanOrderByHashAsc(String hash, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from BlobAlmacenado b where b.hash = :hash")
+    Optional<BlobAlmacenado> bloquearPorHash(@Param("hash") String hash);
+}
@@ -0,0 +1,165 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Consulta de documentos por metadatos, con condiciones clave/valor unidas
+ * con AND y OR y agrupadas entre paréntesis:
+ * expediente=123 AND tipo=factura AND (fecha>=2025-01-01 OR "estado"="en revisión").
+ * AND se evalúa antes que OR. Operadores: = != &gt; &gt;= &lt; &lt;=. Los
+ * valores con espacios o paréntesis van entre comillas dobles. Los rangos con
+ * un valor numérico comparan como número y los demás como texto, que ordena
+ * bien las fechas ISO.
+ * @author EG490082
+ */
+public sealed interface ConsultaMetadatos {
+
+    int CONDICIONES_MAXIMAS = 20;
+
+    Set<String> OPERADORES = Set.of("=", "!=", ">", ">=", "<", "<=");
+
+    /** Documentos con el metadato clave cuyo valor cumple el operador */
+    record Condicion(String clave, String operador, String valor) implements ConsultaMetadatos {
+        public boolean numerica() {
+            return !operador.equals("=") && !operador.equals("!=") && valor.matches("-?\\d{1,30}(\\.\\d{1,30})?");
+        }
+    }
+
+    /** Documentos que cumplen todas las partes (AND) o alguna (OR) */
+    record Grupo(boolean todas, List<ConsultaMetadatos> partes) implements ConsultaMetadatos {
+    }
+
+    /** Lanza IllegalArgumentException si la consulta no es válida */
+    static ConsultaMetadatos parsear(String texto) {
+        if (texto == null || texto.isBlank()) {
+            throw new IllegalArgumentException("La consulta es obligatoria");
+        }
+        Analizador analizador = new Analizador(texto);
+        ConsultaMetadatos consulta = analizador.expresion();
+        if (analizador.siguiente() != null) {
+            throw new IllegalArgumentException("Consulta inválida cerca de: " + analizador.resto());
+        }
+        return consulta;
+    }
+
+    // Descenso recursivo: expresion := termino (OR termino)*, termino := factor (AND factor)*,
+    // factor := ( expresion ) | clave operador valor
+    final class Analizador {
+        private final String texto;
+        private int posicion;
+        private int condiciones;
+
+        private Analizador(String texto) {
+            this.texto = texto;
+        }
+
+        private ConsultaMetadatos expresion() {
+            List<ConsultaMetadatos> partes = new ArrayList<>();
+            partes.add(termino());
+            while ("OR".equalsIgnoreCase(siguiente())) {
+                avanzar("OR");
+                partes.add(termino());
+            }
+            return partes.size() == 1 ? partes.get(0) : new Grupo(false, partes);
+        }
+
+        private ConsultaMetadatos termino() {
+            List<ConsultaMetadatos> partes = new ArrayList<>();
+            partes.add(factor());
+            while ("AND".equalsIgnoreCase(siguiente())) {
+                avanzar("AND");
+                partes.add(factor());
+            }
+            return partes.size() == 1 ? partes.get(0) : new Grupo(true, partes);
+        }
+
+        private ConsultaMetadatos factor() {
+            if ("(".equals(siguiente())) {
+                avanzar("(");
+                ConsultaMetadatos interior = expresion();
+                if (!")".equals(siguiente())) {
+                    throw new IllegalArgumentException("Falta cerrar un paréntesis");
+                }
+                avanzar(")");
+                return interior;
+            }
+            String clave = palabra("una clave");
+            String operador = siguiente();
+            if (operador == null || !OPERADORES.contains(operador)) {
+                throw new IllegalArgumentException("Se esperaba un operador (" + String.join(" ", OPERADORES)
+                        + ") después de " + clave);
+            }
+            avanzar(operador);
+            String valor = palabra("un valor para " + clave);
+            if (clave.length() > 100 || valor.length() > 255) {
+                throw new IllegalArgumentException("Clave o valor demasiado largo: " + clave);
+            }
+            if (++condiciones > CONDICIONES_MAXIMAS) {
+                throw new IllegalArgumentException("La consulta no puede tener más de " + CONDICIONES_MAXIMAS + " condiciones");
+            }
+            return new Condicion(clave, operador, valor);
+        }
+
+        private String palabra(String esperado) {
+            String token = siguiente();
+            if (token == null || token.equals("(") || token.equals(")") || OPERADORES.contains(token)) {
+                throw new IllegalArgumentException("Se esperaba " + esperado);
+            }
+            avanzar(token);
+            return token.startsWith("\"") ? token.substring(1, token.length() - 1).replace("\"\"", "\"") : token;
+        }
+
+        // Token en la posición actual sin consumirlo; null al final
+        private String siguiente() {
+            while (posicion < texto.length() && Character.isWhitespace(texto.charAt(posicion))) {
+                posicion++;
+            }
+            if (posicion >= texto.length()) {
+                return null;
+            }
+            char c = texto.charAt(posicion);
+            if (c == '(' || c == ')') {
+                return String.valueOf(c);
+            }
+            if (c == '=' || c == '!' || c == '<' || c == '>') {
+                boolean doble = posicion + 1 < texto.length() && texto.charAt(posicion + 1) == '=';
+                return doble ? texto.substring(posicion, posicion + 2) : String.valueOf(c);
+            }
+            if (c == '"') {
+                // "" dentro de las comillas es una comilla literal
+                int fin = posicion + 1;
+                while (true) {
+                    fin = texto.indexOf('"', fin);
+                    if (fin < 0) {
+                        throw new IllegalArgumentException("Faltan comillas de cierre");
+                    }
+                    if (fin + 1 < texto.length() && texto.charAt(fin + 1) == '"') {
+                        fin += 2;
+                        continue;
+                    }
+                    return texto.substring(posicion, fin + 1);
+                }
+            }
+            int fin = posicion;
+            while (fin < texto.length() && !Character.isWhitespace(texto.charAt(fin))
+                    && "()=!<>\"".indexOf(texto.charAt(fin)) < 0) {
+                fin++;
+            }
+            return texto.substring(posicion, fin);
+        }
+
+        private void avanzar(String token) {
+            posicion += token.length();
+        }
+
+        private String resto() {
+            return texto.substring(posicion);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.repository;
+
+import hn.cus.api_repositorio.entity.DocumentoContenido;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ *
+ * @author EG490082
+ */
+public interface DocumentoContenidoRepository extends JpaRepository<DocumentoContenido, Long> {
+
+    // Filas con el contenido aún en Base64, recorridas por id para migrarlas por lotes
+    List<DocumentoContenido> findByContenidoBase64IsNotNullAndIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    // Solo la codificación, sin leer el contenido
+    @Query("select c.codificacion from DocumentoContenido c where c.id = :id")
+    String obtenerCodificacion(@Param("id") Long id);
+
+    // Borra sin cargar el contenido en memoria
+    @Modifying
+    @Query("delete from DocumentoContenido c where c.id = :id")
+    int eliminarPorDocumento(@Param("id") Long id);
+
+    // Con @Lob, Hibernate guarda en contenido_base64 el oid de un large object y
+    // no el texto; el valor crudo de la columna es la referencia a liberar
+    @Query(value = "SELECT contenido_base64 FROM gestdoc_ow.documento_contenido WHERE documento_id = :id", nativeQuery = true)
+    String obtenerReferenciaContenidoBase64(@Param("id") Long id);
+
+    @Query(value = "SELECT lo_unlink(oid) FROM pg_largeobject_metadata WHERE oid = CAST(:oid AS oid)", nativeQuery = true)
+    List<Integer> liberarLargeObject(@Param("oid") Long oid);
+}
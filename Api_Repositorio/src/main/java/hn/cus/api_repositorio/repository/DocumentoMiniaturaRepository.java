@@ -0,0 +1,36 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.repository;
+
+import hn.cus.api_repositorio.entity.DocumentoMiniatura;
+import hn.cus.api_repositorio.entity.DocumentoMiniaturaId;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ *
+ * @author EG490082
+ */
+public interface DocumentoMiniaturaRepository extends JpaRepository<DocumentoMiniatura, DocumentoMiniaturaId> {
+
+    // Documentos de un tipo renderizable sin miniatura o con una de un contenido
+    // anterior (anteriores a las miniaturas, con la cola llena o con una versión nueva)
+    @Query(value = "SELECT d.id FROM gestdoc_ow.documentos d WHERE d.tipo_mime IN (:tipos) "
+            + "AND NOT EXISTS (SELECT 1 FROM gestdoc_ow.documento_miniatura m WHERE m.documento_id = d.id "
+            + "AND m.tipo = 'MINIATURA' AND m.hash_origen IS NOT DISTINCT FROM d.hash_contenido) "
+            + "ORDER BY d.id LIMIT :limite", nativeQuery = true)
+    List<Long> buscarSinGenerar(@Param("tipos") Collection<String> tipos, @Param("limite") int limite);
+
+    @Query("select m.hashBlob from DocumentoMiniatura m where m.id.documentoId = :documentoId and m.hashBlob is not null")
+    List<String> buscarHashesBlob(@Param("documentoId") Long documentoId);
+
+    @Modifying
+    @Query("delete from DocumentoMiniatura m where m.id.documentoId = :documentoId")
+    int eliminarPorDocumento(@Param("documentoId") Long documentoId);
+}
@@ -11,14 +11,57 @@ import hn.cus.api_repositorio.entity.DocumentoWorkflow;
 import hn.cus.api_repositorio.entity.Metadata;
 import hn.cus.api_repositorio.entity.Workflow;
 import hn.cus.api_repositorio.entity.WorkflowEtapa;
+import hn.cus.api_repositorio.dto.DocumentoResponseDTO;
+import jakarta.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 /**
  *
  * @author EG490082
  */
-public interface DocumentoRepository extends JpaRepository<Documento, Long> {
+public interface DocumentoRepository extends JpaRepository<Documento, Long>, DocumentoRepositoryCustom {
     List<Documento> findByCreadoPor_Id(Long id);
+
+    // Serializa las escrituras de un mismo documento, como una versión nueva
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from Documento d where d.id = :id")
+    Optional<Documento> bloquearPorId(@Param("id") Long id);
+
+    @Query("select d.id from Documento d where d.id in :ids")
+    List<Long> buscarIdsExistentes(@Param("ids") Collection<Long> ids);
+
+    // Archivos físicos anteriores al almacén por contenido, recorridos por id
+    List<Documento> findByHashContenidoIsNullAndRutaArchivoStartingWithAndIdGreaterThanOrderByIdAsc(
+            String prefijo, Long id, Pageable pageable);
+
+    @Modifying
+    @Query("update Documento d set d.hashContenido = :hash, d.rutaArchivo = :ruta where d.id = :id")
+    int asignarBlob(@Param("id") Long id, @Param("hash") String hash, @Param("ruta") String rutaArchivo);
+
+    @Modifying
+    @Query("update Documento d set d.rutaArchivo = :nueva where d.hashContenido = :hash and d.rutaArchivo = :anterior")
+    int actualizarRutaArchivo(@Param("hash") String hash,
+                              @Param("anterior") String anterior,
+                              @Param("nueva") String nueva);
+
+    // Proyecciones para los endpoints de metadatos: una sola consulta, sin
+    // contenido ni las relaciones EAGER de la entidad
+    @Query("select new hn.cus.api_repositorio.dto.DocumentoResponseDTO(d.id, d.nombreOriginal, d.tipoMime, "
+            + "d.rutaArchivo, d.publico, u.username, d.fechaCreacion, d.idTarea) "
+            + "from Documento d left join d.creadoPor u order by d.id")
+    List<DocumentoResponseDTO> listarResumen();
+
+    @Query("select new hn.cus.api_repositorio.dto.DocumentoResponseDTO(d.id, d.nombreOriginal, d.tipoMime, "
+            + "d.rutaArchivo, d.publico, u.username, d.fechaCreacion, d.idTarea) "
+            + "from Documento d left join d.creadoPor u where d.id = :id")
+    Optional<DocumentoResponseDTO> buscarResumenPorId(@Param("id") Long id);
 }
 
@@ -0,0 +1,27 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.repository;
+
+import hn.cus.api_repositorio.dto.DocumentoResponseDTO;
+import hn.cus.api_repositorio.dto.FiltroDocumentoDTO;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Consultas de documentos que se arman según los filtros recibidos.
+ * @author EG490082
+ */
+public interface DocumentoRepositoryCustom {
+
+    /**
+     * Documentos ordenados por (fechaCreacion, id) descendente, a partir del
+     * último elemento de la página anterior (keyset). Con desdeFecha null
+     * empieza por el más reciente.
+     */
+    List<DocumentoResponseDTO> listarPagina(FiltroDocumentoDTO filtro, LocalDateTime desdeFecha, Long desdeId, int limite);
+
+    /** Documentos que cumplen la consulta de metadatos, con el mismo orden y keyset que listarPagina */
+    List<DocumentoResponseDTO> buscarPorMetadatos(ConsultaMetadatos consulta, LocalDateTime desdeFecha, Long desdeId, int limite);
+}
@@ -0,0 +1,163 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.repository;
+
+import hn.cus.api_repositorio.dto.DocumentoResponseDTO;
+import hn.cus.api_repositorio.dto.FiltroDocumentoDTO;
+import hn.cus.api_repositorio.entity.Documento;
+import hn.cus.api_repositorio.entity.Usuario;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author EG490082
+ */
+public class DocumentoRepositoryImpl implements DocumentoRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<DocumentoResponseDTO> listarPagina(FiltroDocumentoDTO filtro, LocalDateTime desdeFecha, Long desdeId, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DocumentoResponseDTO> query = cb.createQuery(DocumentoResponseDTO.class);
+        Root<Documento> d = query.from(Documento.class);
+        Join<Documento, Usuario> u = d.join("creadoPor", JoinType.LEFT);
+
+        // Solo se agregan los filtros recibidos, para que cada combinación use su índice
+        List<Predicate> condiciones = new ArrayList<>();
+        if (filtro.getCreadoPor() != null) {
+            condiciones.add(cb.equal(d.get("creadoPor").get("id"), filtro.getCreadoPor()));
+        }
+        if (filtro.getTipoMime() != null) {
+            condiciones.add(cb.equal(d.get("tipoMime"), filtro.getTipoMime()));
+        }
+        if (filtro.getIdTarea() != null) {
+            condiciones.add(cb.equal(d.get("idTarea"), filtro.getIdTarea()));
+        }
+        if (filtro.getPublico() != null) {
+            condiciones.add(cb.equal(d.get("publico"), filtro.getPublico()));
+        }
+        if (desdeFecha != null) {
+            // fecha <= :f acota el recorrido del índice; el OR desempata por id
+            // dentro de la misma fecha
+            condiciones.add(cb.lessThanOrEqualTo(d.get("fechaCreacion"), desdeFecha));
+            condiciones.add(cb.or(
+                    cb.lessThan(d.get("fechaCreacion"), desdeFecha),
+                    cb.lessThan(d.get("id"), desdeId)));
+        }
+
+        query.select(cb.construct(DocumentoResponseDTO.class,
+                        d.get("id"), d.get("nombreOriginal"), d.get("tipoMime"), d.get("rutaArchivo"),
+                        d.get("publico"), u.get("username"), d.get("fechaCreacion"), d.get("idTarea")))
+                .where(condiciones.toArray(new Predicate[0]))
+                .orderBy(cb.desc(d.get("fechaCreacion")), cb.desc(d.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limite)
+                .getResultList();
+    }
+
+    @Override
+    public List<DocumentoResponseDTO> buscarPorMetadatos(ConsultaMetadatos consulta, LocalDateTime desdeFecha, Long desdeId, int limite) {
+        // Primero el conjunto completo de coincidencias y después el orden y el
+        // límite: ordenar y filtrar juntos lleva a PostgreSQL a recorrer todos
+        // los documentos por fecha cuando las condiciones coinciden con pocos
+        List<Object> parametros = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+                "WITH coincidentes AS MATERIALIZED (SELECT d.id, d.fecha_creacion FROM gestdoc_ow.documentos d WHERE ");
+        predicadoMetadatos(consulta, "d.id", sql, parametros);
+        sql.append(") SELECT d.id, d.nombre_original, d.tipo_mime, d.ruta_archivo, d.publico, u.username, d.fecha_creacion, d.id_tarea "
+                + "FROM (SELECT c.id FROM coincidentes c");
+        if (desdeFecha != null) {
+            sql.append(" WHERE c.fecha_creacion < :desdeFecha OR (c.fecha_creacion = :desdeFecha AND c.id < :desdeId)");
+        }
+        sql.append(" ORDER BY c.fecha_creacion DESC, c.id DESC LIMIT :limite) pagina "
+                + "JOIN gestdoc_ow.documentos d ON d.id = pagina.id "
+                + "LEFT JOIN gestdoc_ow.usuarios u ON u.id = d.creado_por "
+                + "ORDER BY d.fecha_creacion DESC, d.id DESC");
+
+        Query query = entityManager.createNativeQuery(sql.toString());
+        for (int i = 0; i < parametros.size(); i++) {
+            query.setParameter("p" + i, parametros.get(i));
+        }
+        if (desdeFecha != null) {
+            query.setParameter("desdeFecha", desdeFecha);
+            query.setParameter("desdeId", desdeId);
+        }
+        query.setParameter("limite", limite);
+
+        List<DocumentoResponseDTO> documentos = new ArrayList<>();
+        for (Object fila : query.getResultList()) {
+            Object[] c = (Object[]) fila;
+            documentos.add(new DocumentoResponseDTO(((Number) c[0]).longValue(), (String) c[1], (String) c[2],
+                    (String) c[3], (Boolean) c[4], (String) c[5],
+                    c[6] instanceof Timestamp fecha ? fecha.toLocalDateTime() : (LocalDateTime) c[6],
+                    c[7] != null ? ((Number) c[7]).longValue() : null));
+        }
+        return documentos;
+    }
+
+    // Cada condición es un IN sobre los documento_id de un recorrido de
+    // idx_metadata_clave_valor_documento (o del índice numérico); con AND son
+    // semi-joins y PostgreSQL empieza por la condición más selectiva y
+    // comprueba las demás en el índice. OR es la UNION de sus partes.
+    // Ver db/012_indices_metadata.sql
+    private void predicadoMetadatos(ConsultaMetadatos consulta, String columna, StringBuilder sql, List<Object> parametros) {
+        if (consulta instanceof ConsultaMetadatos.Grupo grupo && grupo.todas()) {
+            for (int i = 0; i < grupo.partes().size(); i++) {
+                sql.append(i == 0 ? "(" : " AND ");
+                predicadoMetadatos(grupo.partes().get(i), columna, sql, parametros);
+            }
+            sql.append(")");
+            return;
+        }
+        sql.append(columna).append(" IN (");
+        conjuntoDocumentos(consulta, sql, parametros);
+        sql.append(")");
+    }
+
+    private void conjuntoDocumentos(ConsultaMetadatos consulta, StringBuilder sql, List<Object> parametros) {
+        if (consulta instanceof ConsultaMetadatos.Grupo grupo) {
+            if (grupo.todas()) {
+                // AND dentro de un OR: los documentos que cumplen todas las partes
+                String alias = "d" + parametros.size();
+                sql.append("SELECT ").append(alias).append(".id FROM gestdoc_ow.documentos ").append(alias).append(" WHERE ");
+                predicadoMetadatos(grupo, alias + ".id", sql, parametros);
+                return;
+            }
+            for (int i = 0; i < grupo.partes().size(); i++) {
+                sql.append(i == 0 ? "(" : " UNION (");
+                conjuntoDocumentos(grupo.partes().get(i), sql, parametros);
+                sql.append(")");
+            }
+            return;
+        }
+        ConsultaMetadatos.Condicion condicion = (ConsultaMetadatos.Condicion) consulta;
+        String operador = condicion.operador().equals("!=") ? "<>" : condicion.operador();
+        sql.append("SELECT m.documento_id FROM gestdoc_ow.metadata m WHERE m.clave = :p").append(parametros.size());
+        parametros.add(condicion.clave());
+        if (condicion.numerica()) {
+            sql.append(" AND gestdoc_ow.metadato_numerico(m.valor) ").append(operador).append(" :p").append(parametros.size());
+            parametros.add(new BigDecimal(condicion.valor()));
+        } else {
+            sql.append(" AND m.valor ").append(operador).append(" :p").append(parametros.size());
+            parametros.add(condicion.valor());
+        }
+    }
+}
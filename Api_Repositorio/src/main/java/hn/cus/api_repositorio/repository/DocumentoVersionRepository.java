@@ -4,14 +4,16 @@
  */
 package hn.cus.api_repositorio.repository;
 
-import hn.cus.api_repositorio.entity.AuditLog;
+import hn.cus.api_repositorio.dto.DocumentoVersionDTO;
 import hn.cus.api_repositorio.entity.DocumentoVersion;
-import hn.cus.api_repositorio.entity.DocumentoWorkflow;
-import hn.cus.api_repositorio.entity.Metadata;
-import hn.cus.api_repositorio.entity.Workflow;
-import hn.cus.api_repositorio.entity.WorkflowEtapa;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 /**
  *
@@ -19,5 +21,71 @@ import org.springframework.data.jpa.repository.JpaRepository;
  */
 public interface DocumentoVersionRepository extends JpaRepository<DocumentoVersion, Long> {
     List<DocumentoVersion> findByDocumento_Id(Long documentoId);
-}
 
+    Optional<DocumentoVersion> findFirstByDocumento_IdOrderByVersionDesc(Long documentoId);
+
+    Optional<DocumentoVersion> findByDocumento_IdAndVersion(Long documentoId, Integer version);
+
+    // Historial sin leer el contenido: de datos solo se mide la longitud
+    String SELECT_DTO = "select new hn.cus.api_repositorio.dto.DocumentoVersionDTO(v.documento.id, v.version, "
+            + "v.nombreOriginal, v.tipoMime, v.tamano, v.hashContenido, v.almacenamiento, v.versionBase, "
+            + "cast(sql('octet_length(?)', v.datos) as Long), u.username, v.fechaCreacion) "
+            + "from DocumentoVersion v left join v.creadoPor u ";
+
+    // Más recientes primero, desde la versión anterior a desdeVersion
+    @Query(SELECT_DTO + "where v.documento.id = :documentoId and v.version < :desdeVersion order by v.version desc")
+    List<DocumentoVersionDTO> listarPagina(@Param("documentoId") Long documentoId,
+                                           @Param("desdeVersion") Integer desdeVersion,
+                                           Pageable pageable);
+
+    @Query(SELECT_DTO + "where v.documento.id = :documentoId and v.version = :version")
+    Optional<DocumentoVersionDTO> buscarResumen(@Param("documentoId") Long documentoId, @Param("version") Integer version);
+
+    // Lo que la retención necesita de cada versión, sin el contenido:
+    // version, fechaCreacion, almacenamiento, versionBase, tamano y el hash si es un blob
+    @Query("select v.version, v.fechaCreacion, v.almacenamiento, v.versionBase, v.tamano, "
+            + "case when v.almacenamiento = 'COMPLETA' and v.datos is null then v.hashContenido end "
+            + "from DocumentoVersion v where v.documento.id = :documentoId order by v.version")
+    List<Object[]> listarParaRetencion(@Param("documentoId") Long documentoId);
+
+    // Documentos con más versiones de las que se conservan siempre, recorridos por id
+    @Query("select v.documento.id from DocumentoVersion v where v.documento.id > :desdeId "
+            + "group by v.documento.id having count(v) > :minimo order by v.documento.id")
+    List<Long> buscarDocumentosConVersionesDeMas(@Param("desdeId") Long desdeId,
+                                                 @Param("minimo") long minimo,
+                                                 Pageable pageable);
+
+    // Bloquea solo las versiones del documento, no la fila de documentos
+    @Query(value = "SELECT id FROM gestdoc_ow.documento_version WHERE documento_id = :documentoId FOR UPDATE",
+           nativeQuery = true)
+    List<Long> bloquearVersiones(@Param("documentoId") Long documentoId);
+
+    @Modifying
+    @Query("delete from DocumentoVersion v where v.documento.id = :documentoId and v.version in :versiones")
+    int eliminarVersiones(@Param("documentoId") Long documentoId, @Param("versiones") Collection<Integer> versiones);
+
+    @Query("select max(v.version) from DocumentoVersion v "
+            + "where v.documento.id = :documentoId and v.almacenamiento = 'COMPLETA'")
+    Integer ultimaVersionCompleta(@Param("documentoId") Long documentoId);
+
+    // Desde la última versión completa anterior hasta la pedida: lo necesario
+    // para reconstruirla aplicando los deltas en orden
+    @Query("select v from DocumentoVersion v where v.documento.id = :documentoId and v.version <= :version "
+            + "and v.version >= (select coalesce(max(c.version), 0) from DocumentoVersion c "
+            + "where c.documento.id = :documentoId and c.version <= :version and c.almacenamiento = 'COMPLETA') "
+            + "order by v.version")
+    List<DocumentoVersion> buscarCadena(@Param("documentoId") Long documentoId, @Param("version") Integer version);
+
+    // Versiones completas que guardan su contenido como referencia a un blob
+    @Query("select v.hashContenido from DocumentoVersion v where v.documento.id = :documentoId "
+            + "and v.almacenamiento = 'COMPLETA' and v.datos is null and v.hashContenido is not null")
+    List<String> buscarHashesBlob(@Param("documentoId") Long documentoId);
+
+    @Modifying
+    @Query("delete from DocumentoVersion v where v.documento.id = :documentoId")
+    int eliminarPorDocumento(@Param("documentoId") Long documentoId);
+
+    @Modifying
+    @Query("update DocumentoVersion v set v.rutaArchivo = :nueva where v.hashContenido = :hash and v.rutaArchivo = :anterior")
+    int actualizarRutaArchivo(@Param("hash") String hash, @Param("anterior") String anterior, @Param("nueva") String nueva);
+}
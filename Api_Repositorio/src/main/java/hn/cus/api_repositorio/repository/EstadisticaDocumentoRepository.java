@@ -0,0 +1,43 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.repository;
+
+import hn.cus.api_repositorio.entity.EstadisticaDocumento;
+import hn.cus.api_repositorio.entity.EstadisticaDocumentoId;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ *
+ * @author EG490082
+ */
+public interface EstadisticaDocumentoRepository extends JpaRepository<EstadisticaDocumento, EstadisticaDocumentoId> {
+
+    // Los cinco contadores de un documento en una sola sentencia. Las filas van
+    // siempre en el mismo orden, así dos transacciones no se bloquean en cruz
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO gestdoc_ow.estadistica_documento AS e (dimension, clave, documentos, bytes) "
+            + "VALUES ('TOTAL', '', :documentos, :bytes), "
+            + "('USUARIO', :usuario, :documentos, :bytes), "
+            + "('TIPO_MIME', :tipoMime, :documentos, :bytes), "
+            + "('TAREA', :tarea, :documentos, :bytes), "
+            + "('DIA', :dia, :documentos, :bytes) "
+            + "ON CONFLICT (dimension, clave) DO UPDATE "
+            + "SET documentos = e.documentos + EXCLUDED.documentos, bytes = e.bytes + EXCLUDED.bytes",
+            nativeQuery = true)
+    int acumular(@Param("usuario") String usuario,
+                 @Param("tipoMime") String tipoMime,
+                 @Param("tarea") String tarea,
+                 @Param("dia") String dia,
+                 @Param("documentos") long documentos,
+                 @Param("bytes") long bytes);
+
+    List<EstadisticaDocumento> findByIdDimensionOrderByIdClaveAsc(String dimension);
+}
@@ -0,0 +1,76 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.repository;
+
+import hn.cus.api_repositorio.entity.IndiceBusqueda;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ *
+ * @author EG490082
+ */
+public interface IndiceBusquedaRepository extends JpaRepository<IndiceBusqueda, Long> {
+
+    // Nombre, metadatos y comentarios se toman de sus tablas en la misma
+    // sentencia; el contenido extraído llega de la aplicación
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO gestdoc_ow.indice_busqueda "
+            + "(documento_id, nombre, metadatos, comentarios, contenido, fecha_actualizacion) "
+            + "SELECT d.id, d.nombre_original, "
+            + "(SELECT string_agg(m.clave || ' ' || coalesce(m.valor, ''), ' ') FROM gestdoc_ow.metadata m WHERE m.documento_id = d.id), "
+            + "(SELECT string_agg(c.comentario, ' ') FROM gestdoc_ow.documento_comentarios c WHERE c.documento_id = d.id), "
+            + "CAST(:contenido AS TEXT), CURRENT_TIMESTAMP "
+            + "FROM gestdoc_ow.documentos d WHERE d.id = :id "
+            + "ON CONFLICT (documento_id) DO UPDATE SET nombre = EXCLUDED.nombre, metadatos = EXCLUDED.metadatos, "
+            + "comentarios = EXCLUDED.comentarios, contenido = EXCLUDED.contenido, "
+            + "fecha_actualizacion = EXCLUDED.fecha_actualizacion", nativeQuery = true)
+    int indexar(@Param("id") Long id, @Param("contenido") String contenido);
+
+    // Solo los comentarios, sin volver a extraer el contenido. 0 si el documento aún no está indexado
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE gestdoc_ow.indice_busqueda SET "
+            + "comentarios = (SELECT string_agg(c.comentario, ' ') FROM gestdoc_ow.documento_comentarios c "
+            + "WHERE c.documento_id = :id), fecha_actualizacion = CURRENT_TIMESTAMP "
+            + "WHERE documento_id = :id", nativeQuery = true)
+    int actualizarComentarios(@Param("id") Long id);
+
+    // Solo los metadatos, tras una carga masiva
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE gestdoc_ow.indice_busqueda i SET "
+            + "metadatos = (SELECT string_agg(m.clave || ' ' || coalesce(m.valor, ''), ' ') FROM gestdoc_ow.metadata m "
+            + "WHERE m.documento_id = i.documento_id), fecha_actualizacion = CURRENT_TIMESTAMP "
+            + "WHERE i.documento_id IN (:ids)", nativeQuery = true)
+    int actualizarMetadatos(@Param("ids") Collection<Long> ids);
+
+    // Documentos sin fila en el índice (anteriores a la búsqueda o con error al indexar)
+    @Query(value = "SELECT d.id FROM gestdoc_ow.documentos d "
+            + "WHERE NOT EXISTS (SELECT 1 FROM gestdoc_ow.indice_busqueda i WHERE i.documento_id = d.id) "
+            + "ORDER BY d.id LIMIT :limite", nativeQuery = true)
+    List<Long> buscarSinIndexar(@Param("limite") int limite);
+
+    // Solo se calcula el fragmento de las filas de la página: ts_headline
+    // vuelve a analizar el texto y es la parte cara de la consulta
+    @Query(value = "SELECT d.id, d.nombre_original, d.tipo_mime, d.tamano, d.fecha_creacion, r.relevancia, "
+            + "ts_headline('spanish', concat_ws(' ', i.metadatos, i.comentarios, left(i.contenido, 20000)), q, "
+            + "'MaxFragments=2, MaxWords=20, MinWords=5') "
+            + "FROM (SELECT i.documento_id, ts_rank_cd(i.vector, q) AS relevancia "
+            + "      FROM gestdoc_ow.indice_busqueda i, websearch_to_tsquery('spanish', :texto) q "
+            + "      WHERE i.vector @@ q ORDER BY relevancia DESC, i.documento_id DESC "
+            + "      LIMIT :limite OFFSET :desde) r "
+            + "JOIN gestdoc_ow.indice_busqueda i ON i.documento_id = r.documento_id "
+            + "JOIN gestdoc_ow.documentos d ON d.id = r.documento_id "
+            + "CROSS JOIN websearch_to_tsquery('spanish', :texto) q "
+            + "ORDER BY r.relevancia DESC, d.id DESC", nativeQuery = true)
+    List<Object[]> buscar(@Param("texto") String texto, @Param("desde") int desde, @Param("limite") int limite);
+}
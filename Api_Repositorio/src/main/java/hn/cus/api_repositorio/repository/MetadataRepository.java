@@ -11,6 +11,8 @@ import hn.cus.api_repositorio.entity.Workflow;
 import hn.cus.api_repositorio.entity.WorkflowEtapa;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 /**
  *
@@ -18,5 +20,26 @@ import org.springframework.data.jpa.repository.JpaRepository;
  */
 public interface MetadataRepository extends JpaRepository<Metadata, Long> {
     List<Metadata> findByDocumento_Id(Long documentoId);
+
+    // Todo el lote en una sentencia: cada posición de documentos/claves/valores
+    // es un par a escribir. Solo se insertan las claves nuevas y se actualizan
+    // las que cambian de valor (ON CONFLICT ... WHERE); en los documentos de
+    // reemplazar se borran además las claves que no vienen. Devuelve solo los
+    // cambios: (documento_id, clave, valor, AGREGADA|MODIFICADA|ELIMINADA).
+    // xmax = 0 distingue una fila insertada de una actualizada
+    @Query(value = "WITH entrada AS (SELECT * FROM unnest(CAST(:documentos AS BIGINT[]), CAST(:claves AS TEXT[]), "
+            + "CAST(:valores AS TEXT[])) WITH ORDINALITY AS e(documento_id, clave, valor, orden)), "
+            + "eliminadas AS (DELETE FROM gestdoc_ow.metadata m WHERE m.documento_id = ANY(CAST(:reemplazar AS BIGINT[])) "
+            + "AND NOT EXISTS (SELECT 1 FROM entrada e WHERE e.documento_id = m.documento_id AND e.clave = m.clave) "
+            + "RETURNING m.documento_id, m.clave, CAST(NULL AS TEXT) AS valor, 'ELIMINADA' AS cambio), "
+            + "escritas AS (INSERT INTO gestdoc_ow.metadata AS m (id, documento_id, clave, valor) "
+            + "SELECT nextval('gestdoc_ow.metadata_id_seq'), e.documento_id, e.clave, e.valor FROM entrada e ORDER BY e.orden "
+            + "ON CONFLICT (documento_id, clave) DO UPDATE SET valor = EXCLUDED.valor "
+            + "WHERE m.valor IS DISTINCT FROM EXCLUDED.valor "
+            + "RETURNING m.documento_id, m.clave, CAST(m.valor AS TEXT), "
+            + "CASE WHEN m.xmax = 0 THEN 'AGREGADA' ELSE 'MODIFICADA' END) "
+            + "SELECT * FROM eliminadas UNION ALL SELECT * FROM escritas", nativeQuery = true)
+    List<Object[]> escribirLote(@Param("documentos") Long[] documentos, @Param("claves") String[] claves,
+                                @Param("valores") String[] valores, @Param("reemplazar") Long[] reemplazar);
 }
 
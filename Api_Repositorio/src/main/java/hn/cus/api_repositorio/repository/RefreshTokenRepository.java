@@ -0,0 +1,45 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.repository;
+
+import hn.cus.api_repositorio.entity.RefreshToken;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ *
+ * @author EG490082
+ */
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    @Query("select r from RefreshToken r join fetch r.usuario where r.hash = :hash")
+    Optional<RefreshToken> buscarPorHash(@Param("hash") String hash);
+
+    // Marca el uso solo si no se había usado: de dos renovaciones simultáneas con el mismo token gana una
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update RefreshToken r set r.fechaUso = :fecha where r.id = :id and r.fechaUso is null")
+    int marcarUsado(@Param("id") Long id, @Param("fecha") LocalDateTime fecha);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken r where r.hash = :hash")
+    int eliminarPorHash(@Param("hash") String hash);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken r where r.usuario.id = :usuarioId")
+    int eliminarPorUsuario(@Param("usuarioId") Long usuarioId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken r where r.fechaExpiracion < :fecha")
+    int eliminarExpirados(@Param("fecha") LocalDateTime fecha);
+}
@@ -0,0 +1,33 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.repository;
+
+import hn.cus.api_repositorio.entity.SesionSubida;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ *
+ * @author EG490082
+ */
+public interface SesionSubidaRepository extends JpaRepository<SesionSubida, String> {
+
+    List<SesionSubida> findByFechaActualizacionBefore(LocalDateTime limite);
+
+    // Avanza el offset solo si nadie lo movió desde que se leyó la sesión
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update SesionSubida s set s.bytesRecibidos = :nuevo, s.fechaActualizacion = :fecha "
+            + "where s.id = :id and s.bytesRecibidos = :anterior")
+    int avanzarOffset(@Param("id") String id,
+                      @Param("anterior") Long anterior,
+                      @Param("nuevo") Long nuevo,
+                      @Param("fecha") LocalDateTime fecha);
+}
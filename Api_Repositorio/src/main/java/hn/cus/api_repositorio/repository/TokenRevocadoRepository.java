@@ -0,0 +1,39 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.repository;
+
+import hn.cus.api_repositorio.entity.TokenRevocado;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ *
+ * @author EG490082
+ */
+public interface TokenRevocadoRepository extends JpaRepository<TokenRevocado, Long> {
+
+    // Revocaciones vigentes, para cargar el filtro de Bloom al arrancar
+    List<TokenRevocado> findByFechaExpiracionAfter(LocalDateTime fecha);
+
+    // Revocaciones recientes, también las hechas por otras instancias
+    List<TokenRevocado> findByFechaRevocacionAfter(LocalDateTime fecha);
+
+    // Confirmación de un positivo del filtro para un token concreto (jti)
+    boolean existsByClave(String clave);
+
+    // Confirmación de un positivo del filtro para un usuario: revocado después
+    // del segundo de emisión del token (iat no guarda milisegundos)
+    boolean existsByClaveAndFechaRevocacionGreaterThan(String clave, LocalDateTime emision);
+
+    @Transactional
+    @Modifying
+    @Query("delete from TokenRevocado t where t.fechaExpiracion < :fecha")
+    int eliminarExpirados(@Param("fecha") LocalDateTime fecha);
+}
@@ -10,11 +10,23 @@ package hn.cus.api_repositorio.repository;
  */
 
 import hn.cus.api_repositorio.entity.*;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     Optional<Usuario> findByUsername(String username);
+
+    // Solo el id, sin cargar roles ni permisos
+    @Query("select u.id from Usuario u where u.username = :username")
+    Optional<Long> buscarIdPorUsername(@Param("username") String username);
+
+    // Pares (rol, permiso) del usuario en una sola consulta; permiso es null en roles sin permisos
+    @Query("select r.nombre, p.nombre from Usuario u join u.roles r left join r.permisos p "
+            + "where u.username = :username")
+    List<Object[]> buscarRolesYPermisos(@Param("username") String username);
 }
 
 
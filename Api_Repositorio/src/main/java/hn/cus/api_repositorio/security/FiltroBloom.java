@@ -0,0 +1,100 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom de claves de texto, seguro entre hilos. puedeContener no da
+ * falsos negativos: si devuelve false la clave nunca se agregó; si devuelve
+ * true hay que confirmarlo en la base de datos. Con la capacidad prevista la
+ * tasa de falsos positivos es la indicada al crearlo.
+ * @author EG490082
+ */
+public class FiltroBloom {
+
+    private final AtomicLongArray bits;
+    private final long numBits;
+    private final int numHashes;
+    private final int capacidad;
+    private final AtomicInteger agregadas = new AtomicInteger();
+
+    public FiltroBloom(int capacidad, double falsosPositivos) {
+        if (capacidad <= 0 || falsosPositivos <= 0 || falsosPositivos >= 1) {
+            throw new IllegalArgumentException("Capacidad o tasa de falsos positivos inválida");
+        }
+        // m = -n ln p / (ln 2)^2 bits, k = m/n ln 2 funciones hash
+        long m = (long) Math.ceil(-capacidad * Math.log(falsosPositivos) / (Math.log(2) * Math.log(2)));
+        this.numBits = Math.max(64, (m + 63) / 64 * 64);
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacidad * Math.log(2)));
+        this.bits = new AtomicLongArray((int) (numBits / 64));
+        this.capacidad = capacidad;
+    }
+
+    public void agregar(String clave) {
+        long[] h = hashes(clave);
+        boolean nueva = false;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(h[0] + i * h[1], numBits);
+            int palabra = (int) (bit >>> 6);
+            long mascara = 1L << bit;
+            long actual;
+            do {
+                actual = bits.get(palabra);
+                if ((actual & mascara) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(palabra, actual, actual | mascara));
+            nueva |= (actual & mascara) == 0;
+        }
+        // Volver a agregar una clave no cambia ningún bit y no se cuenta
+        if (nueva) {
+            agregadas.incrementAndGet();
+        }
+    }
+
+    public boolean puedeContener(String clave) {
+        long[] h = hashes(clave);
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(h[0] + i * h[1], numBits);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Claves distintas agregadas (aproximado); por encima de la capacidad sube la tasa de falsos positivos
+    public int getAgregadas() {
+        return agregadas.get();
+    }
+
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    public long getTamanoBytes() {
+        return numBits / 8;
+    }
+
+    // Doble hashing (Kirsch-Mitzenmacher): FNV-1a de 64 bits mezclado con dos semillas
+    private static long[] hashes(String clave) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : clave.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return new long[] { mezclar(h), mezclar(h + 0x9e3779b97f4a7c15L) | 1 };
+    }
+
+    // Finalizador de SplitMix64
+    private static long mezclar(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
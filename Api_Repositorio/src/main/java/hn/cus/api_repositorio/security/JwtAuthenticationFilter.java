@@ -4,13 +4,18 @@
  */
 package hn.cus.api_repositorio.security;
 
+import hn.cus.api_repositorio.security.JwtUtil.TokenVerificado;
+import hn.cus.api_repositorio.service.TokenRevocacionService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -18,9 +23,14 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- *
+ * Autentica cada petición con el token JWT, verificado una sola vez (JwtUtil
+ * guarda los ya verificados). Los roles y permisos salen de los claims
+ * firmados y la revocación (logout, usuario desactivado) se comprueba en
+ * memoria, sin consultar la base de datos.
  * @author EG490082
  */
 @Component
@@ -32,33 +42,46 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private TokenRevocacionService tokenRevocacionService;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
+        TokenVerificado token = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
             try {
-                username = jwtUtil.extraerUsername(jwt);
+                token = jwtUtil.verificar(authorizationHeader.substring(7));
+                if (tokenRevocacionService.estaRevocado(token)) {
+                    logger.warn("Token JWT revocado de " + token.username());
+                    token = null;
+                }
             } catch (Exception e) {
-                logger.error("Error al extraer username del token JWT", e);
+                logger.error("Error al validar el token JWT: " + e.getMessage());
+                token = null;
             }
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-
-            if (jwtUtil.validarToken(jwt, userDetails)) {
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+        if (token != null && token.username() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails;
+            if (token.roles() != null) {
+                List<GrantedAuthority> authorities = new ArrayList<>();
+                token.roles().forEach(rol -> authorities.add(new SimpleGrantedAuthority("ROLE_" + rol)));
+                token.permisos().forEach(permiso -> authorities.add(new SimpleGrantedAuthority(permiso)));
+                userDetails = new User(token.username(), "", authorities);
+            } else {
+                // Token emitido antes de llevar roles en los claims
+                userDetails = this.userDetailsService.loadUserByUsername(token.username());
             }
+
+            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    userDetails, null, userDetails.getAuthorities());
+            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
         }
 
         filterChain.doFilter(request, response);
@@ -11,35 +11,115 @@ package hn.cus.api_repositorio.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
+    // Claims propios: id del usuario y nombres de sus roles y permisos al emitir el token
+    private static final String CLAIM_USUARIO_ID = "uid";
+    private static final String CLAIM_ROLES = "roles";
+    private static final String CLAIM_PERMISOS = "permisos";
+
+    /**
+     * Contenido de un token con firma y expiración ya comprobadas. id (jti),
+     * roles y permisos son null en tokens emitidos antes de incluirlos
+     */
+    public record TokenVerificado(String id, String username, Long usuarioId, List<String> roles,
+                                  List<String> permisos, Date emision, Date expiracion) {}
+
+    @Value("${app.jwt.cache-maximo:10000}")
+    private int cacheMaximo;
+
+    // Tokens ya verificados por hash SHA-256, hasta su expiración: las
+    // peticiones siguientes con el mismo token no vuelven a comprobar la firma
+    private Map<String, TokenVerificado> verificados;
+
+    @PostConstruct
+    public void init() {
+        verificados = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenVerificado> mayor) {
+                return size() > cacheMaximo;
+            }
+        });
+    }
+
     private final String SECRET_KEY = "clave-super-secreta-segura-para-jwt-token-generation";
     private final SecretKey key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
 
-    // Duración del token (5 horas)
-    private final long JWT_EXPIRATION_MS = 1000 * 60 * 60 * 5;
+    // Duración del token de acceso: corta, la sesión se prolonga con el refresh token
+    @Value("${app.jwt.acceso-minutos:15}")
+    private long accesoMinutos;
 
-    // Generar token
-    public String generarToken(String username) {
+    // Generar token con id, roles y permisos firmados, para autenticar sin consultar la base de datos
+    public String generarToken(String username, Long usuarioId, Collection<String> roles, Collection<String> permisos) {
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(username)
+                .claim(CLAIM_USUARIO_ID, usuarioId)
+                .claim(CLAIM_ROLES, List.copyOf(roles))
+                .claim(CLAIM_PERMISOS, List.copyOf(permisos))
                 .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + JWT_EXPIRATION_MS))
+                .setExpiration(new Date(System.currentTimeMillis() + getAccesoMs()))
                 .signWith(key)
                 .compact();
     }
 
+    // Verificar firma y expiración una sola vez por token; lanza JwtException si no es válido
+    public TokenVerificado verificar(String token) {
+        String hash = hash(token);
+        TokenVerificado verificado = verificados.get(hash);
+        if (verificado != null) {
+            if (verificado.expiracion().after(new Date())) {
+                return verificado;
+            }
+            verificados.remove(hash);
+        }
+
+        Claims claims = extraerTodosLosClaims(token);
+        // La revocación de un usuario se guarda durante una vigencia de token de
+        // acceso: un token más largo (los de 5 horas de antes de los refresh
+        // tokens) volvería a ser válido al borrarse la revocación. El margen
+        // cubre el redondeo a segundos de iat y exp
+        if (claims.getIssuedAt() == null || claims.getExpiration() == null
+                || claims.getExpiration().getTime() - claims.getIssuedAt().getTime() > getAccesoMs() + 1000) {
+            throw new JwtException("Token con una vigencia mayor que la de los tokens de acceso");
+        }
+        Number usuarioId = claims.get(CLAIM_USUARIO_ID, Number.class);
+        verificado = new TokenVerificado(claims.getId(), claims.getSubject(),
+                usuarioId != null ? usuarioId.longValue() : null,
+                lista(claims.get(CLAIM_ROLES)), lista(claims.get(CLAIM_PERMISOS)),
+                claims.getIssuedAt(), claims.getExpiration());
+        verificados.put(hash, verificado);
+        return verificado;
+    }
+
+    // Vigencia de los tokens de acceso en milisegundos
+    public long getAccesoMs() {
+        return accesoMinutos * 60 * 1000;
+    }
+
     // Obtener username desde el token
     public String extraerUsername(String token) {
-        return extraerClaim(token, Claims::getSubject);
+        return verificar(token).username();
     }
 
     // Obtener fecha de expiración
@@ -49,13 +129,8 @@ public class JwtUtil {
 
     // Validar token
     public boolean validarToken(String token, org.springframework.security.core.userdetails.UserDetails userDetails) {
-        final String username = extraerUsername(token);
-        return (username.equals(userDetails.getUsername()) && !estaExpirado(token));
-    }
-
-    // Verificar si expiró
-    private boolean estaExpirado(String token) {
-        return extraerExpiracion(token).before(new Date());
+        TokenVerificado verificado = verificar(token);
+        return verificado.username().equals(userDetails.getUsername()) && verificado.expiracion().after(new Date());
     }
 
     // Extraer claims genéricos
@@ -81,13 +156,32 @@ public class JwtUtil {
         return null;
     }
 
-    // Obtener ID de usuario desde el token (asumiendo que el subject es el ID)
+    // Obtener ID de usuario desde el token (claim uid; en tokens anteriores, el subject)
     public Long getUserIdFromToken(String token) {
+        TokenVerificado verificado = verificar(token);
+        if (verificado.usuarioId() != null) {
+            return verificado.usuarioId();
+        }
         try {
-            String userIdString = extraerUsername(token);
-            return Long.parseLong(userIdString);
+            return Long.parseLong(verificado.username());
         } catch (NumberFormatException e) {
             throw new IllegalArgumentException("Token no contiene un ID de usuario válido");
         }
     }
+
+    private static List<String> lista(Object claim) {
+        if (!(claim instanceof Collection<?> valores)) {
+            return null;
+        }
+        return valores.stream().map(String::valueOf).toList();
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.security;
+
+import hn.cus.api_repositorio.exception.ServicioSaturadoException;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PasswordEncoder que ejecuta el hashing y la verificación (BCrypt) en un
+ * pool acotado en lugar del hilo de la petición: una ráfaga de logins no
+ * ocupa la CPU ni los hilos de Tomcat que atienden las descargas. Con el
+ * pool saturado, o si el resultado tarda más de esperaMaximaMs, se lanza
+ * ServicioSaturadoException (429). Mide la espera en cola y el tiempo de CPU
+ * de cada operación y publica un resumen periódico.
+ * @author EG490082
+ */
+public class PasswordEncoderAcotado implements PasswordEncoder {
+
+    private static final ThreadMXBean HILOS = ManagementFactory.getThreadMXBean();
+
+    private final PasswordEncoder delegado;
+    private final ThreadPoolTaskExecutor executor;
+    private final long esperaMaximaMs;
+
+    private final Medicion verificaciones = new Medicion();
+    private final Medicion codificaciones = new Medicion();
+    private final LongAdder rechazadas = new LongAdder();
+
+    public PasswordEncoderAcotado(PasswordEncoder delegado, ThreadPoolTaskExecutor executor, long esperaMaximaMs) {
+        this.delegado = delegado;
+        this.executor = executor;
+        this.esperaMaximaMs = esperaMaximaMs;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return ejecutar(codificaciones, () -> delegado.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return ejecutar(verificaciones, () -> delegado.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegado.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T ejecutar(Medicion medicion, Callable<T> operacion) {
+        long encolado = System.nanoTime();
+        Future<T> resultado;
+        try {
+            resultado = executor.submit(() -> {
+                long espera = System.nanoTime() - encolado;
+                long cpuInicial = HILOS.getCurrentThreadCpuTime();
+                try {
+                    return operacion.call();
+                } finally {
+                    medicion.registrar(espera, HILOS.getCurrentThreadCpuTime() - cpuInicial);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            rechazadas.increment();
+            throw new ServicioSaturadoException("Demasiadas solicitudes de autenticación, intente de nuevo en unos segundos", 1);
+        }
+
+        try {
+            return resultado.get(esperaMaximaMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Si aún está en cola se descarta; si ya empezó, termina sin nadie esperando
+            resultado.cancel(false);
+            rechazadas.increment();
+            throw new ServicioSaturadoException("Tiempo de espera agotado en la autenticación, intente de nuevo en unos segundos", 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            resultado.cancel(false);
+            throw new IllegalStateException("Interrumpido esperando el hash de la contraseña", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException("Error al procesar la contraseña: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.seguridad.bcrypt.resumen-ms:60000}")
+    public void publicarResumen() {
+        String verificacion = verificaciones.resumir();
+        String codificacion = codificaciones.resumir();
+        long rechazos = rechazadas.sumThenReset();
+        if (verificacion == null && codificacion == null && rechazos == 0) {
+            return;
+        }
+        System.out.println("BCrypt - verificaciones (login): " + (verificacion != null ? verificacion : "ninguna")
+                + "; hashes: " + (codificacion != null ? codificacion : "ninguno")
+                + "; rechazadas: " + rechazos
+                + "; en cola: " + executor.getThreadPoolExecutor().getQueue().size());
+    }
+
+    // Acumulados desde el último resumen
+    private static final class Medicion {
+        private final LongAdder operaciones = new LongAdder();
+        private final LongAdder esperaNs = new LongAdder();
+        private final LongAdder cpuNs = new LongAdder();
+        private final AtomicLong esperaMaximaNs = new AtomicLong();
+
+        void registrar(long espera, long cpu) {
+            operaciones.increment();
+            esperaNs.add(espera);
+            cpuNs.add(cpu);
+            esperaMaximaNs.accumulateAndGet(espera, Math::max);
+        }
+
+        String resumir() {
+            long total = operaciones.sumThenReset();
+            long espera = esperaNs.sumThenReset();
+            long cpu = cpuNs.sumThenReset();
+            long maxima = esperaMaximaNs.getAndSet(0);
+            if (total == 0) {
+                return null;
+            }
+            return String.format("%d, CPU media %.1f ms, espera media %.1f ms (máx. %.1f ms)",
+                    total, cpu / 1e6 / total, espera / 1e6 / total, maxima / 1e6);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.service;
+
+/**
+ *
+ * @author EG490082
+ */
+// AlmacenamientoBlobService.java
+
+import hn.cus.api_repositorio.entity.BlobAlmacenado;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+public interface AlmacenamientoBlobService {
+
+    /** Archivo recibido en el directorio temporal, con su SHA-256 ya calculado */
+    record ArchivoTemporal(Path ruta, String hash, long tamano) {}
+
+    ArchivoTemporal recibir(InputStream datos);
+    ArchivoTemporal desdeArchivo(Path archivo, String hashConocido);
+    /** Registra el archivo en el almacén; según tipoMime puede guardarse comprimido */
+    BlobAlmacenado almacenar(ArchivoTemporal archivo, String tipoMime);
+    void liberar(String hash);
+}
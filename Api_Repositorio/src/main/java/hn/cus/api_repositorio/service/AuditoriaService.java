@@ -0,0 +1,37 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.service;
+
+/**
+ *
+ * @author EG490082
+ */
+// AuditoriaService.java
+
+import hn.cus.api_repositorio.dto.AuditLogDTO;
+import hn.cus.api_repositorio.dto.FiltroAuditoriaDTO;
+import hn.cus.api_repositorio.dto.PaginaCursorDTO;
+
+public interface AuditoriaService {
+
+    String LOGIN = "LOGIN";
+    String LOGIN_FALLIDO = "LOGIN_FALLIDO";
+    String LOGOUT = "LOGOUT";
+    String SUBIDA = "SUBIDA";
+    String DESCARGA = "DESCARGA";
+    String ELIMINACION = "ELIMINACION";
+    String METADATOS = "METADATOS";
+    /** Resumen de los eventos que no cupieron en la cola */
+    String EVENTOS_DESCARTADOS = "AUDITORIA_DESCARTADOS";
+
+    /** Registra un evento del usuario autenticado; se escribe en segundo plano */
+    void registrar(String accion, String descripcion);
+    /** Registra un evento de un usuario dado (por ejemplo, en el login) */
+    void registrar(String username, String accion, String descripcion);
+    /** Página de eventos más recientes primero; cursor null pide la primera */
+    PaginaCursorDTO<AuditLogDTO> listarPagina(FiltroAuditoriaDTO filtro, String cursor, int limite);
+    /** Olvida el id en caché de un usuario; dentro de una transacción se aplica al confirmarla */
+    void invalidarUsuario(String username);
+}
@@ -1,17 +1,28 @@
 package hn.cus.api_repositorio.service;
 
-import hn.cus.api_repositorio.entity.Usuario;
-import hn.cus.api_repositorio.entity.Rol;
-import hn.cus.api_repositorio.entity.Permiso;
 import hn.cus.api_repositorio.repository.UsuarioRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.Set;
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Servicio para manejar la autorización basada en roles y permisos
+ * Servicio para manejar la autorización basada en roles y permisos.
+ * Los roles y permisos de cada usuario se cargan con una sola consulta y se
+ * guardan compilados (un bit por permiso) en una caché LRU acotada; los
+ * servicios que modifican roles o usuarios la invalidan al confirmar.
  */
 @Service
 public class AuthorizationService {
@@ -19,6 +30,33 @@ public class AuthorizationService {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Value("${app.permisos.cache-maximo:10000}")
+    private int cacheMaximo;
+
+    // Red de seguridad para cambios hechos fuera de la aplicación
+    @Value("${app.permisos.cache-ttl-ms:600000}")
+    private long cacheTtlMs;
+
+    private record PermisosCompilados(BitSet permisos, Set<String> roles, long cargado) {}
+
+    // Cada nombre de permiso recibe un bit fijo la primera vez que aparece
+    private final Map<String, Integer> indicePermisos = new ConcurrentHashMap<>();
+    private final List<String> nombresPermisos = new ArrayList<>();
+
+    private Map<String, PermisosCompilados> cache;
+    // Cambia en cada invalidación: una carga que empezó antes no se guarda
+    private long version = 0;
+
+    @PostConstruct
+    public void init() {
+        cache = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PermisosCompilados> mayor) {
+                return size() > cacheMaximo;
+            }
+        });
+    }
+
     /**
      * Verifica si un usuario tiene un permiso específico
      * @param username - Nombre de usuario
@@ -27,25 +65,10 @@ public class AuthorizationService {
      */
     public boolean hasPermission(String username, String permissionName) {
         try {
-            Usuario usuario = usuarioRepository.findByUsername(username)
-                    .orElse(null);
-            
-            if (usuario == null || usuario.getRoles() == null) {
-                return false;
-            }
-
-            // Verificar si algún rol del usuario tiene el permiso
-            for (Rol rol : usuario.getRoles()) {
-                if (rol.getPermisos() != null) {
-                    for (Permiso permiso : rol.getPermisos()) {
-                        if (permiso.getNombre().equals(permissionName)) {
-                            return true;
-                        }
-                    }
-                }
-            }
-            
-            return false;
+            PermisosCompilados compilados = obtener(username);
+            // Sin índice, ningún usuario compilado tiene ese permiso
+            Integer indice = indicePermisos.get(permissionName);
+            return indice != null && compilados.permisos().get(indice);
         } catch (Exception e) {
             System.err.println("Error verificando permiso: " + e.getMessage());
             return false;
@@ -60,20 +83,7 @@ public class AuthorizationService {
      */
     public boolean hasRole(String username, String roleName) {
         try {
-            Usuario usuario = usuarioRepository.findByUsername(username)
-                    .orElse(null);
-            
-            if (usuario == null || usuario.getRoles() == null) {
-                return false;
-            }
-
-            for (Rol rol : usuario.getRoles()) {
-                if (rol.getNombre().equals(roleName)) {
-                    return true;
-                }
-            }
-            
-            return false;
+            return obtener(username).roles().contains(roleName);
         } catch (Exception e) {
             System.err.println("Error verificando rol: " + e.getMessage());
             return false;
@@ -89,17 +99,9 @@ public class AuthorizationService {
         Set<String> permissions = new HashSet<>();
         
         try {
-            Usuario usuario = usuarioRepository.findByUsername(username)
-                    .orElse(null);
-            
-            if (usuario != null && usuario.getRoles() != null) {
-                for (Rol rol : usuario.getRoles()) {
-                    if (rol.getPermisos() != null) {
-                        for (Permiso permiso : rol.getPermisos()) {
-                            permissions.add(permiso.getNombre());
-                        }
-                    }
-                }
+            BitSet permisos = obtener(username).permisos();
+            synchronized (nombresPermisos) {
+                permisos.stream().forEach(i -> permissions.add(nombresPermisos.get(i)));
             }
         } catch (Exception e) {
             System.err.println("Error obteniendo permisos: " + e.getMessage());
@@ -108,6 +110,106 @@ public class AuthorizationService {
         return permissions;
     }
 
+    /**
+     * Obtiene los nombres de los roles de un usuario
+     * @param username - Nombre de usuario
+     * @return Set de nombres de roles
+     */
+    public Set<String> getUserRoles(String username) {
+        try {
+            return obtener(username).roles();
+        } catch (Exception e) {
+            System.err.println("Error obteniendo roles: " + e.getMessage());
+            return Set.of();
+        }
+    }
+
+    /**
+     * Descarta los permisos en caché de un usuario; dentro de una transacción
+     * se aplica al confirmarla
+     * @param username - Nombre de usuario
+     */
+    public void invalidarUsuario(String username) {
+        alConfirmar(() -> {
+            synchronized (cache) {
+                version++;
+                cache.remove(username);
+            }
+        });
+    }
+
+    /**
+     * Descarta los permisos en caché de todos los usuarios (por ejemplo, al
+     * cambiar los permisos de un rol); dentro de una transacción se aplica al confirmarla
+     */
+    public void invalidarTodos() {
+        alConfirmar(() -> {
+            synchronized (cache) {
+                version++;
+                cache.clear();
+            }
+        });
+    }
+
+    private PermisosCompilados obtener(String username) {
+        if (username == null) {
+            return new PermisosCompilados(new BitSet(), Set.of(), 0);
+        }
+        PermisosCompilados compilados = cache.get(username);
+        if (compilados != null && System.currentTimeMillis() - compilados.cargado() < cacheTtlMs) {
+            return compilados;
+        }
+        long versionInicial;
+        synchronized (cache) {
+            versionInicial = version;
+        }
+        compilados = compilar(username);
+        synchronized (cache) {
+            if (version == versionInicial) {
+                cache.put(username, compilados);
+            }
+        }
+        return compilados;
+    }
+
+    private PermisosCompilados compilar(String username) {
+        BitSet permisos = new BitSet();
+        Set<String> roles = new HashSet<>();
+        for (Object[] fila : usuarioRepository.buscarRolesYPermisos(username)) {
+            roles.add((String) fila[0]);
+            if (fila[1] != null) {
+                permisos.set(indicePermiso((String) fila[1]));
+            }
+        }
+        return new PermisosCompilados(permisos, Set.copyOf(roles), System.currentTimeMillis());
+    }
+
+    private int indicePermiso(String nombre) {
+        Integer indice = indicePermisos.get(nombre);
+        if (indice != null) {
+            return indice;
+        }
+        synchronized (nombresPermisos) {
+            return indicePermisos.computeIfAbsent(nombre, n -> {
+                nombresPermisos.add(n);
+                return nombresPermisos.size() - 1;
+            });
+        }
+    }
+
+    private static void alConfirmar(Runnable invalidacion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidacion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidacion.run();
+            }
+        });
+    }
+
     /**
      * Verifica si un usuario puede gestionar roles (tiene permiso MANAGE_ROLES)
      * @param username - Nombre de usuario
@@ -0,0 +1,37 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.service;
+
+/**
+ *
+ * @author EG490082
+ */
+// BusquedaService.java
+
+import hn.cus.api_repositorio.dto.PaginaCursorDTO;
+import hn.cus.api_repositorio.dto.ResultadoBusquedaDTO;
+import hn.cus.api_repositorio.entity.Documento;
+import java.util.Collection;
+import java.util.List;
+
+public interface BusquedaService {
+
+    /** Indexa el documento en segundo plano cuando la transacción actual confirma */
+    void indexarAlConfirmar(Documento doc);
+    void indexarAlConfirmar(List<Documento> docs);
+    /** Vuelve a indexar los comentarios del documento cuando la transacción actual confirma */
+    void actualizarComentariosAlConfirmar(Long documentoId);
+    /** Vuelve a indexar los metadatos de los documentos cuando la transacción actual confirma */
+    void actualizarMetadatosAlConfirmar(Collection<Long> documentoIds);
+    /** Indexa un lote de documentos que aún no están en el índice; devuelve cuántos */
+    int indexarPendientes();
+    /** Tarea programada: lanza indexarPendientes en el pool de indexación si no hay ya un lote en curso */
+    void programarPendientes();
+    /**
+     * Documentos que coinciden con el texto, los más relevantes primero. Admite
+     * la sintaxis de los buscadores web: "frase exacta", OR y -excluir
+     */
+    PaginaCursorDTO<ResultadoBusquedaDTO> buscar(String texto, String cursor, int limite);
+}
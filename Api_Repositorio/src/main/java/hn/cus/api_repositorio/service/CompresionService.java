@@ -0,0 +1,35 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.service;
+
+/**
+ *
+ * @author EG490082
+ */
+// CompresionService.java
+
+import java.io.InputStream;
+import java.nio.file.Path;
+
+public interface CompresionService {
+
+    /** Codificación usada al guardar; coincide con el valor HTTP de Content-Encoding */
+    String GZIP = "gzip";
+
+    /** Contenido tal como se guarda y su codificación (null si va sin comprimir) */
+    record ContenidoCodificado(byte[] datos, String codificacion) {}
+
+    /** Codificación para un contenido nuevo según su tipo y tamaño, o null para guardarlo tal cual */
+    String elegirCodificacion(String tipoMime, long tamano);
+    /** Comprime el contenido si su tipo lo aconseja y el ahorro compensa; si no, lo devuelve sin cambios */
+    ContenidoCodificado codificar(byte[] datos, String tipoMime);
+    byte[] decodificar(byte[] datos, String codificacion);
+    InputStream decodificar(InputStream datos, String codificacion);
+    /** Escribe en destino el archivo origen comprimido y devuelve el tamaño resultante */
+    long comprimirArchivo(Path origen, Path destino, String codificacion);
+    boolean compensa(long tamanoOriginal, long tamanoComprimido);
+    /** Extensión de los archivos guardados con esa codificación ("" si van sin comprimir) */
+    String sufijo(String codificacion);
+}
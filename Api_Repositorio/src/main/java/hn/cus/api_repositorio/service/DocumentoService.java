@@ -12,15 +12,47 @@ package hn.cus.api_repositorio.service;
 
 import hn.cus.api_repositorio.entity.Documento;
 import hn.cus.api_repositorio.dto.DocumentoBase64Request;
+import hn.cus.api_repositorio.dto.DocumentoResponseDTO;
+import hn.cus.api_repositorio.dto.FiltroDocumentoDTO;
+import hn.cus.api_repositorio.dto.PaginaCursorDTO;
+import hn.cus.api_repositorio.service.AlmacenamientoBlobService.ArchivoTemporal;
+import hn.cus.api_repositorio.service.CompresionService.ContenidoCodificado;
 import org.springframework.web.multipart.MultipartFile;
 import java.util.List;
 
 public interface DocumentoService {
+
+    /** Archivo de un lote ya preparado: contenido para la base de datos o archivo temporal en disco */
+    record ArchivoLote(String nombreOriginal, String tipoMime, long tamano,
+                       ContenidoCodificado contenido, ArchivoTemporal archivo) {}
+
     Documento guardarDocumento(MultipartFile archivo, Long usuarioId);
     Documento guardarDocumentoBase64(MultipartFile archivo, Long usuarioId, String comentario, Long idTarea);
     Documento guardarDocumentoBase64(DocumentoBase64Request request);
+    Documento guardarDocumentoDesdeArchivo(ArchivoTemporal archivo, String nombreOriginal, String tipoMime, Long usuarioId, Long idTarea);
+    /** Guarda todos los archivos en una transacción; devuelve los documentos en el mismo orden */
+    List<Documento> guardarDocumentosLote(List<ArchivoLote> archivos, Long usuarioId, Long idTarea);
+    /** Sustituye el contenido del documento por el del archivo, que se mueve o se borra; lo usa DocumentoVersionService */
+    void reemplazarContenido(Documento doc, ArchivoTemporal archivo, String nombreOriginal, String tipoMime);
     List<Documento> listarTodos();
+    /** Metadatos de todos los documentos, sin cargar entidades ni contenido */
+    List<DocumentoResponseDTO> listarResumen();
+    DocumentoResponseDTO obtenerResumenPorId(Long id);
+    /** Página de documentos más recientes primero; cursor null pide la primera */
+    PaginaCursorDTO<DocumentoResponseDTO> listarPagina(FiltroDocumentoDTO filtro, String cursor, int limite);
+    /**
+     * Página de documentos, más recientes primero, que cumplen una consulta de
+     * metadatos (ver ConsultaMetadatos). Lanza IllegalArgumentException si no es válida
+     */
+    PaginaCursorDTO<DocumentoResponseDTO> buscarPorMetadatos(String consulta, String cursor, int limite);
+    long contarDocumentos();
     Documento obtenerPorId(Long id);
+    /** Bytes del documento guardado en la base de datos, o null si está en disco */
+    byte[] obtenerContenido(Documento doc);
+    /** Contenido guardado en la base de datos tal como está almacenado, sin descomprimir */
+    ContenidoCodificado obtenerContenidoCodificado(Documento doc);
+    /** Codificación con la que está guardado el contenido (gzip), o null si está sin comprimir */
+    String obtenerCodificacion(Documento doc);
     boolean existeDocumento(Long id);
     void eliminar(Long id);
 }
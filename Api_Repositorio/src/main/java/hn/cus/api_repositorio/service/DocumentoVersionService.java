@@ -0,0 +1,49 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.service;
+
+/**
+ *
+ * @author EG490082
+ */
+// DocumentoVersionService.java
+
+import hn.cus.api_repositorio.dto.DocumentoVersionDTO;
+import hn.cus.api_repositorio.dto.PaginaCursorDTO;
+import org.springframework.web.multipart.MultipartFile;
+import java.io.InputStream;
+
+public interface DocumentoVersionService {
+
+    /**
+     * Guarda el archivo como versión nueva del documento, que pasa a tener ese
+     * contenido. La versión se guarda como delta contra la anterior cuando
+     * ocupa bastante menos, y entera cada app.versiones.completa-cada
+     * versiones. El contenido que tenía el documento queda como versión 1.
+     * Si el archivo es igual a la versión actual no se crea otra y se
+     * devuelve esa. Lanza IllegalArgumentException si el documento o el
+     * usuario no existen o el archivo está vacío
+     */
+    DocumentoVersionDTO crearVersion(Long documentoId, MultipartFile archivo, Long usuarioId);
+    /** Contenido entero de una versión, reconstruido desde la versión completa anterior */
+    byte[] obtenerContenidoVersion(Long documentoId, int version);
+    /** Página de versiones, más recientes primero, sin leer su contenido; cursor null pide la primera */
+    PaginaCursorDTO<DocumentoVersionDTO> listarVersiones(Long documentoId, String cursor, int limite);
+    /** Lanza IllegalArgumentException si el documento no tiene esa versión */
+    DocumentoVersionDTO obtenerVersion(Long documentoId, int version);
+    /**
+     * Contenido de una versión para enviarlo. Una versión entera en el almacén
+     * de blobs se lee del archivo sin cargarla en memoria; un delta se
+     * reconstruye (los deltas solo se guardan hasta app.versiones.delta.bytes-maximos)
+     */
+    InputStream abrirContenidoVersion(Long documentoId, int version);
+    /**
+     * Elimina las versiones del documento que no conserva la política: las
+     * ultimas más recientes y la última de cada uno de los meses más recientes.
+     * Las que quedan y dependían de una eliminada se vuelven a codificar.
+     * Devuelve cuántas eliminó
+     */
+    int aplicarRetencion(Long documentoId, int ultimas, int meses);
+}
@@ -0,0 +1,32 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.service;
+
+/**
+ *
+ * @author EG490082
+ */
+// EstadisticaDocumentoService.java
+
+import hn.cus.api_repositorio.dto.EstadisticaDocumentoDTO;
+import hn.cus.api_repositorio.entity.Documento;
+import java.util.List;
+
+public interface EstadisticaDocumentoService {
+
+    String TOTAL = "TOTAL";
+    String USUARIO = "USUARIO";
+    String TIPO_MIME = "TIPO_MIME";
+    String TAREA = "TAREA";
+    String DIA = "DIA";
+
+    void registrarAlta(Documento doc);
+    /** Alta de varios documentos, agrupados para actualizar cada contador una sola vez */
+    void registrarAltas(List<Documento> docs);
+    void registrarBaja(Documento doc);
+    /** Contadores de una dimensión, o de todas si dimension es null */
+    List<EstadisticaDocumentoDTO> obtener(String dimension);
+    long totalDocumentos();
+}
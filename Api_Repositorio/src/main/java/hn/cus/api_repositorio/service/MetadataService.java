@@ -0,0 +1,25 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.service;
+
+/**
+ *
+ * @author EG490082
+ */
+// MetadataService.java
+
+import hn.cus.api_repositorio.dto.CambiosMetadatosDTO;
+import hn.cus.api_repositorio.dto.MetadatosDocumentoRequest;
+import java.util.List;
+
+public interface MetadataService {
+
+    /**
+     * Agrega, actualiza y (con reemplazar) elimina metadatos de varios
+     * documentos en una transacción. Devuelve solo los documentos con cambios.
+     * Lanza IllegalArgumentException si el lote no es válido
+     */
+    List<CambiosMetadatosDTO> escribirLote(List<MetadatosDocumentoRequest> lote);
+}
@@ -0,0 +1,17 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.service;
+
+/**
+ *
+ * @author EG490082
+ */
+// MigracionContenidoService.java
+
+public interface MigracionContenidoService {
+
+    /** Convierte un lote de filas de contenido_base64 a contenido_binario; devuelve cuántas migró */
+    int migrarLote();
+}
@@ -0,0 +1,20 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.service;
+
+/**
+ *
+ * @author EG490082
+ */
+// MigracionFanoutService.java
+
+public interface MigracionFanoutService {
+
+    /**
+     * Reubica un lote de archivos del directorio de uploads en la estructura
+     * de subdirectorios por hash y actualiza rutaArchivo; devuelve cuántos movió
+     */
+    int migrarLote();
+}
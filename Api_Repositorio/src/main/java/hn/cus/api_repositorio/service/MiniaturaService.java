@@ -0,0 +1,35 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.service;
+
+/**
+ *
+ * @author EG490082
+ */
+// MiniaturaService.java
+
+import hn.cus.api_repositorio.entity.Documento;
+import hn.cus.api_repositorio.entity.DocumentoMiniatura;
+import java.util.List;
+
+public interface MiniaturaService {
+
+    /** Genera la miniatura y la vista previa en segundo plano cuando la transacción actual confirma */
+    void generarAlConfirmar(Documento doc);
+    void generarAlConfirmar(List<Documento> docs);
+    /** Genera las de un lote de documentos que no las tienen o cuyo contenido cambió; devuelve cuántos */
+    int generarPendientes();
+    /** Tarea programada: lanza generarPendientes en el pool de miniaturas si no hay ya un lote en curso */
+    void programarPendientes();
+    /**
+     * Imagen del tipo pedido (DocumentoMiniatura.MINIATURA o VISTA_PREVIA) al
+     * día con el contenido del documento; si falta se genera en el momento.
+     * null si el tipo de archivo no se puede renderizar. Lanza
+     * IllegalArgumentException si el documento no existe
+     */
+    DocumentoMiniatura obtener(Long documentoId, String tipo);
+    /** Bytes JPEG de una imagen devuelta por obtener */
+    byte[] leer(DocumentoMiniatura miniatura);
+}
@@ -0,0 +1,21 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.service;
+
+/**
+ *
+ * @author EG490082
+ */
+// RetencionAuditoriaService.java
+
+public interface RetencionAuditoriaService {
+
+    /**
+     * Crea las particiones mensuales de audit_log de los próximos meses y
+     * elimina enteras las que quedan fuera del periodo de retención;
+     * devuelve cuántas particiones eliminó
+     */
+    int mantenerParticiones();
+}
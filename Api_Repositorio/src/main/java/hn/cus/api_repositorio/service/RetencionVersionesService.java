@@ -0,0 +1,21 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.service;
+
+/**
+ *
+ * @author EG490082
+ */
+// RetencionVersionesService.java
+
+public interface RetencionVersionesService {
+
+    /**
+     * Aplica la política de retención (app.versiones.retencion.*) a un lote de
+     * documentos con más versiones de las que se conservan siempre, cada uno
+     * en su propia transacción; devuelve cuántas versiones eliminó
+     */
+    int aplicarLote();
+}
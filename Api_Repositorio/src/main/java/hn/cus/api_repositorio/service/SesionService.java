@@ -0,0 +1,28 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.service;
+
+/**
+ *
+ * @author EG490082
+ */
+// SesionService.java
+
+import hn.cus.api_repositorio.dto.LoginResponse;
+
+public interface SesionService {
+
+    /** Emite el token de acceso y un refresh token para un usuario ya autenticado */
+    LoginResponse iniciarSesion(String username);
+    /**
+     * Canjea un refresh token por un token de acceso y un refresh token
+     * nuevos; el usado deja de servir. Lanza IllegalArgumentException si no es válido
+     */
+    LoginResponse renovar(String refreshToken);
+    /** Revoca el token de acceso y, si se indica, el refresh token de la sesión */
+    void cerrarSesion(String tokenAcceso, String refreshToken);
+    /** Revoca todas las sesiones de un usuario (desactivación, cambio de contraseña, baja) */
+    void revocarSesionesUsuario(Long usuarioId);
+}
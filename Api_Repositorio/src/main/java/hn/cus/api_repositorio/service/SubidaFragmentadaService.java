@@ -0,0 +1,24 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.service;
+
+/**
+ *
+ * @author EG490082
+ */
+// SubidaFragmentadaService.java
+
+import hn.cus.api_repositorio.dto.SesionSubidaDTO;
+import hn.cus.api_repositorio.dto.SesionSubidaRequest;
+import hn.cus.api_repositorio.entity.Documento;
+import java.io.InputStream;
+
+public interface SubidaFragmentadaService {
+    SesionSubidaDTO iniciarSesion(SesionSubidaRequest request);
+    SesionSubidaDTO obtenerSesion(String sesionId);
+    SesionSubidaDTO escribirFragmento(String sesionId, long offset, InputStream datos);
+    Documento completarSesion(String sesionId);
+    void cancelarSesion(String sesionId);
+}
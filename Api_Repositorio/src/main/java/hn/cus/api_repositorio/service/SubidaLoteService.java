@@ -0,0 +1,25 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.service;
+
+/**
+ *
+ * @author EG490082
+ */
+// SubidaLoteService.java
+
+import hn.cus.api_repositorio.dto.ResultadoSubidaDTO;
+import org.springframework.web.multipart.MultipartFile;
+import java.util.List;
+
+public interface SubidaLoteService {
+
+    /**
+     * Guarda varios archivos de una vez. Un archivo vacío o ilegible se rechaza
+     * en su resultado sin impedir guardar los demás; los válidos se insertan en
+     * una sola transacción, así que un error de base de datos no guarda ninguno
+     */
+    List<ResultadoSubidaDTO> subirLote(List<MultipartFile> archivos, Long usuarioId, Long idTarea);
+}
@@ -0,0 +1,27 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package hn.cus.api_repositorio.service;
+
+/**
+ *
+ * @author EG490082
+ */
+// TokenRevocacionService.java
+
+import hn.cus.api_repositorio.security.JwtUtil.TokenVerificado;
+import java.util.Date;
+
+public interface TokenRevocacionService {
+
+    /** Revoca un token de acceso concreto (logout) hasta su expiración */
+    void revocarToken(String tokenId, Date expiracion);
+    /** Revoca todos los tokens de acceso emitidos hasta ahora a un usuario */
+    void revocarUsuario(Long usuarioId);
+    /**
+     * Indica si un token verificado fue revocado. Se resuelve en memoria y
+     * solo consulta la base de datos cuando el filtro da positivo
+     */
+    boolean estaRevocado(TokenVerificado token);
+}
@@ -0,0 +1,249 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+/**
+ *
+ * @author EG490082
+ */
+
+import hn.cus.api_repositorio.config.FileStorageConfig;
+import hn.cus.api_repositorio.entity.BlobAlmacenado;
+import hn.cus.api_repositorio.repository.BlobAlmacenadoRepository;
+import hn.cus.api_repositorio.service.AlmacenamientoBlobService;
+import hn.cus.api_repositorio.service.CompresionService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+@Service
+public class AlmacenamientoBlobServiceImpl implements AlmacenamientoBlobService {
+
+    @Autowired private BlobAlmacenadoRepository blobAlmacenadoRepository;
+    @Autowired private FileStorageConfig fileStorageConfig;
+    @Autowired private CompresionService compresionService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public ArchivoTemporal recibir(InputStream datos) {
+        Path temporal = Paths.get(fileStorageConfig.getTmpDir()).resolve(UUID.randomUUID() + ".tmp");
+        MessageDigest digest = nuevoDigest();
+        try {
+            Files.createDirectories(temporal.getParent());
+            // El hash se calcula mientras el contenido se escribe, sin una segunda lectura
+            long tamano = Files.copy(new DigestInputStream(datos, digest), temporal);
+            return new ArchivoTemporal(temporal, HexFormat.of().formatHex(digest.digest()), tamano);
+        } catch (IOException e) {
+            borrarSilencioso(temporal);
+            throw new RuntimeException("Error al recibir el archivo: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ArchivoTemporal desdeArchivo(Path archivo, String hashConocido) {
+        try {
+            long tamano = Files.size(archivo);
+            if (hashConocido != null) {
+                return new ArchivoTemporal(archivo, hashConocido, tamano);
+            }
+            MessageDigest digest = nuevoDigest();
+            try (InputStream in = new DigestInputStream(Files.newInputStream(archivo), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            return new ArchivoTemporal(archivo, HexFormat.of().formatHex(digest.digest()), tamano);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al calcular el hash del archivo: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    @Transactional
+    public BlobAlmacenado almacenar(ArchivoTemporal archivo, String tipoMime) {
+        // Un blob ya registrado conserva su ruta y codificación; MigracionFanoutService lo reubica
+        String codificacion = compresionService.elegirCodificacion(tipoMime, archivo.tamano());
+        String ruta = fileStorageConfig.rutaBlob(archivo.hash()) + compresionService.sufijo(codificacion);
+        blobAlmacenadoRepository.registrarReferencia(archivo.hash(), ruta, archivo.tamano(), codificacion);
+        // Si la transacción ya tenía cargado este blob, su contador es el de antes
+        // del INSERT; se refresca solo esa fila, el resto del contexto sigue igual
+        BlobAlmacenado blob = blobAlmacenadoRepository.findById(archivo.hash()).orElseThrow();
+        entityManager.refresh(blob);
+
+        // Fila creada por esta llamada: si la transacción no confirma, el archivo
+        // que se deja en el almacén no tendría fila que lo referencie
+        boolean nueva = blob.getReferencias() == 1;
+
+        // La fila ya está bloqueada por esta transacción: si el archivo existe
+        // es el mismo contenido y no hace falta volver a escribirlo
+        Path destino = resolver(blob.getRutaArchivo());
+        Path comprimido = null;
+        try {
+            // Con una fila nueva, un archivo ya presente es de una subida que no
+            // confirmó y que lo va a borrar: se sustituye en lugar de reutilizarlo
+            if (!nueva && Files.exists(destino)) {
+                Files.deleteIfExists(archivo.ruta());
+                System.out.println("Contenido duplicado, se reutiliza el blob " + blob.getHash());
+                return blob;
+            }
+            Files.createDirectories(destino.getParent());
+            if (blob.getCodificacion() != null) {
+                comprimido = archivo.ruta().resolveSibling(
+                        archivo.ruta().getFileName() + compresionService.sufijo(blob.getCodificacion()));
+                long tamanoComprimido = compresionService.comprimirArchivo(archivo.ruta(), comprimido, blob.getCodificacion());
+                if (blob.getReferencias() > 1 || compresionService.compensa(archivo.tamano(), tamanoComprimido)) {
+                    mover(comprimido, destino, nueva);
+                    if (nueva) {
+                        borrarSiNoConfirma(destino);
+                    }
+                    Files.delete(archivo.ruta());
+                    System.out.println("Blob nuevo guardado comprimido (" + archivo.tamano() + " -> "
+                            + tamanoComprimido + " bytes): " + destino.toAbsolutePath());
+                    return blob;
+                }
+                // Fila recién creada por esta subida y nadie más apunta a su ruta:
+                // si comprimir no compensa todavía se puede guardar tal cual
+                Files.delete(comprimido);
+                blob.setCodificacion(null);
+                blob.setRutaArchivo(fileStorageConfig.rutaBlob(blob.getHash()));
+                destino = resolver(blob.getRutaArchivo());
+            }
+            mover(archivo.ruta(), destino, nueva);
+            if (nueva) {
+                borrarSiNoConfirma(destino);
+            }
+            System.out.println("Blob nuevo guardado: " + destino.toAbsolutePath());
+        } catch (FileAlreadyExistsException e) {
+            borrarSilencioso(archivo.ruta());
+            borrarSilencioso(comprimido);
+        } catch (IOException e) {
+            borrarSilencioso(comprimido);
+            throw new RuntimeException("Error al guardar el archivo: " + e.getMessage(), e);
+        }
+        return blob;
+    }
+
+    @Override
+    @Transactional
+    public void liberar(String hash) {
+        BlobAlmacenado blob = blobAlmacenadoRepository.bloquearPorHash(hash).orElse(null);
+        if (blob == null) {
+            return;
+        }
+        if (blob.getReferencias() > 1) {
+            blob.setReferencias(blob.getReferencias() - 1);
+            return;
+        }
+
+        blobAlmacenadoRepository.delete(blob);
+
+        // Con la fila bloqueada se aparta el archivo; se borra solo si la
+        // transacción confirma y se restaura si hace rollback
+        Path archivo = resolver(blob.getRutaArchivo());
+        Path apartado = archivo.resolveSibling(archivo.getFileName() + ".del");
+        try {
+            Files.move(archivo, apartado);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            throw new RuntimeException("Error al eliminar el archivo: " + e.getMessage(), e);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    borrarSilencioso(apartado);
+                    return;
+                }
+                try {
+                    Files.move(apartado, archivo);
+                } catch (FileAlreadyExistsException e) {
+                    // Otra subida ya repuso el mismo contenido
+                    borrarSilencioso(apartado);
+                } catch (IOException e) {
+                    System.err.println("No se pudo restaurar el blob " + hash + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    private static void mover(Path origen, Path destino, boolean reemplazar) throws IOException {
+        if (reemplazar) {
+            Files.move(origen, destino, StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.move(origen, destino);
+        }
+    }
+
+    // El inverso de liberar: el archivo de un blob nuevo solo se queda si su fila
+    // se confirma. Se borra solo si sigue siendo el mismo archivo, no el que otra
+    // subida del mismo contenido haya escrito después del rollback
+    private static void borrarSiNoConfirma(Path destino) throws IOException {
+        Object escrito = Files.readAttributes(destino, BasicFileAttributes.class).fileKey();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
+                try {
+                    Object actual = Files.readAttributes(destino, BasicFileAttributes.class).fileKey();
+                    if (escrito == null || escrito.equals(actual)) {
+                        System.out.println("Transacción sin confirmar, se elimina el blob nuevo " + destino);
+                        Files.deleteIfExists(destino);
+                    }
+                } catch (NoSuchFileException e) {
+                    // Ya no está
+                } catch (IOException e) {
+                    System.err.println("No se pudo eliminar " + destino + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    private Path resolver(String rutaRelativa) {
+        return Paths.get(fileStorageConfig.getUploadDir()).resolve(rutaRelativa);
+    }
+
+    private static MessageDigest nuevoDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static void borrarSilencioso(Path archivo) {
+        if (archivo == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            System.err.println("No se pudo eliminar " + archivo + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+/**
+ *
+ * @author EG490082
+ */
+
+import hn.cus.api_repositorio.dto.AuditLogDTO;
+import hn.cus.api_repositorio.dto.FiltroAuditoriaDTO;
+import hn.cus.api_repositorio.dto.PaginaCursorDTO;
+import hn.cus.api_repositorio.entity.AuditLog;
+import hn.cus.api_repositorio.repository.AuditLogRepository;
+import hn.cus.api_repositorio.repository.UsuarioRepository;
+import hn.cus.api_repositorio.service.AuditoriaService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Auditoría escrita en segundo plano: las peticiones solo dejan el evento en
+ * una cola acotada y un hilo lo inserta junto con otros en lotes JDBC, cuando
+ * se llena un lote o pasa el intervalo. Al detener la aplicación se escribe
+ * lo que quede en la cola.
+ */
+@Service
+public class AuditoriaServiceImpl implements AuditoriaService, SmartLifecycle {
+
+    // Con la cola llena se descartan sin esperar; el resto espera un poco
+    private static final Set<String> DESCARTABLES = Set.of(DESCARGA);
+    private static final int LONGITUD_DESCRIPCION = 255;
+    private static final int LIMITE_PAGINA_MAXIMO = 100;
+
+    private record Evento(String username, String accion, String descripcion, LocalDateTime fecha) {}
+
+    @Autowired private AuditLogRepository auditLogRepository;
+    @Autowired private UsuarioRepository usuarioRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Value("${app.auditoria.capacidad-cola:10000}")
+    private int capacidadCola;
+
+    @Value("${app.auditoria.tamano-lote:500}")
+    private int tamanoLote;
+
+    @Value("${app.auditoria.intervalo-ms:1000}")
+    private long intervaloMs;
+
+    @Value("${app.auditoria.espera-maxima-ms:100}")
+    private long esperaMaximaMs;
+
+    private BlockingQueue<Evento> cola;
+    private TransactionTemplate transaccion;
+    private final AtomicLong descartados = new AtomicLong();
+
+    // El hilo de la petición solo conoce el username; el id se resuelve al escribir
+    private final Map<String, Long> idsUsuario = new ConcurrentHashMap<>();
+
+    private volatile boolean activo = false;
+    private Thread escritor;
+
+    @PostConstruct
+    public void init() {
+        cola = new ArrayBlockingQueue<>(capacidadCola);
+        transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void registrar(String accion, String descripcion) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String username = auth != null && !(auth instanceof AnonymousAuthenticationToken) ? auth.getName() : null;
+        registrar(username, accion, descripcion);
+    }
+
+    @Override
+    public void registrar(String username, String accion, String descripcion) {
+        Evento evento = new Evento(username, accion, descripcion, LocalDateTime.now());
+        boolean encolado;
+        if (DESCARTABLES.contains(accion)) {
+            encolado = cola.offer(evento);
+        } else {
+            // Contrapresión acotada: la petición espera como mucho esperaMaximaMs
+            try {
+                encolado = cola.offer(evento, esperaMaximaMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                encolado = false;
+            }
+        }
+        if (!encolado) {
+            descartados.incrementAndGet();
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaCursorDTO<AuditLogDTO> listarPagina(FiltroAuditoriaDTO filtro, String cursor, int limite) {
+        if (limite < 1 || limite > LIMITE_PAGINA_MAXIMO) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + LIMITE_PAGINA_MAXIMO);
+        }
+        if (filtro.getDesde() != null && filtro.getHasta() != null && !filtro.getDesde().isBefore(filtro.getHasta())) {
+            throw new IllegalArgumentException("La fecha desde debe ser anterior a hasta");
+        }
+
+        LocalDateTime desdeFecha = null;
+        Long desdeId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            // El cursor es (fecha|id) del último evento de la página anterior
+            try {
+                String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                desdeFecha = LocalDateTime.parse(partes[0]);
+                desdeId = Long.valueOf(partes[1]);
+            } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+        }
+
+        List<AuditLogDTO> elementos = auditLogRepository.listarPagina(filtro, desdeFecha, desdeId, limite + 1);
+        boolean hayMas = elementos.size() > limite;
+        if (hayMas) {
+            elementos = elementos.subList(0, limite);
+        }
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            AuditLogDTO ultimo = elementos.get(elementos.size() - 1);
+            siguienteCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (ultimo.getFecha() + "|" + ultimo.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return new PaginaCursorDTO<>(elementos, siguienteCursor, hayMas);
+    }
+
+    @Override
+    public void start() {
+        activo = true;
+        escritor = new Thread(this::escribirEnSegundoPlano, "auditoria-escritor");
+        escritor.start();
+    }
+
+    @Override
+    public void stop() {
+        if (escritor == null) {
+            return;
+        }
+        activo = false;
+        try {
+            escritor.join(intervaloMs + 30_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Eventos que llegaron mientras el escritor terminaba
+        vaciarCola();
+        System.out.println("Escritor de auditoría detenido");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return activo;
+    }
+
+    // Fase menor que la del servidor web: se detiene después, con las peticiones ya atendidas
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void escribirEnSegundoPlano() {
+        List<Evento> lote = new ArrayList<>(tamanoLote);
+        while (activo) {
+            try {
+                Evento primero = cola.poll(intervaloMs, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                lote.add(primero);
+                // Se junta hasta completar el lote o cumplir el intervalo desde el primer evento
+                long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervaloMs);
+                while (lote.size() < tamanoLote) {
+                    cola.drainTo(lote, tamanoLote - lote.size());
+                    long restante = limite - System.nanoTime();
+                    if (lote.size() >= tamanoLote || restante <= 0) {
+                        break;
+                    }
+                    Evento siguiente = cola.poll(restante, TimeUnit.NANOSECONDS);
+                    if (siguiente == null) {
+                        break;
+                    }
+                    lote.add(siguiente);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                activo = false;
+            }
+            escribir(lote);
+            lote.clear();
+        }
+        vaciarCola();
+    }
+
+    private void vaciarCola() {
+        List<Evento> lote = new ArrayList<>(tamanoLote);
+        while (cola.drainTo(lote, tamanoLote) > 0) {
+            escribir(lote);
+            lote.clear();
+        }
+    }
+
+    private void escribir(List<Evento> eventos) {
+        long perdidos = descartados.getAndSet(0);
+        if (perdidos > 0) {
+            System.err.println("Auditoría: " + perdidos + " eventos descartados con la cola llena");
+            eventos.add(new Evento(null, EVENTOS_DESCARTADOS,
+                    perdidos + " eventos descartados con la cola llena", LocalDateTime.now()));
+        }
+        if (eventos.isEmpty()) {
+            return;
+        }
+        try {
+            transaccion.executeWithoutResult(estado ->
+                    auditLogRepository.saveAll(eventos.stream().map(this::aEntidad).toList()));
+        } catch (RuntimeException e) {
+            // Un evento con datos inválidos no debe hacer perder el lote completo
+            System.err.println("Error al escribir lote de auditoría, se reintenta uno a uno: " + e.getMessage());
+            for (Evento evento : eventos) {
+                try {
+                    transaccion.executeWithoutResult(estado -> auditLogRepository.save(aEntidad(evento)));
+                } catch (RuntimeException ex) {
+                    System.err.println("Evento de auditoría perdido (" + evento.accion() + "): " + ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private AuditLog aEntidad(Evento evento) {
+        String descripcion = evento.descripcion();
+        Long usuarioId = evento.username() != null ? resolverUsuario(evento.username()) : null;
+        if (usuarioId == null && evento.username() != null) {
+            // Usuario inexistente (por ejemplo, un login fallido): se conserva el nombre
+            descripcion = descripcion + " [usuario: " + evento.username() + "]";
+        }
+
+        AuditLog audit = new AuditLog();
+        audit.setAccion(evento.accion());
+        audit.setDescripcion(descripcion != null && descripcion.length() > LONGITUD_DESCRIPCION
+                ? descripcion.substring(0, LONGITUD_DESCRIPCION) : descripcion);
+        audit.setFecha(evento.fecha());
+        if (usuarioId != null) {
+            audit.setUsuario(usuarioRepository.getReferenceById(usuarioId));
+        }
+        return audit;
+    }
+
+    @Override
+    public void invalidarUsuario(String username) {
+        if (username == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            idsUsuario.remove(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                idsUsuario.remove(username);
+            }
+        });
+    }
+
+    private Long resolverUsuario(String username) {
+        Long id = idsUsuario.get(username);
+        if (id == null) {
+            id = usuarioRepository.buscarIdPorUsername(username).orElse(null);
+            if (id != null) {
+                idsUsuario.put(username, id);
+            }
+        }
+        return id;
+    }
+}
@@ -31,9 +31,11 @@ public class AuthServiceImpl implements AuthService {
         Usuario usuario = usuarioRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado: " + username));
 
+        // Un usuario desactivado no puede iniciar sesión (DisabledException)
         return new org.springframework.security.core.userdetails.User(
                 usuario.getUsername(),
                 usuario.getPassword(),
+                !Boolean.FALSE.equals(usuario.getActivo()), true, true, true,
                 usuario.getRoles().stream()
                         .map(rol -> new SimpleGrantedAuthority("ROLE_" + rol.getNombre()))
                         .collect(Collectors.toList())
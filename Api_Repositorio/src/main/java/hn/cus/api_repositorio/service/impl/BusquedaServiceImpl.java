@@ -0,0 +1,317 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+/**
+ *
+ * @author EG490082
+ */
+
+import hn.cus.api_repositorio.config.FileStorageConfig;
+import hn.cus.api_repositorio.dto.PaginaCursorDTO;
+import hn.cus.api_repositorio.dto.ResultadoBusquedaDTO;
+import hn.cus.api_repositorio.entity.BlobAlmacenado;
+import hn.cus.api_repositorio.entity.Documento;
+import hn.cus.api_repositorio.entity.DocumentoContenido;
+import hn.cus.api_repositorio.repository.BlobAlmacenadoRepository;
+import hn.cus.api_repositorio.repository.DocumentoContenidoRepository;
+import hn.cus.api_repositorio.repository.DocumentoRepository;
+import hn.cus.api_repositorio.repository.IndiceBusquedaRepository;
+import hn.cus.api_repositorio.service.BusquedaService;
+import hn.cus.api_repositorio.service.CompresionService;
+
+import jakarta.annotation.PostConstruct;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+public class BusquedaServiceImpl implements BusquedaService {
+
+    private static final int LIMITE_PAGINA_MAXIMO = 100;
+    private static final int LONGITUD_TEXTO_MAXIMA = 200;
+
+    @Autowired private IndiceBusquedaRepository indiceBusquedaRepository;
+    @Autowired private DocumentoRepository documentoRepository;
+    @Autowired private DocumentoContenidoRepository documentoContenidoRepository;
+    @Autowired private BlobAlmacenadoRepository blobAlmacenadoRepository;
+    @Autowired private CompresionService compresionService;
+    @Autowired private FileStorageConfig fileStorageConfig;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("indexacionExecutor")
+    private TaskExecutor indexacionExecutor;
+
+    // Archivos más grandes se indexan solo por nombre, metadatos y comentarios
+    @Value("${app.busqueda.contenido.bytes-maximos:20971520}")
+    private long bytesMaximos;
+
+    // Texto extraído conservado por documento (un tsvector no puede pasar de 1 MB)
+    @Value("${app.busqueda.contenido.caracteres-maximos:200000}")
+    private int caracteresMaximos;
+
+    @Value("${app.busqueda.contenido.paginas-pdf-maximas:200}")
+    private int paginasPdfMaximas;
+
+    @Value("${app.busqueda.reindexado-lote:100}")
+    private int tamanoLote;
+
+    private TransactionTemplate lectura;
+
+    private final AtomicBoolean pendientesEnCurso = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+    }
+
+    @Override
+    public void indexarAlConfirmar(Documento doc) {
+        alConfirmar(() -> indexacionExecutor.execute(() -> indexarSilencioso(doc)));
+    }
+
+    @Override
+    public void indexarAlConfirmar(List<Documento> docs) {
+        List<Documento> copia = List.copyOf(docs);
+        alConfirmar(() -> copia.forEach(doc -> indexacionExecutor.execute(() -> indexarSilencioso(doc))));
+    }
+
+    @Override
+    public void actualizarComentariosAlConfirmar(Long documentoId) {
+        alConfirmar(() -> indexacionExecutor.execute(() -> {
+            try {
+                if (indiceBusquedaRepository.actualizarComentarios(documentoId) == 0) {
+                    documentoRepository.findById(documentoId).ifPresent(this::indexarSilencioso);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Error al indexar los comentarios del documento " + documentoId + ": " + e.getMessage());
+            }
+        }));
+    }
+
+    @Override
+    public void actualizarMetadatosAlConfirmar(Collection<Long> documentoIds) {
+        if (documentoIds.isEmpty()) {
+            return;
+        }
+        // Los documentos aún sin indexar toman sus metadatos al indexarse
+        List<Long> ids = List.copyOf(documentoIds);
+        alConfirmar(() -> indexacionExecutor.execute(() -> {
+            try {
+                indiceBusquedaRepository.actualizarMetadatos(ids);
+            } catch (RuntimeException e) {
+                System.err.println("Error al indexar los metadatos de " + ids.size() + " documentos: " + e.getMessage());
+            }
+        }));
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${app.busqueda.reindexado-intervalo-ms:60000}",
+               fixedDelayString = "${app.busqueda.reindexado-intervalo-ms:60000}")
+    public void programarPendientes() {
+        // Extraer el texto de un lote de PDF puede tardar minutos y el planificador
+        // tiene un solo hilo para todas las tareas programadas: el lote va al pool
+        // de indexación, uno cada vez
+        if (!pendientesEnCurso.compareAndSet(false, true)) {
+            return;
+        }
+        Thread programador = Thread.currentThread();
+        indexacionExecutor.execute(() -> {
+            try {
+                // Con la cola llena (CallerRunsPolicy) se ejecutaría aquí mismo: se
+                // deja para la siguiente ejecución
+                if (Thread.currentThread() != programador) {
+                    indexarPendientes();
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Error al indexar documentos pendientes: " + e.getMessage());
+            } finally {
+                pendientesEnCurso.set(false);
+            }
+        });
+    }
+
+    @Override
+    public int indexarPendientes() {
+        List<Long> pendientes = indiceBusquedaRepository.buscarSinIndexar(tamanoLote);
+        int indexados = 0;
+        for (Long id : pendientes) {
+            Documento doc = documentoRepository.findById(id).orElse(null);
+            if (doc != null && indexarSilencioso(doc)) {
+                indexados++;
+            }
+        }
+        if (indexados > 0) {
+            System.out.println("Búsqueda: " + indexados + " documentos pendientes indexados");
+        }
+        return indexados;
+    }
+
+    @Override
+    public PaginaCursorDTO<ResultadoBusquedaDTO> buscar(String texto, String cursor, int limite) {
+        if (texto == null || texto.isBlank()) {
+            throw new IllegalArgumentException("El texto a buscar es obligatorio");
+        }
+        if (texto.length() > LONGITUD_TEXTO_MAXIMA) {
+            throw new IllegalArgumentException("El texto a buscar no puede superar " + LONGITUD_TEXTO_MAXIMA + " caracteres");
+        }
+        if (limite < 1 || limite > LIMITE_PAGINA_MAXIMO) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + LIMITE_PAGINA_MAXIMO);
+        }
+
+        // Los resultados van por relevancia, que no es única ni estable entre
+        // consultas: el cursor es la posición del siguiente resultado
+        int desde = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                desde = Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            if (desde < 0) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+        }
+
+        // Se pide un elemento de más para saber si hay otra página sin contar filas
+        List<Object[]> filas = indiceBusquedaRepository.buscar(texto.strip(), desde, limite + 1);
+        boolean hayMas = filas.size() > limite;
+        List<ResultadoBusquedaDTO> elementos = new ArrayList<>(Math.min(filas.size(), limite));
+        for (Object[] fila : filas.subList(0, Math.min(filas.size(), limite))) {
+            elementos.add(new ResultadoBusquedaDTO(
+                    ((Number) fila[0]).longValue(),
+                    (String) fila[1],
+                    (String) fila[2],
+                    fila[3] != null ? ((Number) fila[3]).longValue() : null,
+                    fila[4] instanceof Timestamp fecha ? fecha.toLocalDateTime() : (LocalDateTime) fila[4],
+                    ((Number) fila[5]).doubleValue(),
+                    (String) fila[6]));
+        }
+
+        String siguienteCursor = hayMas
+                ? Base64.getUrlEncoder().withoutPadding().encodeToString(
+                        String.valueOf(desde + limite).getBytes(StandardCharsets.UTF_8))
+                : null;
+        return new PaginaCursorDTO<>(elementos, siguienteCursor, hayMas);
+    }
+
+    // Un error al indexar no afecta a la subida ni al comentario, que ya
+    // están confirmados; el documento queda sin fila y lo recoge indexarPendientes
+    private boolean indexarSilencioso(Documento doc) {
+        try {
+            String contenido = null;
+            try {
+                contenido = extraerTexto(doc);
+            } catch (IOException | RuntimeException e) {
+                // Se indexa igualmente por nombre, metadatos y comentarios
+                System.err.println("No se pudo extraer el texto del documento " + doc.getId() + ": " + e.getMessage());
+            }
+            indiceBusquedaRepository.indexar(doc.getId(), contenido);
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("Error al indexar el documento " + doc.getId() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private String extraerTexto(Documento doc) throws IOException {
+        String tipoMime = doc.getTipoMime() != null ? doc.getTipoMime().toLowerCase() : "";
+        boolean pdf = tipoMime.equals("application/pdf");
+        boolean texto = tipoMime.startsWith("text/") || tipoMime.equals("application/json") || tipoMime.equals("application/xml");
+        if (!pdf && !texto) {
+            return null;
+        }
+        if (doc.getTamano() != null && doc.getTamano() > bytesMaximos) {
+            return null;
+        }
+        byte[] datos = leerContenido(doc);
+        if (datos == null) {
+            return null;
+        }
+
+        String extraido;
+        if (pdf) {
+            try (PDDocument documento = Loader.loadPDF(datos)) {
+                PDFTextStripper extractor = new PDFTextStripper();
+                extractor.setEndPage(paginasPdfMaximas);
+                extraido = extractor.getText(documento);
+            }
+        } else {
+            extraido = new String(datos, StandardCharsets.UTF_8);
+        }
+        // PostgreSQL no admite el carácter nulo en columnas de texto
+        extraido = extraido.replace('\u0000', ' ');
+        return extraido.length() > caracteresMaximos ? extraido.substring(0, caracteresMaximos) : extraido;
+    }
+
+    // Mismo origen que la descarga: la tabla de contenido o el archivo en disco, descomprimido
+    private byte[] leerContenido(Documento doc) throws IOException {
+        // En transacción por las filas antiguas, cuyo Base64 es un large object
+        DocumentoContenido contenido = lectura.execute(
+                estado -> documentoContenidoRepository.findById(doc.getId()).orElse(null));
+        if (contenido != null) {
+            if (contenido.getContenidoBinario() != null) {
+                return compresionService.decodificar(contenido.getContenidoBinario(), contenido.getCodificacion());
+            }
+            if (contenido.getContenidoBase64() != null && !contenido.getContenidoBase64().isEmpty()) {
+                return Base64.getDecoder().decode(contenido.getContenidoBase64());
+            }
+        }
+
+        if (doc.getRutaArchivo() == null || !doc.getRutaArchivo().startsWith("/uploads/")) {
+            return null;
+        }
+        Path archivo = Paths.get(fileStorageConfig.getUploadDir()).resolve(doc.getRutaArchivo().replace("/uploads/", ""));
+        String codificacion = doc.getHashContenido() != null
+                ? blobAlmacenadoRepository.findById(doc.getHashContenido()).map(BlobAlmacenado::getCodificacion).orElse(null)
+                : null;
+        try (InputStream in = compresionService.decodificar(Files.newInputStream(archivo), codificacion)) {
+            byte[] datos = in.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, bytesMaximos + 1));
+            return datos.length > bytesMaximos ? null : datos;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static void alConfirmar(Runnable tarea) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            tarea.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                tarea.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+/**
+ *
+ * @author EG490082
+ */
+
+import hn.cus.api_repositorio.service.CompresionService;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import jakarta.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+public class CompresionServiceImpl implements CompresionService {
+
+    private static final int BUFFER = 64 * 1024;
+
+    @Value("${app.compresion.habilitada:true}")
+    private boolean habilitada;
+
+    // Por debajo de este tamaño la cabecera gzip se come el ahorro
+    @Value("${app.compresion.tamano-minimo:1024}")
+    private long tamanoMinimo;
+
+    // Porcentaje mínimo de ahorro para guardar comprimido
+    @Value("${app.compresion.ahorro-minimo:10}")
+    private int ahorroMinimo;
+
+    @Value("${app.compresion.nivel:6}")
+    private int nivel;
+
+    @Value("${app.compresion.tipos-mime:text/*,application/xml,application/*+xml,application/json,application/*+json,image/tiff,image/bmp,application/msword,application/vnd.ms-excel,application/vnd.ms-powerpoint,application/rtf}")
+    private List<String> tiposMime;
+
+    private List<MimeType> tiposComprimibles;
+
+    @PostConstruct
+    public void init() {
+        if (nivel < 1 || nivel > 9) {
+            throw new IllegalStateException("app.compresion.nivel debe estar entre 1 y 9");
+        }
+        tiposComprimibles = tiposMime.stream().map(String::trim).map(MimeTypeUtils::parseMimeType).toList();
+    }
+
+    @Override
+    public String elegirCodificacion(String tipoMime, long tamano) {
+        if (!habilitada || tamano < tamanoMinimo || tipoMime == null) {
+            return null;
+        }
+        try {
+            MimeType tipo = MimeTypeUtils.parseMimeType(tipoMime);
+            return tiposComprimibles.stream().anyMatch(t -> t.includes(tipo)) ? GZIP : null;
+        } catch (InvalidMimeTypeException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public ContenidoCodificado codificar(byte[] datos, String tipoMime) {
+        String codificacion = elegirCodificacion(tipoMime, datos.length);
+        if (codificacion == null) {
+            return new ContenidoCodificado(datos, null);
+        }
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(datos.length / 2);
+        try (OutputStream gzip = nuevoGzip(salida)) {
+            gzip.write(datos);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al comprimir el contenido: " + e.getMessage(), e);
+        }
+        return compensa(datos.length, salida.size())
+                ? new ContenidoCodificado(salida.toByteArray(), codificacion)
+                : new ContenidoCodificado(datos, null);
+    }
+
+    @Override
+    public byte[] decodificar(byte[] datos, String codificacion) {
+        if (codificacion == null || datos == null) {
+            return datos;
+        }
+        try (InputStream in = decodificar(new ByteArrayInputStream(datos), codificacion)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new RuntimeException("Error al descomprimir el contenido: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream decodificar(InputStream datos, String codificacion) {
+        if (codificacion == null) {
+            return datos;
+        }
+        if (!GZIP.equals(codificacion)) {
+            throw new IllegalArgumentException("Codificación no soportada: " + codificacion);
+        }
+        try {
+            return new GZIPInputStream(datos, BUFFER);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al descomprimir el contenido: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long comprimirArchivo(Path origen, Path destino, String codificacion) {
+        if (!GZIP.equals(codificacion)) {
+            throw new IllegalArgumentException("Codificación no soportada: " + codificacion);
+        }
+        // Por flujos: el archivo nunca se carga entero en memoria
+        try {
+            try (InputStream in = Files.newInputStream(origen);
+                 OutputStream gzip = nuevoGzip(Files.newOutputStream(destino))) {
+                in.transferTo(gzip);
+            }
+            return Files.size(destino);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al comprimir el archivo: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean compensa(long tamanoOriginal, long tamanoComprimido) {
+        return tamanoComprimido * 100 <= tamanoOriginal * (100L - ahorroMinimo);
+    }
+
+    @Override
+    public String sufijo(String codificacion) {
+        return GZIP.equals(codificacion) ? ".gz" : "";
+    }
+
+    private OutputStream nuevoGzip(OutputStream salida) throws IOException {
+        return new GZIPOutputStream(salida, BUFFER) {
+            {
+                def.setLevel(nivel);
+            }
+        };
+    }
+}
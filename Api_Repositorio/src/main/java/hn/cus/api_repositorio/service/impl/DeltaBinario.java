@@ -0,0 +1,180 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Delta binario entre dos contenidos: el destino se describe como copias de
+ * tramos de la base e inserciones de bytes nuevos. Los bloques de la base se
+ * indexan por un hash rodante (Rabin-Karp) y el destino se recorre byte a
+ * byte buscando bloques iguales, que se extienden en los dos sentidos. Un
+ * cambio de pocos KB en un archivo grande produce un delta de pocos KB.
+ * Formato: tamaño de la base y del destino seguidos de operaciones COPIAR
+ * (desplazamiento, longitud) e INSERTAR (longitud, bytes), en varint.
+ * @author EG490082
+ */
+public final class DeltaBinario {
+
+    private static final int BLOQUE = 16;
+    private static final int MULTIPLICADOR = 0x01000193;
+    // MULTIPLICADOR^(BLOQUE-1): peso del byte que sale de la ventana
+    private static final int PESO_SALIDA;
+
+    private static final int COPIAR = 0;
+    private static final int INSERTAR = 1;
+
+    static {
+        int peso = 1;
+        for (int i = 1; i < BLOQUE; i++) {
+            peso *= MULTIPLICADOR;
+        }
+        PESO_SALIDA = peso;
+    }
+
+    private DeltaBinario() {
+    }
+
+    public static byte[] calcular(byte[] base, byte[] destino) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(Math.max(32, destino.length / 16));
+        escribirVarint(salida, base.length);
+        escribirVarint(salida, destino.length);
+
+        int bloques = base.length / BLOQUE;
+        int pendiente = 0;
+        if (bloques > 0 && destino.length >= BLOQUE) {
+            // Tabla abierta hash -> posición del bloque; ante colisiones gana el primero
+            int bits = Math.max(4, 33 - Integer.numberOfLeadingZeros(bloques));
+            int[] tabla = new int[1 << bits];
+            Arrays.fill(tabla, -1);
+            for (int p = (bloques - 1) * BLOQUE; p >= 0; p -= BLOQUE) {
+                tabla[indice(hash(base, p), bits)] = p;
+            }
+
+            int i = 0;
+            int h = hash(destino, 0);
+            while (true) {
+                int p = tabla[indice(h, bits)];
+                if (p >= 0 && Arrays.equals(base, p, p + BLOQUE, destino, i, i + BLOQUE)) {
+                    // Se extiende hacia atrás sobre los bytes aún sin emitir y hacia delante
+                    int atras = 0;
+                    while (i - atras > pendiente && p - atras > 0
+                            && base[p - atras - 1] == destino[i - atras - 1]) {
+                        atras++;
+                    }
+                    int distinto = Arrays.mismatch(base, p + BLOQUE, base.length, destino, i + BLOQUE, destino.length);
+                    int adelante = distinto < 0 ? base.length - p - BLOQUE : distinto;
+                    escribirInsercion(salida, destino, pendiente, i - atras);
+                    escribirCopia(salida, p - atras, atras + BLOQUE + adelante);
+                    i += BLOQUE + adelante;
+                    pendiente = i;
+                    if (i + BLOQUE > destino.length) {
+                        break;
+                    }
+                    h = hash(destino, i);
+                    continue;
+                }
+                if (i + BLOQUE >= destino.length) {
+                    break;
+                }
+                h = (h - (destino[i] & 0xff) * PESO_SALIDA) * MULTIPLICADOR + (destino[i + BLOQUE] & 0xff);
+                i++;
+            }
+        }
+        escribirInsercion(salida, destino, pendiente, destino.length);
+        return salida.toByteArray();
+    }
+
+    /** Lanza IllegalArgumentException si el delta está dañado o no se calculó sobre esta base */
+    public static byte[] aplicar(byte[] base, byte[] delta) {
+        int[] posicion = { 0 };
+        if (leerVarint(delta, posicion) != base.length) {
+            throw new IllegalArgumentException("El delta no corresponde a la versión base");
+        }
+        byte[] destino = new byte[leerVarint(delta, posicion)];
+        int escritos = 0;
+        while (posicion[0] < delta.length) {
+            int operacion = delta[posicion[0]++];
+            if (operacion == COPIAR) {
+                int desde = leerVarint(delta, posicion);
+                int longitud = leerVarint(delta, posicion);
+                if (desde > base.length - longitud || longitud > destino.length - escritos) {
+                    throw new IllegalArgumentException("Delta dañado: copia fuera de rango");
+                }
+                System.arraycopy(base, desde, destino, escritos, longitud);
+                escritos += longitud;
+            } else if (operacion == INSERTAR) {
+                int longitud = leerVarint(delta, posicion);
+                if (longitud > delta.length - posicion[0] || longitud > destino.length - escritos) {
+                    throw new IllegalArgumentException("Delta dañado: inserción fuera de rango");
+                }
+                System.arraycopy(delta, posicion[0], destino, escritos, longitud);
+                posicion[0] += longitud;
+                escritos += longitud;
+            } else {
+                throw new IllegalArgumentException("Delta dañado: operación desconocida " + operacion);
+            }
+        }
+        if (escritos != destino.length) {
+            throw new IllegalArgumentException("Delta dañado: faltan " + (destino.length - escritos) + " bytes");
+        }
+        return destino;
+    }
+
+    private static int hash(byte[] datos, int desde) {
+        int h = 0;
+        for (int i = desde; i < desde + BLOQUE; i++) {
+            h = h * MULTIPLICADOR + (datos[i] & 0xff);
+        }
+        return h;
+    }
+
+    // Multiplicativo de Fibonacci: los bits altos reparten mejor que los bajos del hash rodante
+    private static int indice(int h, int bits) {
+        return (h * 0x9e3779b9) >>> (32 - bits);
+    }
+
+    private static void escribirCopia(ByteArrayOutputStream salida, int desde, int longitud) {
+        salida.write(COPIAR);
+        escribirVarint(salida, desde);
+        escribirVarint(salida, longitud);
+    }
+
+    private static void escribirInsercion(ByteArrayOutputStream salida, byte[] datos, int desde, int hasta) {
+        if (hasta <= desde) {
+            return;
+        }
+        salida.write(INSERTAR);
+        escribirVarint(salida, hasta - desde);
+        salida.write(datos, desde, hasta - desde);
+    }
+
+    private static void escribirVarint(ByteArrayOutputStream salida, int valor) {
+        while ((valor & ~0x7f) != 0) {
+            salida.write((valor & 0x7f) | 0x80);
+            valor >>>= 7;
+        }
+        salida.write(valor);
+    }
+
+    private static int leerVarint(byte[] datos, int[] posicion) {
+        int valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 32; desplazamiento += 7) {
+            if (posicion[0] >= datos.length) {
+                throw new IllegalArgumentException("Delta dañado: termina antes de tiempo");
+            }
+            byte b = datos[posicion[0]++];
+            valor |= (b & 0x7f) << desplazamiento;
+            if (b >= 0) {
+                if (valor < 0) {
+                    break;
+                }
+                return valor;
+            }
+        }
+        throw new IllegalArgumentException("Delta dañado: longitud no válida");
+    }
+}
@@ -12,6 +12,7 @@ package hn.cus.api_repositorio.service.impl;
 import hn.cus.api_repositorio.dto.DocumentoComentarioDTO;
 import hn.cus.api_repositorio.entity.*;
 import hn.cus.api_repositorio.repository.*;
+import hn.cus.api_repositorio.service.BusquedaService;
 import hn.cus.api_repositorio.service.DocumentoComentarioService;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +26,7 @@ public class DocumentoComentarioServiceImpl implements DocumentoComentarioServic
     @Autowired private DocumentoRepository documentoRepository;
     @Autowired private UsuarioRepository usuarioRepository;
     @Autowired private DocumentoComentarioRepository documentoComentarioRepository;
+    @Autowired private BusquedaService busquedaService;
 
     @Override
     public DocumentoComentarioDTO agregarComentario(Long documentoId, Long usuarioId, String comentario) {
@@ -40,6 +42,7 @@ public class DocumentoComentarioServiceImpl implements DocumentoComentarioServic
         nuevoComentario.setCreadoPor(usuario);
 
         DocumentoComentario guardado = documentoComentarioRepository.save(nuevoComentario);
+        busquedaService.actualizarComentariosAlConfirmar(documentoId);
 
         return new DocumentoComentarioDTO(
                 guardado.getId(),
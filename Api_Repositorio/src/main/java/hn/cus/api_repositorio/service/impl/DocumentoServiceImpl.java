@@ -9,33 +9,66 @@ package hn.cus.api_repositorio.service.impl;
  * @author EG490082
  */
 
+import hn.cus.api_repositorio.entity.BlobAlmacenado;
 import hn.cus.api_repositorio.entity.Documento;
+import hn.cus.api_repositorio.entity.DocumentoContenido;
 import hn.cus.api_repositorio.entity.Usuario;
+import hn.cus.api_repositorio.repository.BlobAlmacenadoRepository;
+import hn.cus.api_repositorio.repository.ConsultaMetadatos;
+import hn.cus.api_repositorio.repository.DocumentoContenidoRepository;
+import hn.cus.api_repositorio.repository.DocumentoMiniaturaRepository;
 import hn.cus.api_repositorio.repository.DocumentoRepository;
+import hn.cus.api_repositorio.repository.DocumentoVersionRepository;
 import hn.cus.api_repositorio.repository.UsuarioRepository;
+import hn.cus.api_repositorio.service.AlmacenamientoBlobService;
+import hn.cus.api_repositorio.service.AlmacenamientoBlobService.ArchivoTemporal;
+import hn.cus.api_repositorio.service.BusquedaService;
+import hn.cus.api_repositorio.service.CompresionService;
+import hn.cus.api_repositorio.service.CompresionService.ContenidoCodificado;
 import hn.cus.api_repositorio.service.DocumentoService;
+import hn.cus.api_repositorio.service.EstadisticaDocumentoService;
+import hn.cus.api_repositorio.service.MiniaturaService;
 import hn.cus.api_repositorio.dto.DocumentoBase64Request;
+import hn.cus.api_repositorio.dto.DocumentoResponseDTO;
+import hn.cus.api_repositorio.dto.FiltroDocumentoDTO;
+import hn.cus.api_repositorio.dto.PaginaCursorDTO;
 
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import hn.cus.api_repositorio.config.FileStorageConfig;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 
 @Service
 public class DocumentoServiceImpl implements DocumentoService {
 
+    private static final int LIMITE_PAGINA_MAXIMO = 100;
+    private static final int LONGITUD_CONSULTA_MAXIMA = 2000;
+
     @Autowired private DocumentoRepository documentoRepository;
+    @Autowired private DocumentoContenidoRepository documentoContenidoRepository;
+    @Autowired private DocumentoVersionRepository documentoVersionRepository;
+    @Autowired private DocumentoMiniaturaRepository documentoMiniaturaRepository;
     @Autowired private UsuarioRepository usuarioRepository;
     @Autowired private FileStorageConfig fileStorageConfig;
+    @Autowired private AlmacenamientoBlobService almacenamientoBlobService;
+    @Autowired private BlobAlmacenadoRepository blobAlmacenadoRepository;
+    @Autowired private CompresionService compresionService;
+    @Autowired private EstadisticaDocumentoService estadisticaDocumentoService;
+    @Autowired private BusquedaService busquedaService;
+    @Autowired private MiniaturaService miniaturaService;
 
     @Override
+    @Transactional
     public Documento guardarDocumento(MultipartFile archivo, Long usuarioId) {
         if (archivo.isEmpty()) {
             throw new IllegalArgumentException("El archivo no puede estar vacío");
@@ -51,36 +84,29 @@ public class DocumentoServiceImpl implements DocumentoService {
         doc.setCreadoPor(usuario);
         doc.setPublico(false);
         
+        byte[] contenido = null;
         try {
-            // Decidir si guardar como Base64 o físicamente
+            // Decidir si guardar en la base de datos o físicamente
             if (archivo.getSize() <= fileStorageConfig.getMaxFileSizeBase64()) {
-                // Archivo pequeño: guardar como Base64 en la base de datos
-                doc.setContenidoBase64(convertirBase64(archivo));
+                // Archivo pequeño: bytes tal cual en la base de datos (bytea)
+                contenido = archivo.getBytes();
+                doc.setTamano(archivo.getSize());
                 doc.setRutaArchivo("base64://" + archivo.getOriginalFilename());
-                System.out.println("Archivo guardado como Base64: " + archivo.getOriginalFilename());
+                System.out.println("Archivo guardado en la base de datos: " + archivo.getOriginalFilename());
             } else {
-                // Archivo grande: guardar físicamente en el servidor
-                String fileName = System.currentTimeMillis() + "_" + archivo.getOriginalFilename();
-                Path filePath = Paths.get(fileStorageConfig.getUploadDir()).resolve(fileName);
-                
-                // Crear directorio si no existe
-                Files.createDirectories(filePath.getParent());
-                
-                // Guardar archivo físicamente
-                Files.copy(archivo.getInputStream(), filePath);
-                
-                doc.setRutaArchivo("/uploads/" + fileName);
-                System.out.println("Archivo guardado físicamente: " + filePath.toAbsolutePath());
+                // Archivo grande: al almacén por contenido (SHA-256), compartido entre documentos iguales
+                asignarBlob(doc, almacenamientoBlobService.recibir(archivo.getInputStream()));
             }
             
         } catch (IOException e) {
             throw new RuntimeException("Error al guardar el archivo: " + e.getMessage(), e);
         }
         
-        return documentoRepository.save(doc);
+        return guardar(doc, contenido);
     }
 
     @Override
+    @Transactional
     public Documento guardarDocumentoBase64(MultipartFile archivo, Long usuarioId, String comentario, Long idTarea) {
         if (archivo.isEmpty()) {
             throw new IllegalArgumentException("El archivo no puede estar vacío");
@@ -95,22 +121,171 @@ public class DocumentoServiceImpl implements DocumentoService {
         doc.setFechaCreacion(LocalDateTime.now());
         doc.setCreadoPor(usuario);
         doc.setPublico(false);
-        doc.setContenidoBase64(convertirBase64(archivo));
+        doc.setTamano(archivo.getSize());
         doc.setIdTarea(idTarea);
         doc.setRutaArchivo("/uploads/" + System.currentTimeMillis() + "_" + archivo.getOriginalFilename());
         
-        return documentoRepository.save(doc);
+        return guardar(doc, leerBytes(archivo));
+    }
+
+    @Override
+    @Transactional
+    public Documento guardarDocumentoDesdeArchivo(ArchivoTemporal archivo, String nombreOriginal, String tipoMime, Long usuarioId, Long idTarea) {
+        Usuario usuario = usuarioRepository.findById(usuarioId)
+            .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado con ID: " + usuarioId));
+
+        Documento doc = new Documento();
+        doc.setNombreOriginal(nombreOriginal);
+        doc.setTipoMime(tipoMime);
+        doc.setFechaCreacion(LocalDateTime.now());
+        doc.setCreadoPor(usuario);
+        doc.setPublico(false);
+        doc.setIdTarea(idTarea);
+
+        byte[] contenido = null;
+        try {
+            // Misma regla que guardarDocumento: pequeños en la base de datos, grandes en disco
+            if (archivo.tamano() <= fileStorageConfig.getMaxFileSizeBase64()) {
+                contenido = Files.readAllBytes(archivo.ruta());
+                doc.setHashContenido(archivo.hash());
+                doc.setTamano(archivo.tamano());
+                doc.setRutaArchivo("base64://" + nombreOriginal);
+                Files.deleteIfExists(archivo.ruta());
+            } else {
+                // El archivo ya está en disco: se mueve al almacén en lugar de copiarlo
+                asignarBlob(doc, archivo);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error al guardar el archivo: " + e.getMessage(), e);
+        }
+
+        return guardar(doc, contenido);
+    }
+
+    @Override
+    @Transactional
+    public List<Documento> guardarDocumentosLote(List<ArchivoLote> archivos, Long usuarioId, Long idTarea) {
+        // Una sola búsqueda del usuario para todo el lote
+        Usuario usuario = usuarioRepository.findById(usuarioId)
+            .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado con ID: " + usuarioId));
+
+        List<Documento> documentos = new ArrayList<>(archivos.size());
+        for (ArchivoLote archivo : archivos) {
+            Documento doc = new Documento();
+            doc.setNombreOriginal(archivo.nombreOriginal());
+            doc.setTipoMime(archivo.tipoMime());
+            doc.setFechaCreacion(LocalDateTime.now());
+            doc.setCreadoPor(usuario);
+            doc.setPublico(false);
+            doc.setIdTarea(idTarea);
+            if (archivo.archivo() != null) {
+                asignarBlob(doc, archivo.archivo());
+            } else {
+                doc.setTamano(archivo.tamano());
+                doc.setRutaArchivo("base64://" + archivo.nombreOriginal());
+            }
+            documentos.add(doc);
+        }
+
+        // Las inserciones se envían juntas al final, no intercaladas con el almacén
+        documentoRepository.saveAll(documentos);
+        List<DocumentoContenido> contenidos = new ArrayList<>();
+        for (int i = 0; i < archivos.size(); i++) {
+            ContenidoCodificado contenido = archivos.get(i).contenido();
+            if (contenido != null) {
+                contenidos.add(new DocumentoContenido(documentos.get(i), contenido.datos(), contenido.codificacion()));
+            }
+        }
+        documentoContenidoRepository.saveAll(contenidos);
+        estadisticaDocumentoService.registrarAltas(documentos);
+        busquedaService.indexarAlConfirmar(documentos);
+        miniaturaService.generarAlConfirmar(documentos);
+        return documentos;
+    }
+
+    // El contenido va en su propia tabla; el documento se inserta antes para tener id
+    private Documento guardar(Documento doc, byte[] contenido) {
+        Documento guardado = documentoRepository.save(doc);
+        if (contenido != null) {
+            ContenidoCodificado codificado = compresionService.codificar(contenido, doc.getTipoMime());
+            documentoContenidoRepository.save(
+                    new DocumentoContenido(guardado, codificado.datos(), codificado.codificacion()));
+        }
+        estadisticaDocumentoService.registrarAlta(guardado);
+        busquedaService.indexarAlConfirmar(guardado);
+        miniaturaService.generarAlConfirmar(guardado);
+        return guardado;
+    }
+
+    @Override
+    @Transactional
+    public void reemplazarContenido(Documento doc, ArchivoTemporal archivo, String nombreOriginal, String tipoMime) {
+        // Copia con el tamaño y el tipo anteriores para descontarlos de las estadísticas
+        Documento anterior = new Documento();
+        BeanUtils.copyProperties(doc, anterior);
+        String blobAnterior = doc.getHashContenido() != null && doc.getRutaArchivo().startsWith("/uploads/")
+                ? doc.getHashContenido() : null;
+        DocumentoContenido contenido = documentoContenidoRepository.findById(doc.getId()).orElse(null);
+        String referencia = contenido != null ? documentoContenidoRepository.obtenerReferenciaContenidoBase64(doc.getId()) : null;
+
+        doc.setNombreOriginal(nombreOriginal);
+        doc.setTipoMime(tipoMime);
+        doc.setFechaModificacion(LocalDateTime.now());
+        try {
+            // Misma regla que en el alta: pequeños en la base de datos, grandes en el almacén
+            if (archivo.tamano() <= fileStorageConfig.getMaxFileSizeBase64()) {
+                ContenidoCodificado codificado = compresionService.codificar(Files.readAllBytes(archivo.ruta()), tipoMime);
+                if (contenido == null) {
+                    contenido = new DocumentoContenido(doc, null);
+                }
+                contenido.setContenidoBinario(codificado.datos());
+                contenido.setCodificacion(codificado.codificacion());
+                contenido.setContenidoBase64(null);
+                documentoContenidoRepository.save(contenido);
+                doc.setHashContenido(archivo.hash());
+                doc.setTamano(archivo.tamano());
+                doc.setRutaArchivo("base64://" + nombreOriginal);
+                Files.deleteIfExists(archivo.ruta());
+            } else {
+                if (contenido != null) {
+                    documentoContenidoRepository.eliminarPorDocumento(doc.getId());
+                }
+                asignarBlob(doc, archivo);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error al guardar el archivo: " + e.getMessage(), e);
+        }
+        documentoRepository.save(doc);
+
+        if (referencia != null && referencia.matches("\\d+")) {
+            documentoContenidoRepository.liberarLargeObject(Long.valueOf(referencia));
+        }
+        if (blobAnterior != null) {
+            almacenamientoBlobService.liberar(blobAnterior);
+        }
+        estadisticaDocumentoService.registrarBaja(anterior);
+        estadisticaDocumentoService.registrarAlta(doc);
+        busquedaService.indexarAlConfirmar(doc);
+        miniaturaService.generarAlConfirmar(doc);
+    }
+
+    private void asignarBlob(Documento doc, ArchivoTemporal archivo) {
+        BlobAlmacenado blob = almacenamientoBlobService.almacenar(archivo, doc.getTipoMime());
+        doc.setHashContenido(blob.getHash());
+        doc.setTamano(blob.getTamano());
+        doc.setRutaArchivo("/uploads/" + blob.getRutaArchivo());
     }
 
-    private String convertirBase64(MultipartFile file) {
+    private byte[] leerBytes(MultipartFile file) {
         try {
-            return Base64.getEncoder().encodeToString(file.getBytes());
+            return file.getBytes();
         } catch (IOException e) {
-            throw new RuntimeException("Error al convertir archivo a Base64", e);
+            throw new RuntimeException("Error al leer el archivo", e);
         }
     }
 
     @Override
+    @Transactional
     public Documento guardarDocumentoBase64(DocumentoBase64Request request) {
         if (request.getContentBase64() == null || request.getContentBase64().isEmpty()) {
             throw new IllegalArgumentException("El contenido Base64 no puede estar vacío");
@@ -119,17 +294,25 @@ public class DocumentoServiceImpl implements DocumentoService {
         Usuario usuario = usuarioRepository.findById(request.getUsuarioId())
             .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado con ID: " + request.getUsuarioId()));
         
+        // Se decodifica una sola vez al recibirlo, no en cada descarga
+        byte[] contenido;
+        try {
+            contenido = Base64.getDecoder().decode(request.getContentBase64());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("El contenido Base64 no es válido");
+        }
+
         Documento doc = new Documento();
         doc.setNombreOriginal(request.getFileName());
         doc.setTipoMime(request.getFileType());
         doc.setFechaCreacion(LocalDateTime.now());
         doc.setCreadoPor(usuario);
         doc.setPublico(false);
-        doc.setContenidoBase64(request.getContentBase64());
+        doc.setTamano((long) contenido.length);
         doc.setIdTarea(request.getIdTarea());
         doc.setRutaArchivo("/uploads/" + System.currentTimeMillis() + "_" + request.getFileName());
         
-        return documentoRepository.save(doc);
+        return guardar(doc, contenido);
     }
 
     @Override
@@ -137,22 +320,152 @@ public class DocumentoServiceImpl implements DocumentoService {
         return documentoRepository.findAll();
     }
 
+    @Override
+    public List<DocumentoResponseDTO> listarResumen() {
+        return documentoRepository.listarResumen();
+    }
+
+    @Override
+    public DocumentoResponseDTO obtenerResumenPorId(Long id) {
+        return documentoRepository.buscarResumenPorId(id)
+            .orElseThrow(() -> new IllegalArgumentException("Documento no encontrado con ID: " + id));
+    }
+
+    @Override
+    public PaginaCursorDTO<DocumentoResponseDTO> listarPagina(FiltroDocumentoDTO filtro, String cursor, int limite) {
+        return paginar(cursor, limite,
+                (desdeFecha, desdeId, cantidad) -> documentoRepository.listarPagina(filtro, desdeFecha, desdeId, cantidad));
+    }
+
+    @Override
+    public PaginaCursorDTO<DocumentoResponseDTO> buscarPorMetadatos(String consulta, String cursor, int limite) {
+        if (consulta != null && consulta.length() > LONGITUD_CONSULTA_MAXIMA) {
+            throw new IllegalArgumentException("La consulta no puede superar " + LONGITUD_CONSULTA_MAXIMA + " caracteres");
+        }
+        ConsultaMetadatos condiciones = ConsultaMetadatos.parsear(consulta);
+        return paginar(cursor, limite,
+                (desdeFecha, desdeId, cantidad) -> documentoRepository.buscarPorMetadatos(condiciones, desdeFecha, desdeId, cantidad));
+    }
+
+    // Consulta de una página a partir del último elemento de la anterior
+    private interface ConsultaPagina {
+        List<DocumentoResponseDTO> obtener(LocalDateTime desdeFecha, Long desdeId, int limite);
+    }
+
+    private PaginaCursorDTO<DocumentoResponseDTO> paginar(String cursor, int limite, ConsultaPagina consulta) {
+        if (limite < 1 || limite > LIMITE_PAGINA_MAXIMO) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + LIMITE_PAGINA_MAXIMO);
+        }
+
+        LocalDateTime desdeFecha = null;
+        Long desdeId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            // El cursor es (fechaCreacion|id) del último elemento de la página anterior
+            try {
+                String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                desdeFecha = LocalDateTime.parse(partes[0]);
+                desdeId = Long.valueOf(partes[1]);
+            } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+        }
+
+        // Se pide un elemento de más para saber si hay otra página sin contar filas
+        List<DocumentoResponseDTO> elementos = consulta.obtener(desdeFecha, desdeId, limite + 1);
+        boolean hayMas = elementos.size() > limite;
+        if (hayMas) {
+            elementos = elementos.subList(0, limite);
+        }
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            DocumentoResponseDTO ultimo = elementos.get(elementos.size() - 1);
+            siguienteCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (ultimo.getFechaCreacion() + "|" + ultimo.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return new PaginaCursorDTO<>(elementos, siguienteCursor, hayMas);
+    }
+
+    @Override
+    public long contarDocumentos() {
+        // Contador mantenido en cada alta y baja, sin recorrer la tabla
+        return estadisticaDocumentoService.totalDocumentos();
+    }
+
     @Override
     public Documento obtenerPorId(Long id) {
         return documentoRepository.findById(id)
             .orElseThrow(() -> new IllegalArgumentException("Documento no encontrado con ID: " + id));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public byte[] obtenerContenido(Documento doc) {
+        DocumentoContenido contenido = documentoContenidoRepository.findById(doc.getId()).orElse(null);
+        if (contenido == null) {
+            return null;
+        }
+        if (contenido.getContenidoBinario() != null) {
+            return compresionService.decodificar(contenido.getContenidoBinario(), contenido.getCodificacion());
+        }
+        // Fila aún no migrada
+        if (contenido.getContenidoBase64() != null && !contenido.getContenidoBase64().isEmpty()) {
+            return Base64.getDecoder().decode(contenido.getContenidoBase64());
+        }
+        return null;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ContenidoCodificado obtenerContenidoCodificado(Documento doc) {
+        DocumentoContenido contenido = documentoContenidoRepository.findById(doc.getId()).orElse(null);
+        if (contenido == null || contenido.getContenidoBinario() == null) {
+            byte[] datos = obtenerContenido(doc);
+            return datos != null ? new ContenidoCodificado(datos, null) : null;
+        }
+        return new ContenidoCodificado(contenido.getContenidoBinario(), contenido.getCodificacion());
+    }
+
+    @Override
+    public String obtenerCodificacion(Documento doc) {
+        if (doc.getHashContenido() != null && doc.getRutaArchivo().startsWith("/uploads/")) {
+            return blobAlmacenadoRepository.findById(doc.getHashContenido())
+                .map(BlobAlmacenado::getCodificacion)
+                .orElse(null);
+        }
+        return documentoContenidoRepository.obtenerCodificacion(doc.getId());
+    }
+
     @Override
     public boolean existeDocumento(Long id) {
         return documentoRepository.existsById(id);
     }
 
     @Override
+    @Transactional
     public void eliminar(Long id) {
-        if (!documentoRepository.existsById(id)) {
-            throw new IllegalArgumentException("Documento no encontrado con ID: " + id);
+        // Bloqueado: una miniatura que se termina de generar no queda sin liberar
+        Documento doc = documentoRepository.bloquearPorId(id)
+            .orElseThrow(() -> new IllegalArgumentException("Documento no encontrado con ID: " + id));
+        // Fila aún no migrada: su contenido vive en un large object que el DELETE no borra
+        String referencia = documentoContenidoRepository.obtenerReferenciaContenidoBase64(id);
+        documentoContenidoRepository.eliminarPorDocumento(id);
+        // Las versiones completas grandes son referencias a blobs, que se liberan como el del documento
+        List<String> blobsVersiones = documentoVersionRepository.buscarHashesBlob(id);
+        documentoVersionRepository.eliminarPorDocumento(id);
+        List<String> blobsMiniaturas = documentoMiniaturaRepository.buscarHashesBlob(id);
+        documentoMiniaturaRepository.eliminarPorDocumento(id);
+        documentoRepository.delete(doc);
+        estadisticaDocumentoService.registrarBaja(doc);
+        if (referencia != null && referencia.matches("\\d+")) {
+            documentoContenidoRepository.liberarLargeObject(Long.valueOf(referencia));
+        }
+
+        // El archivo solo se borra cuando ningún otro documento apunta al mismo blob
+        if (doc.getHashContenido() != null && doc.getRutaArchivo().startsWith("/uploads/")) {
+            almacenamientoBlobService.liberar(doc.getHashContenido());
         }
-        documentoRepository.deleteById(id);
+        blobsVersiones.forEach(almacenamientoBlobService::liberar);
+        blobsMiniaturas.forEach(almacenamientoBlobService::liberar);
     }
 }
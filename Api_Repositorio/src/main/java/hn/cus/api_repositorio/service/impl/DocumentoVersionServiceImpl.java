@@ -0,0 +1,498 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+/**
+ *
+ * @author EG490082
+ */
+
+import hn.cus.api_repositorio.config.FileStorageConfig;
+import hn.cus.api_repositorio.dto.DocumentoVersionDTO;
+import hn.cus.api_repositorio.dto.PaginaCursorDTO;
+import hn.cus.api_repositorio.entity.BlobAlmacenado;
+import hn.cus.api_repositorio.entity.Documento;
+import hn.cus.api_repositorio.entity.DocumentoVersion;
+import hn.cus.api_repositorio.entity.Usuario;
+import hn.cus.api_repositorio.repository.BlobAlmacenadoRepository;
+import hn.cus.api_repositorio.repository.DocumentoRepository;
+import hn.cus.api_repositorio.repository.DocumentoVersionRepository;
+import hn.cus.api_repositorio.repository.UsuarioRepository;
+import hn.cus.api_repositorio.service.AlmacenamientoBlobService;
+import hn.cus.api_repositorio.service.AlmacenamientoBlobService.ArchivoTemporal;
+import hn.cus.api_repositorio.service.CompresionService;
+import hn.cus.api_repositorio.service.CompresionService.ContenidoCodificado;
+import hn.cus.api_repositorio.service.DocumentoService;
+import hn.cus.api_repositorio.service.DocumentoVersionService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class DocumentoVersionServiceImpl implements DocumentoVersionService {
+
+    private static final int LIMITE_PAGINA_MAXIMO = 100;
+
+    @Autowired private DocumentoVersionRepository documentoVersionRepository;
+    @Autowired private DocumentoRepository documentoRepository;
+    @Autowired private UsuarioRepository usuarioRepository;
+    @Autowired private BlobAlmacenadoRepository blobAlmacenadoRepository;
+    @Autowired private DocumentoService documentoService;
+    @Autowired private AlmacenamientoBlobService almacenamientoBlobService;
+    @Autowired private CompresionService compresionService;
+    @Autowired private FileStorageConfig fileStorageConfig;
+
+    // Deltas seguidos como máximo entre dos versiones completas: acota lo que
+    // hay que aplicar para leer una versión antigua
+    @Value("${app.versiones.completa-cada:10}")
+    private int completaCada;
+
+    // El delta se guarda si no pasa de esta fracción del contenido entero
+    @Value("${app.versiones.delta.proporcion-maxima:0.5}")
+    private double proporcionMaxima;
+
+    // Por encima, las dos versiones no se cargan en memoria y se guarda entera
+    @Value("${app.versiones.delta.bytes-maximos:16777216}")
+    private long bytesMaximos;
+
+    @Override
+    @Transactional
+    public DocumentoVersionDTO crearVersion(Long documentoId, MultipartFile archivo, Long usuarioId) {
+        if (archivo.isEmpty()) {
+            throw new IllegalArgumentException("El archivo no puede estar vacío");
+        }
+        Usuario usuario = usuarioRepository.findById(usuarioId)
+            .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado con ID: " + usuarioId));
+
+        ArchivoTemporal nuevo;
+        try {
+            nuevo = almacenamientoBlobService.recibir(archivo.getInputStream());
+        } catch (IOException e) {
+            throw new RuntimeException("Error al recibir el archivo: " + e.getMessage(), e);
+        }
+        try {
+            return crear(documentoId, nuevo, archivo.getOriginalFilename(), archivo.getContentType(), usuario);
+        } finally {
+            // Solo queda si no pasó al almacén ni a la base de datos
+            try {
+                Files.deleteIfExists(nuevo.ruta());
+            } catch (IOException e) {
+                System.err.println("No se pudo borrar el temporal " + nuevo.ruta() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private DocumentoVersionDTO crear(Long documentoId, ArchivoTemporal nuevo, String nombre, String tipoMime, Usuario usuario) {
+        // Dos versiones simultáneas del mismo documento se numeran una detrás de otra
+        Documento doc = documentoRepository.bloquearPorId(documentoId)
+            .orElseThrow(() -> new IllegalArgumentException("Documento no encontrado con ID: " + documentoId));
+        String nombreOriginal = nombre != null && !nombre.isBlank() ? nombre : doc.getNombreOriginal();
+        String tipo = tipoMime != null ? tipoMime : doc.getTipoMime();
+
+        DocumentoVersion anterior = documentoVersionRepository.findFirstByDocumento_IdOrderByVersionDesc(documentoId)
+            .orElseGet(() -> versionInicial(doc));
+        if (nuevo.hash().equals(anterior.getHashContenido())) {
+            // Sin escribir nada, ni siquiera la versión 1 si aún no estaba guardada
+            System.out.println("El documento " + documentoId + " ya tiene ese contenido en la versión " + anterior.getVersion());
+            return aDTO(anterior);
+        }
+        if (anterior.getId() == null) {
+            anterior = guardarVersionInicial(anterior);
+        }
+
+        DocumentoVersion version = new DocumentoVersion();
+        version.setDocumento(doc);
+        version.setVersion(anterior.getVersion() + 1);
+        version.setCreadoPor(usuario);
+        version.setNombreOriginal(nombreOriginal);
+        version.setTipoMime(tipo);
+        version.setHashContenido(nuevo.hash());
+        version.setTamano(nuevo.tamano());
+        version.setRutaArchivo("base64://" + nombreOriginal);
+
+        // Delta contra la versión anterior, que es el contenido actual del documento
+        byte[] contenido = null;
+        Integer completa = documentoVersionRepository.ultimaVersionCompleta(documentoId);
+        boolean tocaCompleta = completa == null || version.getVersion() - completa > completaCada;
+        if (!tocaCompleta && nuevo.tamano() <= bytesMaximos
+                && anterior.getTamano() != null && anterior.getTamano() <= bytesMaximos) {
+            contenido = leer(nuevo.ruta());
+            byte[] base = leerContenidoActual(doc);
+            byte[] delta = base != null ? DeltaBinario.calcular(base, contenido) : null;
+            if (delta != null && delta.length <= contenido.length * proporcionMaxima) {
+                ContenidoCodificado codificado = compresionService.codificar(delta, tipo);
+                version.setAlmacenamiento(DocumentoVersion.DELTA);
+                version.setVersionBase(anterior.getVersion());
+                version.setDatos(codificado.datos());
+                version.setCodificacion(codificado.codificacion());
+            }
+        }
+        boolean enBlob = false;
+        if (version.getDatos() == null) {
+            if (nuevo.tamano() <= fileStorageConfig.getMaxFileSizeBase64()) {
+                ContenidoCodificado codificado = compresionService.codificar(
+                        contenido != null ? contenido : leer(nuevo.ruta()), tipo);
+                version.setDatos(codificado.datos());
+                version.setCodificacion(codificado.codificacion());
+            } else {
+                // Comparte el blob con el documento, que lo guarda a continuación
+                enBlob = true;
+            }
+        }
+
+        documentoService.reemplazarContenido(doc, nuevo, nombreOriginal, tipo);
+        if (enBlob) {
+            BlobAlmacenado blob = blobAlmacenadoRepository.bloquearPorHash(nuevo.hash()).orElseThrow();
+            blob.setReferencias(blob.getReferencias() + 1);
+            version.setRutaArchivo("/uploads/" + blob.getRutaArchivo());
+        }
+        version = documentoVersionRepository.save(version);
+        System.out.println("Documento " + documentoId + ": versión " + version.getVersion() + " guardada "
+                + (DocumentoVersion.DELTA.equals(version.getAlmacenamiento())
+                        ? "como delta (" + version.getDatos().length + " de " + nuevo.tamano() + " bytes)"
+                        : "completa (" + nuevo.tamano() + " bytes)"));
+        return aDTO(version);
+    }
+
+    // El contenido que el documento tenía antes de su primera versión nueva,
+    // todavía sin guardar
+    private DocumentoVersion versionInicial(Documento doc) {
+        DocumentoVersion inicial = new DocumentoVersion();
+        inicial.setDocumento(doc);
+        inicial.setVersion(1);
+        inicial.setCreadoPor(doc.getCreadoPor());
+        inicial.setFechaCreacion(doc.getFechaCreacion());
+        inicial.setNombreOriginal(doc.getNombreOriginal());
+        inicial.setTipoMime(doc.getTipoMime());
+        inicial.setRutaArchivo(doc.getRutaArchivo());
+
+        ContenidoCodificado contenido = documentoService.obtenerContenidoCodificado(doc);
+        if (contenido != null) {
+            // Se copia tal como está guardado, sin volver a comprimir
+            byte[] datos = compresionService.decodificar(contenido.datos(), contenido.codificacion());
+            inicial.setDatos(contenido.datos());
+            inicial.setCodificacion(contenido.codificacion());
+            inicial.setHashContenido(sha256(datos));
+            inicial.setTamano((long) datos.length);
+        } else if (doc.getHashContenido() != null && doc.getRutaArchivo().startsWith("/uploads/")) {
+            // Comparte el blob del documento; la referencia se suma al guardarla
+            inicial.setHashContenido(doc.getHashContenido());
+            inicial.setTamano(doc.getTamano());
+        } else if (doc.getRutaArchivo().startsWith("/uploads/")) {
+            // Archivo anterior al almacén por contenido: se lee de su ruta
+            byte[] datos = leer(resolver(doc.getRutaArchivo()));
+            ContenidoCodificado codificado = compresionService.codificar(datos, doc.getTipoMime());
+            inicial.setDatos(codificado.datos());
+            inicial.setCodificacion(codificado.codificacion());
+            inicial.setHashContenido(sha256(datos));
+            inicial.setTamano((long) datos.length);
+        } else {
+            throw new IllegalStateException("El documento " + doc.getId() + " no tiene contenido");
+        }
+        return inicial;
+    }
+
+    private DocumentoVersion guardarVersionInicial(DocumentoVersion inicial) {
+        if (inicial.getDatos() == null) {
+            // Una referencia más al blob del documento, sin copiar el archivo
+            BlobAlmacenado blob = blobAlmacenadoRepository.bloquearPorHash(inicial.getHashContenido())
+                .orElseThrow(() -> new IllegalStateException(
+                        "No existe el blob del documento " + inicial.getDocumento().getId()));
+            blob.setReferencias(blob.getReferencias() + 1);
+            inicial.setTamano(blob.getTamano());
+        }
+        return documentoVersionRepository.save(inicial);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public byte[] obtenerContenidoVersion(Long documentoId, int numero) {
+        Map<Integer, DocumentoVersion> cadena = documentoVersionRepository.buscarCadena(documentoId, numero).stream()
+            .collect(Collectors.toMap(DocumentoVersion::getVersion, Function.identity()));
+        DocumentoVersion pedida = cadena.get(numero);
+        if (pedida == null) {
+            throw new IllegalArgumentException("El documento " + documentoId + " no tiene la versión " + numero);
+        }
+
+        // Se sigue versionBase hasta una versión completa y se aplican los deltas en orden
+        Deque<DocumentoVersion> deltas = new ArrayDeque<>();
+        DocumentoVersion actual = pedida;
+        while (DocumentoVersion.DELTA.equals(actual.getAlmacenamiento())) {
+            deltas.push(actual);
+            Integer base = actual.getVersionBase();
+            actual = cadena.containsKey(base) ? cadena.get(base)
+                    : documentoVersionRepository.findByDocumento_IdAndVersion(documentoId, base)
+                        .orElseThrow(() -> new IllegalStateException(
+                                "Falta la versión " + base + " del documento " + documentoId));
+        }
+        byte[] contenido = leerCompleta(actual);
+        try {
+            while (!deltas.isEmpty()) {
+                DocumentoVersion delta = deltas.pop();
+                contenido = DeltaBinario.aplicar(contenido,
+                        compresionService.decodificar(delta.getDatos(), delta.getCodificacion()));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("No se pudo reconstruir la versión " + numero
+                    + " del documento " + documentoId + ": " + e.getMessage(), e);
+        }
+        if (pedida.getHashContenido() != null && !pedida.getHashContenido().equals(sha256(contenido))) {
+            throw new IllegalStateException("La versión " + numero + " del documento " + documentoId
+                    + " no coincide con su hash");
+        }
+        return contenido;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaCursorDTO<DocumentoVersionDTO> listarVersiones(Long documentoId, String cursor, int limite) {
+        if (limite < 1 || limite > LIMITE_PAGINA_MAXIMO) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + LIMITE_PAGINA_MAXIMO);
+        }
+        // El cursor es el número de la última versión de la página anterior
+        int desde = Integer.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                desde = Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+        }
+
+        List<DocumentoVersionDTO> elementos = documentoVersionRepository.listarPagina(
+                documentoId, desde, PageRequest.of(0, limite + 1));
+        boolean hayMas = elementos.size() > limite;
+        if (hayMas) {
+            elementos = elementos.subList(0, limite);
+        }
+        String siguienteCursor = hayMas
+                ? Base64.getUrlEncoder().withoutPadding().encodeToString(
+                        String.valueOf(elementos.get(limite - 1).getVersion()).getBytes(StandardCharsets.UTF_8))
+                : null;
+        return new PaginaCursorDTO<>(elementos, siguienteCursor, hayMas);
+    }
+
+    @Override
+    public DocumentoVersionDTO obtenerVersion(Long documentoId, int numero) {
+        return documentoVersionRepository.buscarResumen(documentoId, numero)
+            .orElseThrow(() -> new IllegalArgumentException("El documento " + documentoId + " no tiene la versión " + numero));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public InputStream abrirContenidoVersion(Long documentoId, int numero) {
+        DocumentoVersion version = documentoVersionRepository.findByDocumento_IdAndVersion(documentoId, numero)
+            .orElseThrow(() -> new IllegalArgumentException("El documento " + documentoId + " no tiene la versión " + numero));
+        if (!DocumentoVersion.COMPLETA.equals(version.getAlmacenamiento()) || version.getDatos() != null) {
+            return new ByteArrayInputStream(obtenerContenidoVersion(documentoId, numero));
+        }
+        try {
+            if (version.getHashContenido() == null) {
+                return Files.newInputStream(resolver(version.getRutaArchivo()));
+            }
+            BlobAlmacenado blob = blobAlmacenadoRepository.findById(version.getHashContenido())
+                .orElseThrow(() -> new IllegalStateException("No existe el blob " + version.getHashContenido()));
+            // Descomprime mientras se envía; el archivo sigue abierto aunque la retención lo borre
+            return compresionService.decodificar(
+                    Files.newInputStream(Paths.get(fileStorageConfig.getUploadDir()).resolve(blob.getRutaArchivo())),
+                    blob.getCodificacion());
+        } catch (IOException e) {
+            throw new RuntimeException("Error al leer el archivo: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    @Transactional
+    public int aplicarRetencion(Long documentoId, int ultimas, int meses) {
+        // Una versión nueva del documento puede guardarse mientras tanto: siempre
+        // se apoya en la última, que la retención nunca elimina
+        documentoVersionRepository.bloquearVersiones(documentoId);
+        List<Object[]> versiones = documentoVersionRepository.listarParaRetencion(documentoId);
+        Set<Integer> conservar = versionesConservadas(versiones, ultimas, meses, YearMonth.now());
+        if (conservar.size() == versiones.size()) {
+            return 0;
+        }
+
+        // Las que se conservan, en orden: un delta cuya base se elimina, o que
+        // dejaría la cadena más larga que completaCada, se vuelve a codificar
+        // contra la conservada anterior o se guarda entero
+        Map<Integer, Integer> profundidad = new HashMap<>();
+        Object[] anterior = null;
+        List<Integer> eliminar = new ArrayList<>();
+        List<String> blobsLiberados = new ArrayList<>();
+        for (Object[] fila : versiones) {
+            Integer numero = (Integer) fila[0];
+            if (!conservar.contains(numero)) {
+                eliminar.add(numero);
+                if (fila[5] != null) {
+                    blobsLiberados.add((String) fila[5]);
+                }
+                continue;
+            }
+            Integer base = (Integer) fila[3];
+            boolean delta = DocumentoVersion.DELTA.equals(fila[2]);
+            if (!delta) {
+                profundidad.put(numero, 0);
+            } else if (conservar.contains(base) && profundidad.get(base) < completaCada) {
+                profundidad.put(numero, profundidad.get(base) + 1);
+            } else {
+                profundidad.put(numero, recodificar(documentoId, numero, anterior, profundidad));
+            }
+            anterior = fila;
+        }
+
+        documentoVersionRepository.eliminarVersiones(documentoId, eliminar);
+        blobsLiberados.forEach(almacenamientoBlobService::liberar);
+        System.out.println("Retención de versiones del documento " + documentoId + ": eliminadas " + eliminar);
+        return eliminar.size();
+    }
+
+    // Vuelve a guardar una versión como delta contra la conservada anterior, o
+    // entera si no compensa; devuelve su nueva profundidad en la cadena
+    private int recodificar(Long documentoId, Integer numero, Object[] anterior, Map<Integer, Integer> profundidad) {
+        byte[] contenido = obtenerContenidoVersion(documentoId, numero);
+        DocumentoVersion version = documentoVersionRepository.findByDocumento_IdAndVersion(documentoId, numero).orElseThrow();
+        String tipo = version.getTipoMime();
+        if (anterior != null && profundidad.get((Integer) anterior[0]) < completaCada
+                && anterior[4] != null && (Long) anterior[4] <= bytesMaximos && contenido.length <= bytesMaximos) {
+            Integer base = (Integer) anterior[0];
+            byte[] delta = DeltaBinario.calcular(obtenerContenidoVersion(documentoId, base), contenido);
+            if (delta.length <= contenido.length * proporcionMaxima) {
+                ContenidoCodificado codificado = compresionService.codificar(delta, tipo);
+                version.setVersionBase(base);
+                version.setDatos(codificado.datos());
+                version.setCodificacion(codificado.codificacion());
+                documentoVersionRepository.save(version);
+                return profundidad.get(base) + 1;
+            }
+        }
+
+        version.setAlmacenamiento(DocumentoVersion.COMPLETA);
+        version.setVersionBase(null);
+        if (contenido.length <= fileStorageConfig.getMaxFileSizeBase64()) {
+            ContenidoCodificado codificado = compresionService.codificar(contenido, tipo);
+            version.setDatos(codificado.datos());
+            version.setCodificacion(codificado.codificacion());
+        } else {
+            // Al almacén de blobs, como las versiones enteras grandes al subirlas
+            BlobAlmacenado blob = almacenamientoBlobService.almacenar(
+                    almacenamientoBlobService.recibir(new ByteArrayInputStream(contenido)), tipo);
+            version.setDatos(null);
+            version.setCodificacion(null);
+            version.setRutaArchivo("/uploads/" + blob.getRutaArchivo());
+        }
+        documentoVersionRepository.save(version);
+        return 0;
+    }
+
+    // Las ultimas versiones más recientes y la última de cada uno de los
+    // meses más recientes, contando el actual. versiones viene en orden
+    static Set<Integer> versionesConservadas(List<Object[]> versiones, int ultimas, int meses, YearMonth mesActual) {
+        Set<Integer> conservar = new HashSet<>();
+        for (int i = Math.max(0, versiones.size() - Math.max(1, ultimas)); i < versiones.size(); i++) {
+            conservar.add((Integer) versiones.get(i)[0]);
+        }
+        if (meses > 0) {
+            YearMonth primero = mesActual.minusMonths(meses - 1);
+            Map<YearMonth, Integer> ultimaDelMes = new HashMap<>();
+            for (Object[] fila : versiones) {
+                if (fila[1] != null && !YearMonth.from((LocalDateTime) fila[1]).isBefore(primero)) {
+                    ultimaDelMes.merge(YearMonth.from((LocalDateTime) fila[1]), (Integer) fila[0], Math::max);
+                }
+            }
+            conservar.addAll(ultimaDelMes.values());
+        }
+        return conservar;
+    }
+
+    private byte[] leerCompleta(DocumentoVersion version) {
+        if (version.getDatos() != null) {
+            return compresionService.decodificar(version.getDatos(), version.getCodificacion());
+        }
+        if (version.getHashContenido() != null) {
+            return leerBlob(version.getHashContenido());
+        }
+        // Filas anteriores a los deltas: el archivo está en su ruta
+        return leer(resolver(version.getRutaArchivo()));
+    }
+
+    // Mismo origen que la descarga: la tabla de contenido o el archivo en disco
+    private byte[] leerContenidoActual(Documento doc) {
+        byte[] datos = documentoService.obtenerContenido(doc);
+        if (datos != null) {
+            return datos;
+        }
+        if (doc.getHashContenido() != null && doc.getRutaArchivo().startsWith("/uploads/")) {
+            return leerBlob(doc.getHashContenido());
+        }
+        return doc.getRutaArchivo().startsWith("/uploads/") ? leer(resolver(doc.getRutaArchivo())) : null;
+    }
+
+    private byte[] leerBlob(String hash) {
+        BlobAlmacenado blob = blobAlmacenadoRepository.findById(hash)
+            .orElseThrow(() -> new IllegalStateException("No existe el blob " + hash));
+        Path archivo = Paths.get(fileStorageConfig.getUploadDir()).resolve(blob.getRutaArchivo());
+        try (InputStream in = compresionService.decodificar(Files.newInputStream(archivo), blob.getCodificacion())) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new RuntimeException("Error al leer el archivo: " + e.getMessage(), e);
+        }
+    }
+
+    private Path resolver(String rutaArchivo) {
+        return Paths.get(fileStorageConfig.getUploadDir()).resolve(rutaArchivo.replace("/uploads/", ""));
+    }
+
+    private static byte[] leer(Path archivo) {
+        try {
+            return Files.readAllBytes(archivo);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al leer el archivo: " + e.getMessage(), e);
+        }
+    }
+
+    private static String sha256(byte[] datos) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(datos));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static DocumentoVersionDTO aDTO(DocumentoVersion v) {
+        return new DocumentoVersionDTO(v.getDocumento().getId(), v.getVersion(), v.getNombreOriginal(), v.getTipoMime(),
+                v.getTamano(), v.getHashContenido(), v.getAlmacenamiento(), v.getVersionBase(),
+                v.getDatos() != null ? (long) v.getDatos().length : null,
+                v.getCreadoPor() != null ? v.getCreadoPor().getUsername() : null, v.getFechaCreacion());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+/**
+ *
+ * @author EG490082
+ */
+
+import hn.cus.api_repositorio.dto.EstadisticaDocumentoDTO;
+import hn.cus.api_repositorio.entity.Documento;
+import hn.cus.api_repositorio.entity.EstadisticaDocumento;
+import hn.cus.api_repositorio.entity.EstadisticaDocumentoId;
+import hn.cus.api_repositorio.repository.EstadisticaDocumentoRepository;
+import hn.cus.api_repositorio.service.EstadisticaDocumentoService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class EstadisticaDocumentoServiceImpl implements EstadisticaDocumentoService {
+
+    private static final Set<String> DIMENSIONES = Set.of(TOTAL, USUARIO, TIPO_MIME, TAREA, DIA);
+
+    @Autowired private EstadisticaDocumentoRepository estadisticaDocumentoRepository;
+
+    // Claves de un documento en cada dimensión
+    private record Claves(String usuario, String tipoMime, String tarea, String dia) {}
+
+    @Override
+    public void registrarAlta(Documento doc) {
+        acumular(claves(doc), 1, bytes(doc));
+    }
+
+    @Override
+    public void registrarAltas(List<Documento> docs) {
+        // Un lote suele compartir usuario, tarea y día: pocas actualizaciones para muchos documentos
+        Map<Claves, long[]> grupos = new LinkedHashMap<>();
+        for (Documento doc : docs) {
+            long[] totales = grupos.computeIfAbsent(claves(doc), c -> new long[2]);
+            totales[0]++;
+            totales[1] += bytes(doc);
+        }
+        grupos.forEach((claves, totales) -> acumular(claves, totales[0], totales[1]));
+    }
+
+    @Override
+    public void registrarBaja(Documento doc) {
+        acumular(claves(doc), -1, -bytes(doc));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<EstadisticaDocumentoDTO> obtener(String dimension) {
+        List<EstadisticaDocumento> estadisticas;
+        if (dimension == null) {
+            estadisticas = estadisticaDocumentoRepository.findAll();
+        } else if (DIMENSIONES.contains(dimension)) {
+            estadisticas = estadisticaDocumentoRepository.findByIdDimensionOrderByIdClaveAsc(dimension);
+        } else {
+            throw new IllegalArgumentException("Dimensión no válida: " + dimension + ". Valores: " + DIMENSIONES);
+        }
+        return estadisticas.stream().map(EstadisticaDocumentoDTO::new).toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long totalDocumentos() {
+        return estadisticaDocumentoRepository.findById(new EstadisticaDocumentoId(TOTAL, ""))
+            .map(EstadisticaDocumento::getDocumentos)
+            .orElse(0L);
+    }
+
+    // Sin valor en una dimensión (documento sin tarea, sin usuario...) se usa la clave ""
+    private static Claves claves(Documento doc) {
+        return new Claves(
+            doc.getCreadoPor() != null ? String.valueOf(doc.getCreadoPor().getId()) : "",
+            doc.getTipoMime() != null ? doc.getTipoMime() : "",
+            doc.getIdTarea() != null ? String.valueOf(doc.getIdTarea()) : "",
+            doc.getFechaCreacion() != null ? doc.getFechaCreacion().toLocalDate().toString() : "");
+    }
+
+    private static long bytes(Documento doc) {
+        return doc.getTamano() != null ? doc.getTamano() : 0;
+    }
+
+    private void acumular(Claves c, long documentos, long bytes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            estadisticaDocumentoRepository.acumular(c.usuario(), c.tipoMime(), c.tarea(), c.dia(), documentos, bytes);
+            return;
+        }
+        // Se aplica justo antes del commit: la fila TOTAL, que todas las altas
+        // comparten, queda bloqueada solo durante el commit y no toda la subida.
+        // Si la transacción hace rollback los contadores no se tocan
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                estadisticaDocumentoRepository.acumular(c.usuario(), c.tipoMime(), c.tarea(), c.dia(), documentos, bytes);
+            }
+        });
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+/**
+ *
+ * @author EG490082
+ */
+
+import hn.cus.api_repositorio.dto.CambiosMetadatosDTO;
+import hn.cus.api_repositorio.dto.MetadatosDocumentoRequest;
+import hn.cus.api_repositorio.repository.DocumentoRepository;
+import hn.cus.api_repositorio.repository.MetadataRepository;
+import hn.cus.api_repositorio.service.BusquedaService;
+import hn.cus.api_repositorio.service.MetadataService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+@Service
+public class MetadataServiceImpl implements MetadataService {
+
+    private static final int LONGITUD_CLAVE_MAXIMA = 100;
+    private static final int LONGITUD_VALOR_MAXIMA = 255;
+
+    @Autowired private MetadataRepository metadataRepository;
+    @Autowired private DocumentoRepository documentoRepository;
+    @Autowired private BusquedaService busquedaService;
+
+    @Value("${app.metadatos.lote.documentos-maximos:1000}")
+    private int documentosMaximos;
+
+    @Value("${app.metadatos.lote.pares-maximos:50000}")
+    private int paresMaximos;
+
+    @Override
+    @Transactional
+    public List<CambiosMetadatosDTO> escribirLote(List<MetadatosDocumentoRequest> lote) {
+        if (lote == null || lote.isEmpty()) {
+            throw new IllegalArgumentException("El lote de metadatos está vacío");
+        }
+
+        // Por documento y clave ordenados: dos cargas simultáneas bloquean las
+        // filas en el mismo orden y no se interbloquean. Un documento repetido
+        // en el lote se combina; la última aparición de cada clave gana
+        Map<Long, Map<String, String>> porDocumento = new TreeMap<>();
+        Set<Long> reemplazar = new TreeSet<>();
+        int pares = 0;
+        for (MetadatosDocumentoRequest entrada : lote) {
+            if (entrada == null || entrada.getDocumentoId() == null) {
+                throw new IllegalArgumentException("Cada elemento del lote necesita documentoId");
+            }
+            Map<String, String> metadatos = porDocumento.computeIfAbsent(entrada.getDocumentoId(), id -> new TreeMap<>());
+            if (entrada.isReemplazar()) {
+                reemplazar.add(entrada.getDocumentoId());
+            }
+            if (entrada.getMetadatos() == null) {
+                continue;
+            }
+            for (Map.Entry<String, String> par : entrada.getMetadatos().entrySet()) {
+                validar(entrada.getDocumentoId(), par.getKey(), par.getValue());
+                if (metadatos.put(par.getKey(), par.getValue()) == null) {
+                    pares++;
+                }
+            }
+        }
+        if (porDocumento.size() > documentosMaximos) {
+            throw new IllegalArgumentException("El lote no puede tener más de " + documentosMaximos + " documentos");
+        }
+        if (pares > paresMaximos) {
+            throw new IllegalArgumentException("El lote no puede tener más de " + paresMaximos + " metadatos");
+        }
+
+        Set<Long> inexistentes = new TreeSet<>(porDocumento.keySet());
+        documentoRepository.buscarIdsExistentes(porDocumento.keySet()).forEach(inexistentes::remove);
+        if (!inexistentes.isEmpty()) {
+            throw new IllegalArgumentException("Documentos no encontrados: " + inexistentes);
+        }
+
+        Long[] documentos = new Long[pares];
+        String[] claves = new String[pares];
+        String[] valores = new String[pares];
+        int i = 0;
+        for (Map.Entry<Long, Map<String, String>> documento : porDocumento.entrySet()) {
+            for (Map.Entry<String, String> par : documento.getValue().entrySet()) {
+                documentos[i] = documento.getKey();
+                claves[i] = par.getKey();
+                valores[i] = par.getValue();
+                i++;
+            }
+        }
+
+        Map<Long, CambiosMetadatosDTO> cambios = new TreeMap<>();
+        for (Object[] fila : metadataRepository.escribirLote(documentos, claves, valores, reemplazar.toArray(new Long[0]))) {
+            Long documentoId = ((Number) fila[0]).longValue();
+            CambiosMetadatosDTO cambio = cambios.computeIfAbsent(documentoId, CambiosMetadatosDTO::new);
+            switch ((String) fila[3]) {
+                case "AGREGADA" -> cambio.getAgregadas().put((String) fila[1], (String) fila[2]);
+                case "MODIFICADA" -> cambio.getModificadas().put((String) fila[1], (String) fila[2]);
+                default -> cambio.getEliminadas().add((String) fila[1]);
+            }
+        }
+        cambios.values().forEach(cambio -> cambio.getEliminadas().sort(null));
+
+        busquedaService.actualizarMetadatosAlConfirmar(new HashSet<>(cambios.keySet()));
+        return new ArrayList<>(cambios.values());
+    }
+
+    private static void validar(Long documentoId, String clave, String valor) {
+        if (clave == null || clave.isBlank() || clave.length() > LONGITUD_CLAVE_MAXIMA) {
+            throw new IllegalArgumentException("Clave inválida en el documento " + documentoId
+                    + ": debe tener entre 1 y " + LONGITUD_CLAVE_MAXIMA + " caracteres");
+        }
+        if (valor == null) {
+            throw new IllegalArgumentException("Valor nulo para " + clave + " en el documento " + documentoId
+                    + "; para eliminar una clave se envía el documento con reemplazar");
+        }
+        if (valor.length() > LONGITUD_VALOR_MAXIMA) {
+            throw new IllegalArgumentException("Valor de " + clave + " en el documento " + documentoId
+                    + " demasiado largo (máximo " + LONGITUD_VALOR_MAXIMA + " caracteres)");
+        }
+    }
+}
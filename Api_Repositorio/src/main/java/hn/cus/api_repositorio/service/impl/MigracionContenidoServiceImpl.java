@@ -0,0 +1,100 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+/**
+ *
+ * @author EG490082
+ */
+
+import hn.cus.api_repositorio.entity.Documento;
+import hn.cus.api_repositorio.entity.DocumentoContenido;
+import hn.cus.api_repositorio.repository.DocumentoContenidoRepository;
+import hn.cus.api_repositorio.service.CompresionService;
+import hn.cus.api_repositorio.service.CompresionService.ContenidoCodificado;
+import hn.cus.api_repositorio.service.MigracionContenidoService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+@Service
+public class MigracionContenidoServiceImpl implements MigracionContenidoService {
+
+    @Autowired private DocumentoContenidoRepository documentoContenidoRepository;
+    @Autowired private CompresionService compresionService;
+
+    @Value("${app.migracion-binario.lote:50}")
+    private int tamanoLote;
+
+    // Último id revisado. Las filas con Base64 inválido se quedan atrás y no
+    // se vuelven a leer en cada pasada
+    private volatile long ultimoId = 0;
+
+    // Nada escribe ya contenido_base64, así que al terminar una pasada no
+    // vuelven a aparecer filas pendientes
+    private volatile boolean completada = false;
+
+    @Override
+    @Transactional
+    @Scheduled(initialDelayString = "${app.migracion-binario.intervalo-ms:60000}",
+               fixedDelayString = "${app.migracion-binario.intervalo-ms:60000}")
+    public int migrarLote() {
+        if (completada) {
+            return 0;
+        }
+
+        List<DocumentoContenido> pendientes = documentoContenidoRepository
+                .findByContenidoBase64IsNotNullAndIdGreaterThanOrderByIdAsc(ultimoId, PageRequest.of(0, tamanoLote));
+        if (pendientes.isEmpty()) {
+            completada = true;
+            System.out.println("Migración de contenido Base64 a binario finalizada");
+            return 0;
+        }
+
+        int migrados = 0;
+        List<Long> largeObjects = new ArrayList<>();
+        for (DocumentoContenido pendiente : pendientes) {
+            ultimoId = pendiente.getId();
+            byte[] contenido;
+            try {
+                contenido = Base64.getDecoder().decode(pendiente.getContenidoBase64());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Documento " + pendiente.getId() + " con Base64 inválido, no se migra: " + e.getMessage());
+                continue;
+            }
+            String referencia = documentoContenidoRepository.obtenerReferenciaContenidoBase64(pendiente.getId());
+            if (referencia != null && referencia.matches("\\d+")) {
+                largeObjects.add(Long.valueOf(referencia));
+            }
+            Documento doc = pendiente.getDocumento();
+            // Misma regla de compresión que los documentos nuevos
+            ContenidoCodificado codificado = compresionService.codificar(contenido, doc.getTipoMime());
+            pendiente.setContenidoBinario(codificado.datos());
+            pendiente.setCodificacion(codificado.codificacion());
+            pendiente.setContenidoBase64(null);
+            if (doc.getTamano() == null) {
+                doc.setTamano((long) contenido.length);
+            }
+            migrados++;
+        }
+
+        // Las filas ya no apuntan a sus large objects; se liberan en la misma transacción
+        documentoContenidoRepository.flush();
+        for (Long oid : largeObjects) {
+            documentoContenidoRepository.liberarLargeObject(oid);
+        }
+
+        System.out.println("Documentos migrados a contenido binario: " + migrados);
+        return migrados;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+/**
+ *
+ * @author EG490082
+ */
+
+import hn.cus.api_repositorio.config.FileStorageConfig;
+import hn.cus.api_repositorio.entity.BlobAlmacenado;
+import hn.cus.api_repositorio.entity.Documento;
+import hn.cus.api_repositorio.repository.BlobAlmacenadoRepository;
+import hn.cus.api_repositorio.repository.DocumentoRepository;
+import hn.cus.api_repositorio.repository.DocumentoVersionRepository;
+import hn.cus.api_repositorio.service.AlmacenamientoBlobService;
+import hn.cus.api_repositorio.service.AlmacenamientoBlobService.ArchivoTemporal;
+import hn.cus.api_repositorio.service.CompresionService;
+import hn.cus.api_repositorio.service.MigracionFanoutService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+public class MigracionFanoutServiceImpl implements MigracionFanoutService {
+
+    private static final String PREFIJO = "/uploads/";
+
+    @Autowired private BlobAlmacenadoRepository blobAlmacenadoRepository;
+    @Autowired private DocumentoRepository documentoRepository;
+    @Autowired private DocumentoVersionRepository documentoVersionRepository;
+    @Autowired private AlmacenamientoBlobService almacenamientoBlobService;
+    @Autowired private FileStorageConfig fileStorageConfig;
+    @Autowired private CompresionService compresionService;
+
+    @Value("${app.upload.fanout.migracion-lote:100}")
+    private int tamanoLote;
+
+    // Primero se recorren los blobs por hash y después los archivos antiguos
+    // sin hash por id; los blobs y archivos nuevos ya se guardan en su lugar
+    private volatile String ultimoHash = "";
+    private volatile long ultimoId = 0;
+    private volatile boolean blobsCompletados = false;
+    private volatile boolean completada = false;
+
+    @Override
+    @Transactional
+    @Scheduled(initialDelayString = "${app.upload.fanout.migracion-intervalo-ms:60000}",
+               fixedDelayString = "${app.upload.fanout.migracion-intervalo-ms:60000}")
+    public int migrarLote() {
+        if (completada) {
+            return 0;
+        }
+        int movidos = blobsCompletados ? migrarArchivosAntiguos() : migrarBlobs();
+        if (movidos > 0) {
+            System.out.println("Archivos reubicados en subdirectorios: " + movidos);
+        }
+        return movidos;
+    }
+
+    private int migrarBlobs() {
+        List<BlobAlmacenado> blobs = blobAlmacenadoRepository
+                .findByHashGreaterThanOrderByHashAsc(ultimoHash, PageRequest.of(0, tamanoLote));
+        if (blobs.isEmpty()) {
+            blobsCompletados = true;
+            return 0;
+        }
+
+        int movidos = 0;
+        for (BlobAlmacenado pendiente : blobs) {
+            ultimoHash = pendiente.getHash();
+            String nueva = fileStorageConfig.rutaBlob(pendiente.getHash())
+                    + compresionService.sufijo(pendiente.getCodificacion());
+            if (nueva.equals(pendiente.getRutaArchivo())) {
+                continue;
+            }
+            // Con la fila bloqueada no hay altas ni bajas concurrentes del mismo blob
+            BlobAlmacenado blob = blobAlmacenadoRepository.bloquearPorHash(pendiente.getHash()).orElse(null);
+            if (blob == null || nueva.equals(blob.getRutaArchivo())) {
+                continue;
+            }
+            String anterior = blob.getRutaArchivo();
+            if (!enlazar(resolver(anterior), resolver(nueva))) {
+                continue;
+            }
+            blob.setRutaArchivo(nueva);
+            documentoRepository.actualizarRutaArchivo(blob.getHash(), PREFIJO + anterior, PREFIJO + nueva);
+            documentoVersionRepository.actualizarRutaArchivo(blob.getHash(), PREFIJO + anterior, PREFIJO + nueva);
+            movidos++;
+        }
+        return movidos;
+    }
+
+    // Documentos con archivo físico anteriores al almacén por contenido: se
+    // incorporan como blobs, con lo que también quedan en subdirectorios
+    private int migrarArchivosAntiguos() {
+        List<Documento> documentos = documentoRepository
+                .findByHashContenidoIsNullAndRutaArchivoStartingWithAndIdGreaterThanOrderByIdAsc(
+                        PREFIJO, ultimoId, PageRequest.of(0, tamanoLote));
+        if (documentos.isEmpty()) {
+            completada = true;
+            System.out.println("Migración a subdirectorios por hash finalizada");
+            return 0;
+        }
+
+        int movidos = 0;
+        for (Documento doc : documentos) {
+            ultimoId = doc.getId();
+            Path origen = resolver(doc.getRutaArchivo().substring(PREFIJO.length()));
+            // Los documentos subidos por /uploadBase64 tienen ruta pero no archivo
+            if (!Files.isRegularFile(origen)) {
+                continue;
+            }
+            Path temporal = Paths.get(fileStorageConfig.getTmpDir()).resolve(UUID.randomUUID() + ".tmp");
+            if (!enlazar(origen, temporal)) {
+                continue;
+            }
+            ArchivoTemporal archivo = almacenamientoBlobService.desdeArchivo(temporal, null);
+            BlobAlmacenado blob = almacenamientoBlobService.almacenar(archivo, doc.getTipoMime());
+            // Solo las dos columnas del blob: guardar la entidad escribiría la fila
+            // entera, leída al empezar el lote, encima de lo que otra petición haya
+            // cambiado desde entonces (nombre, visibilidad...)
+            documentoRepository.asignarBlob(doc.getId(), blob.getHash(), PREFIJO + blob.getRutaArchivo());
+            movidos++;
+        }
+        return movidos;
+    }
+
+    /**
+     * Deja el archivo también en destino con un enlace duro (o una copia si el
+     * sistema de archivos no los admite). Mientras la transacción no confirme,
+     * las descargas siguen encontrando el archivo en su ruta anterior; al
+     * confirmar se borra el origen y si hace rollback se quita el destino.
+     */
+    private boolean enlazar(Path origen, Path destino) {
+        boolean creado;
+        try {
+            Files.createDirectories(destino.getParent());
+            try {
+                Files.createLink(destino, origen);
+            } catch (UnsupportedOperationException e) {
+                Files.copy(origen, destino);
+            }
+            creado = true;
+        } catch (FileAlreadyExistsException e) {
+            // Mismo hash, mismo contenido: el destino ya sirve
+            creado = false;
+        } catch (IOException e) {
+            System.err.println("No se pudo reubicar " + origen + ": " + e.getMessage());
+            return false;
+        }
+
+        Path creadoEnDestino = creado ? destino : null;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                borrarSilencioso(status == STATUS_COMMITTED ? origen : creadoEnDestino);
+            }
+        });
+        return true;
+    }
+
+    private Path resolver(String rutaRelativa) {
+        return Paths.get(fileStorageConfig.getUploadDir()).resolve(rutaRelativa);
+    }
+
+    private static void borrarSilencioso(Path archivo) {
+        if (archivo == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            System.err.println("No se pudo eliminar " + archivo + ": " + e.getMessage());
+        }
+    }
+}
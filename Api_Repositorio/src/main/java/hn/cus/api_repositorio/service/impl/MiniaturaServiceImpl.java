@@ -0,0 +1,436 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+/**
+ *
+ * @author EG490082
+ */
+
+import hn.cus.api_repositorio.config.FileStorageConfig;
+import hn.cus.api_repositorio.entity.BlobAlmacenado;
+import hn.cus.api_repositorio.entity.Documento;
+import hn.cus.api_repositorio.entity.DocumentoContenido;
+import hn.cus.api_repositorio.entity.DocumentoMiniatura;
+import hn.cus.api_repositorio.entity.DocumentoMiniaturaId;
+import hn.cus.api_repositorio.repository.BlobAlmacenadoRepository;
+import hn.cus.api_repositorio.repository.DocumentoContenidoRepository;
+import hn.cus.api_repositorio.repository.DocumentoMiniaturaRepository;
+import hn.cus.api_repositorio.repository.DocumentoRepository;
+import hn.cus.api_repositorio.service.AlmacenamientoBlobService;
+import hn.cus.api_repositorio.service.CompresionService;
+import hn.cus.api_repositorio.service.MiniaturaService;
+
+import jakarta.annotation.PostConstruct;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+public class MiniaturaServiceImpl implements MiniaturaService {
+
+    private static final String PDF = "application/pdf";
+    private static final String JPEG = "image/jpeg";
+
+    @Autowired private DocumentoMiniaturaRepository documentoMiniaturaRepository;
+    @Autowired private DocumentoRepository documentoRepository;
+    @Autowired private DocumentoContenidoRepository documentoContenidoRepository;
+    @Autowired private BlobAlmacenadoRepository blobAlmacenadoRepository;
+    @Autowired private AlmacenamientoBlobService almacenamientoBlobService;
+    @Autowired private CompresionService compresionService;
+    @Autowired private FileStorageConfig fileStorageConfig;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("miniaturasExecutor")
+    private TaskExecutor miniaturasExecutor;
+
+    // Lado mayor en píxeles; las imágenes más pequeñas no se amplían
+    @Value("${app.miniaturas.lado-miniatura:256}")
+    private int ladoMiniatura;
+
+    @Value("${app.miniaturas.lado-vista-previa:1024}")
+    private int ladoVistaPrevia;
+
+    @Value("${app.miniaturas.calidad-jpeg:0.8}")
+    private float calidadJpeg;
+
+    // Archivos más grandes no se renderizan
+    @Value("${app.miniaturas.bytes-maximos:52428800}")
+    private long bytesMaximos;
+
+    @Value("${app.miniaturas.pendientes-lote:50}")
+    private int tamanoLote;
+
+    private TransactionTemplate transaccion;
+    private TransactionTemplate lectura;
+
+    private final AtomicBoolean pendientesEnCurso = new AtomicBoolean();
+
+    // PDF (primera página) y los formatos de imagen que lee ImageIO
+    private final Set<String> tiposRenderizables = new HashSet<>();
+
+    @PostConstruct
+    public void init() {
+        transaccion = new TransactionTemplate(transactionManager);
+        lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        tiposRenderizables.add(PDF);
+        for (String tipo : ImageIO.getReaderMIMETypes()) {
+            tiposRenderizables.add(tipo.toLowerCase());
+        }
+    }
+
+    @Override
+    public void generarAlConfirmar(Documento doc) {
+        if (renderizable(doc)) {
+            Long id = doc.getId();
+            alConfirmar(() -> encolar(id));
+        }
+    }
+
+    @Override
+    public void generarAlConfirmar(List<Documento> docs) {
+        List<Long> ids = docs.stream().filter(this::renderizable).map(Documento::getId).toList();
+        if (!ids.isEmpty()) {
+            alConfirmar(() -> ids.forEach(this::encolar));
+        }
+    }
+
+    // Con la cola llena se descarta: lo recoge después generarPendientes
+    private void encolar(Long id) {
+        try {
+            miniaturasExecutor.execute(() -> generarSilencioso(id));
+        } catch (TaskRejectedException e) {
+            System.out.println("Cola de miniaturas llena; el documento " + id + " queda pendiente");
+        }
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${app.miniaturas.pendientes-intervalo-ms:60000}",
+               fixedDelayString = "${app.miniaturas.pendientes-intervalo-ms:60000}")
+    public void programarPendientes() {
+        // Renderizar un lote puede tardar minutos y el planificador tiene un solo
+        // hilo para todas las tareas programadas (entre ellas la sincronización de
+        // tokens revocados): el lote va al pool de miniaturas, uno cada vez
+        if (!pendientesEnCurso.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            miniaturasExecutor.execute(() -> {
+                try {
+                    generarPendientes();
+                } catch (RuntimeException e) {
+                    System.err.println("Error al generar miniaturas pendientes: " + e.getMessage());
+                } finally {
+                    pendientesEnCurso.set(false);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            pendientesEnCurso.set(false);
+        }
+    }
+
+    @Override
+    public int generarPendientes() {
+        List<Long> pendientes = documentoMiniaturaRepository.buscarSinGenerar(tiposRenderizables, tamanoLote);
+        int generados = 0;
+        for (Long id : pendientes) {
+            if (generarSilencioso(id)) {
+                generados++;
+            }
+        }
+        if (generados > 0) {
+            System.out.println("Miniaturas: " + generados + " documentos pendientes procesados");
+        }
+        return generados;
+    }
+
+    @Override
+    public DocumentoMiniatura obtener(Long documentoId, String tipo) {
+        Documento doc = documentoRepository.findById(documentoId)
+            .orElseThrow(() -> new IllegalArgumentException("Documento no encontrado con ID: " + documentoId));
+        if (!renderizable(doc)) {
+            return null;
+        }
+        DocumentoMiniaturaId id = new DocumentoMiniaturaId(documentoId, tipo);
+        DocumentoMiniatura miniatura = documentoMiniaturaRepository.findById(id).orElse(null);
+        if (!vigente(miniatura, doc)) {
+            // Aún en la cola, de antes de las miniaturas o con el archivo perdido
+            generar(doc);
+            miniatura = documentoMiniaturaRepository.findById(id).orElse(null);
+        }
+        return miniatura != null && miniatura.getHashBlob() != null ? miniatura : null;
+    }
+
+    @Override
+    public byte[] leer(DocumentoMiniatura miniatura) {
+        BlobAlmacenado blob = blobAlmacenadoRepository.findById(miniatura.getHashBlob())
+            .orElseThrow(() -> new IllegalStateException("No existe el blob " + miniatura.getHashBlob()));
+        try {
+            byte[] datos = Files.readAllBytes(Paths.get(fileStorageConfig.getUploadDir()).resolve(blob.getRutaArchivo()));
+            return compresionService.decodificar(datos, blob.getCodificacion());
+        } catch (IOException e) {
+            throw new RuntimeException("Error al leer la miniatura: " + e.getMessage(), e);
+        }
+    }
+
+    // Generada del contenido actual y, si se pudo renderizar, con su archivo en disco
+    private boolean vigente(DocumentoMiniatura miniatura, Documento doc) {
+        if (miniatura == null || !Objects.equals(miniatura.getHashOrigen(), doc.getHashContenido())) {
+            return false;
+        }
+        if (miniatura.getHashBlob() == null) {
+            return true;
+        }
+        return blobAlmacenadoRepository.findById(miniatura.getHashBlob())
+            .map(blob -> Files.exists(Paths.get(fileStorageConfig.getUploadDir()).resolve(blob.getRutaArchivo())))
+            .orElse(false);
+    }
+
+    // Un error al generar no afecta a la subida, que ya está confirmada;
+    // el documento sigue pendiente y lo recoge generarPendientes
+    private boolean generarSilencioso(Long documentoId) {
+        try {
+            Documento doc = documentoRepository.findById(documentoId).orElse(null);
+            if (doc == null) {
+                return false;
+            }
+            generar(doc);
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("Error al generar las miniaturas del documento " + documentoId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private record Imagen(String tipo, byte[] jpeg, int ancho, int alto) {}
+
+    private void generar(Documento doc) {
+        // Un archivo que no se puede renderizar se registra sin imagen y no se
+        // reintenta hasta que el documento tenga otro contenido
+        List<Imagen> imagenes = new ArrayList<>();
+        try {
+            BufferedImage vistaPrevia = escalar(renderizar(doc), ladoVistaPrevia);
+            BufferedImage miniatura = escalar(vistaPrevia, ladoMiniatura);
+            imagenes.add(new Imagen(DocumentoMiniatura.VISTA_PREVIA, codificarJpeg(vistaPrevia),
+                    vistaPrevia.getWidth(), vistaPrevia.getHeight()));
+            imagenes.add(new Imagen(DocumentoMiniatura.MINIATURA, codificarJpeg(miniatura),
+                    miniatura.getWidth(), miniatura.getHeight()));
+        } catch (Exception e) {
+            System.err.println("No se pudo renderizar el documento " + doc.getId() + ": " + e.getMessage());
+            imagenes.clear();
+        }
+
+        List<DocumentoMiniatura> filas = new ArrayList<>();
+        List<String> nuevos = new ArrayList<>();
+        if (imagenes.isEmpty()) {
+            filas.add(fila(doc, DocumentoMiniatura.VISTA_PREVIA, null, null, null));
+            filas.add(fila(doc, DocumentoMiniatura.MINIATURA, null, null, null));
+        }
+        for (Imagen imagen : imagenes) {
+            BlobAlmacenado blob = almacenamientoBlobService.almacenar(
+                    almacenamientoBlobService.recibir(new ByteArrayInputStream(imagen.jpeg())), JPEG);
+            nuevos.add(blob.getHash());
+            filas.add(fila(doc, imagen.tipo(), blob.getHash(), imagen.ancho(), imagen.alto()));
+        }
+
+        // Con el documento bloqueado, como una versión nueva: si cambió mientras
+        // se renderizaba, o se eliminó, estas imágenes ya no sirven
+        List<String> liberar = transaccion.execute(estado -> {
+            Documento actual = documentoRepository.bloquearPorId(doc.getId()).orElse(null);
+            if (actual == null || !Objects.equals(actual.getHashContenido(), doc.getHashContenido())) {
+                return nuevos;
+            }
+            List<String> anteriores = new ArrayList<>();
+            for (DocumentoMiniatura fila : filas) {
+                documentoMiniaturaRepository.findById(fila.getId())
+                    .map(DocumentoMiniatura::getHashBlob)
+                    .ifPresent(anteriores::add);
+                documentoMiniaturaRepository.save(fila);
+            }
+            return anteriores;
+        });
+        liberar.forEach(almacenamientoBlobService::liberar);
+    }
+
+    private static DocumentoMiniatura fila(Documento doc, String tipo, String hashBlob, Integer ancho, Integer alto) {
+        DocumentoMiniatura fila = new DocumentoMiniatura();
+        fila.setId(new DocumentoMiniaturaId(doc.getId(), tipo));
+        fila.setHashOrigen(doc.getHashContenido());
+        fila.setHashBlob(hashBlob);
+        fila.setAncho(ancho);
+        fila.setAlto(alto);
+        return fila;
+    }
+
+    // Imagen de al menos el tamaño de la vista previa: la primera página del PDF
+    // o la imagen leída saltando píxeles si es mucho mayor
+    private BufferedImage renderizar(Documento doc) throws IOException {
+        if (doc.getTamano() != null && doc.getTamano() > bytesMaximos) {
+            throw new IOException("El archivo supera " + bytesMaximos + " bytes");
+        }
+        try (InputStream in = abrirContenido(doc)) {
+            if (in == null) {
+                throw new IOException("El documento no tiene contenido");
+            }
+            if (PDF.equalsIgnoreCase(doc.getTipoMime())) {
+                try (PDDocument pdf = Loader.loadPDF(new RandomAccessReadBuffer(in))) {
+                    if (pdf.getNumberOfPages() == 0) {
+                        throw new IOException("El PDF no tiene páginas");
+                    }
+                    PDRectangle pagina = pdf.getPage(0).getCropBox();
+                    float escala = ladoVistaPrevia / Math.max(pagina.getWidth(), pagina.getHeight());
+                    return new PDFRenderer(pdf).renderImage(0, escala, ImageType.RGB);
+                }
+            }
+
+            try (ImageInputStream entrada = ImageIO.createImageInputStream(in)) {
+                Iterator<ImageReader> lectores = ImageIO.getImageReaders(entrada);
+                if (!lectores.hasNext()) {
+                    throw new IOException("Formato de imagen no reconocido");
+                }
+                ImageReader lector = lectores.next();
+                try {
+                    lector.setInput(entrada, true, true);
+                    // Una foto de 50 MP no se decodifica entera: se lee 1 de cada n
+                    // píxeles y queda algo mayor que la vista previa
+                    int lado = Math.max(lector.getWidth(0), lector.getHeight(0));
+                    int salto = Math.max(1, lado / ladoVistaPrevia);
+                    ImageReadParam parametros = lector.getDefaultReadParam();
+                    parametros.setSourceSubsampling(salto, salto, 0, 0);
+                    return lector.read(0, parametros);
+                } finally {
+                    lector.dispose();
+                }
+            }
+        }
+    }
+
+    // Reduce a la mitad por pasos y después al tamaño final: reducir de una vez
+    // una imagen mucho mayor con interpolación bilineal pierde detalle y deja
+    // dientes de sierra. Siempre devuelve RGB sobre fondo blanco, como el JPEG
+    static BufferedImage escalar(BufferedImage origen, int lado) {
+        double factor = Math.min(1.0, (double) lado / Math.max(origen.getWidth(), origen.getHeight()));
+        int anchoFinal = Math.max(1, (int) Math.round(origen.getWidth() * factor));
+        int altoFinal = Math.max(1, (int) Math.round(origen.getHeight() * factor));
+        BufferedImage actual = origen;
+        do {
+            int ancho = Math.max(anchoFinal, actual.getWidth() / 2);
+            int alto = Math.max(altoFinal, actual.getHeight() / 2);
+            BufferedImage siguiente = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = siguiente.createGraphics();
+            try {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, ancho, alto);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(actual, 0, 0, ancho, alto, null);
+            } finally {
+                g.dispose();
+            }
+            actual = siguiente;
+        } while (actual.getWidth() != anchoFinal || actual.getHeight() != altoFinal);
+        return actual;
+    }
+
+    private byte[] codificarJpeg(BufferedImage imagen) throws IOException {
+        ImageWriter escritor = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (ImageOutputStream destino = ImageIO.createImageOutputStream(salida)) {
+            escritor.setOutput(destino);
+            ImageWriteParam parametros = escritor.getDefaultWriteParam();
+            parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            parametros.setCompressionQuality(calidadJpeg);
+            escritor.write(null, new IIOImage(imagen, null, null), parametros);
+        } finally {
+            escritor.dispose();
+        }
+        return salida.toByteArray();
+    }
+
+    // Mismo origen que la descarga: la tabla de contenido o el archivo en disco, descomprimido
+    private InputStream abrirContenido(Documento doc) throws IOException {
+        // En transacción por las filas antiguas, cuyo Base64 es un large object
+        DocumentoContenido contenido = lectura.execute(
+                estado -> documentoContenidoRepository.findById(doc.getId()).orElse(null));
+        if (contenido != null) {
+            if (contenido.getContenidoBinario() != null) {
+                return new ByteArrayInputStream(
+                        compresionService.decodificar(contenido.getContenidoBinario(), contenido.getCodificacion()));
+            }
+            if (contenido.getContenidoBase64() != null && !contenido.getContenidoBase64().isEmpty()) {
+                return new ByteArrayInputStream(Base64.getDecoder().decode(contenido.getContenidoBase64()));
+            }
+        }
+
+        if (doc.getRutaArchivo() == null || !doc.getRutaArchivo().startsWith("/uploads/")) {
+            return null;
+        }
+        Path archivo = Paths.get(fileStorageConfig.getUploadDir()).resolve(doc.getRutaArchivo().replace("/uploads/", ""));
+        String codificacion = doc.getHashContenido() != null
+                ? blobAlmacenadoRepository.findById(doc.getHashContenido()).map(BlobAlmacenado::getCodificacion).orElse(null)
+                : null;
+        return compresionService.decodificar(Files.newInputStream(archivo), codificacion);
+    }
+
+    private boolean renderizable(Documento doc) {
+        return doc.getTipoMime() != null && tiposRenderizables.contains(doc.getTipoMime().toLowerCase());
+    }
+
+    private static void alConfirmar(Runnable tarea) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            tarea.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                tarea.run();
+            }
+        });
+    }
+}
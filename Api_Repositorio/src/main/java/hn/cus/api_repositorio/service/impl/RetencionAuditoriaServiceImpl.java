@@ -0,0 +1,61 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+/**
+ *
+ * @author EG490082
+ */
+
+import hn.cus.api_repositorio.repository.AuditLogRepository;
+import hn.cus.api_repositorio.service.RetencionAuditoriaService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Service
+public class RetencionAuditoriaServiceImpl implements RetencionAuditoriaService {
+
+    @Autowired private AuditLogRepository auditLogRepository;
+
+    // Meses completos que se conservan además del actual; 0 conserva todo
+    @Value("${app.auditoria.retencion-meses:12}")
+    private int retencionMeses;
+
+    // Particiones creadas por adelantado: audit_log no tiene partición por
+    // defecto y un evento sin partición no se podría insertar
+    @Value("${app.auditoria.meses-adelante:3}")
+    private int mesesAdelante;
+
+    @Override
+    @Scheduled(initialDelayString = "${app.auditoria.mantenimiento-retraso-ms:30000}",
+               fixedDelayString = "${app.auditoria.mantenimiento-intervalo-ms:86400000}")
+    public int mantenerParticiones() {
+        if (!auditLogRepository.estaParticionada()) {
+            System.out.println("audit_log no está particionada, se omite el mantenimiento (db/009)");
+            return 0;
+        }
+        LocalDate hoy = LocalDate.now();
+        int creadas = auditLogRepository.crearParticiones(hoy, hoy.plusMonths(mesesAdelante));
+        if (creadas > 0) {
+            System.out.println("Particiones de auditoría creadas: " + creadas);
+        }
+        if (retencionMeses <= 0) {
+            return 0;
+        }
+        // DROP de meses completos en lugar de DELETE fila a fila
+        LocalDate limite = hoy.withDayOfMonth(1).minusMonths(retencionMeses);
+        List<String> eliminadas = auditLogRepository.eliminarParticiones(limite);
+        if (!eliminadas.isEmpty()) {
+            System.out.println("Particiones de auditoría eliminadas por retención: " + eliminadas);
+        }
+        return eliminadas.size();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+/**
+ *
+ * @author EG490082
+ */
+
+import hn.cus.api_repositorio.repository.DocumentoVersionRepository;
+import hn.cus.api_repositorio.service.DocumentoVersionService;
+import hn.cus.api_repositorio.service.RetencionVersionesService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public class RetencionVersionesServiceImpl implements RetencionVersionesService {
+
+    @Autowired private DocumentoVersionRepository documentoVersionRepository;
+    @Autowired private DocumentoVersionService documentoVersionService;
+
+    // Versiones más recientes que se conservan siempre; 0 desactiva la retención
+    @Value("${app.versiones.retencion.ultimas:20}")
+    private int ultimas;
+
+    // Además, la última versión de cada uno de los últimos meses (el actual incluido)
+    @Value("${app.versiones.retencion.meses:12}")
+    private int meses;
+
+    @Value("${app.versiones.retencion.lote:100}")
+    private int tamanoLote;
+
+    // Los documentos se recorren por id; al terminar la pasada se vuelve a empezar
+    private volatile long ultimoId = 0;
+
+    @Override
+    @Scheduled(initialDelayString = "${app.versiones.retencion.intervalo-ms:3600000}",
+               fixedDelayString = "${app.versiones.retencion.intervalo-ms:3600000}")
+    public int aplicarLote() {
+        if (ultimas <= 0) {
+            return 0;
+        }
+        List<Long> documentos = documentoVersionRepository.buscarDocumentosConVersionesDeMas(
+                ultimoId, ultimas, PageRequest.of(0, tamanoLote));
+        if (documentos.isEmpty()) {
+            ultimoId = 0;
+            return 0;
+        }
+
+        // Una transacción por documento: solo se bloquean sus versiones y poco tiempo
+        int eliminadas = 0;
+        for (Long documentoId : documentos) {
+            ultimoId = documentoId;
+            try {
+                eliminadas += documentoVersionService.aplicarRetencion(documentoId, ultimas, meses);
+            } catch (RuntimeException e) {
+                System.err.println("Error en la retención de versiones del documento " + documentoId + ": " + e.getMessage());
+            }
+        }
+        if (eliminadas > 0) {
+            System.out.println("Retención de versiones: " + eliminadas + " eliminadas en " + documentos.size() + " documentos");
+        }
+        return eliminadas;
+    }
+}
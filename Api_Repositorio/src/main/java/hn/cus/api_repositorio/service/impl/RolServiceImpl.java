@@ -4,6 +4,7 @@ import hn.cus.api_repositorio.entity.Permiso;
 import hn.cus.api_repositorio.entity.Rol;
 import hn.cus.api_repositorio.repository.PermisoRepository;
 import hn.cus.api_repositorio.repository.RolRepository;
+import hn.cus.api_repositorio.service.AuthorizationService;
 import hn.cus.api_repositorio.service.RolService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -26,6 +27,9 @@ public class RolServiceImpl implements RolService {
     @Autowired
     private PermisoRepository permisoRepository;
 
+    @Autowired
+    private AuthorizationService authorizationService;
+
     @Override
     public List<Rol> obtenerTodosLosRoles() {
         return rolRepository.findAll();
@@ -116,6 +120,9 @@ public class RolServiceImpl implements RolService {
                 System.out.println("Rol guardado con permisos");
             }
             
+            // Los permisos compilados de los usuarios con este rol quedan obsoletos
+            authorizationService.invalidarTodos();
+
             System.out.println("=== FIN actualizarRol ===");
             return rolExistente;
             
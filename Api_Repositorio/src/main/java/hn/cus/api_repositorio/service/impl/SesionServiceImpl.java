@@ -0,0 +1,137 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+/**
+ *
+ * @author EG490082
+ */
+
+import hn.cus.api_repositorio.dto.LoginResponse;
+import hn.cus.api_repositorio.entity.RefreshToken;
+import hn.cus.api_repositorio.entity.Usuario;
+import hn.cus.api_repositorio.repository.RefreshTokenRepository;
+import hn.cus.api_repositorio.repository.UsuarioRepository;
+import hn.cus.api_repositorio.security.JwtUtil;
+import hn.cus.api_repositorio.security.JwtUtil.TokenVerificado;
+import hn.cus.api_repositorio.service.AuthorizationService;
+import hn.cus.api_repositorio.service.SesionService;
+import hn.cus.api_repositorio.service.TokenRevocacionService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Sesiones con token de acceso corto y refresh token rotatorio. El refresh
+ * token es un valor aleatorio del que solo se guarda el hash; cada uso lo
+ * marca como usado y entrega otro. Presentar uno ya usado se trata como
+ * robo: se revocan todas las sesiones del usuario.
+ */
+@Service
+public class SesionServiceImpl implements SesionService {
+
+    private static final SecureRandom ALEATORIO = new SecureRandom();
+
+    @Autowired private RefreshTokenRepository refreshTokenRepository;
+    @Autowired private UsuarioRepository usuarioRepository;
+    @Autowired private AuthorizationService authorizationService;
+    @Autowired private TokenRevocacionService tokenRevocacionService;
+    @Autowired private JwtUtil jwtUtil;
+
+    @Value("${app.jwt.refresh-dias:7}")
+    private long refreshDias;
+
+    @Override
+    public LoginResponse iniciarSesion(String username) {
+        Long usuarioId = usuarioRepository.buscarIdPorUsername(username)
+                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado: " + username));
+        return emitir(username, usuarioId);
+    }
+
+    @Override
+    public LoginResponse renovar(String refreshToken) {
+        RefreshToken actual = refreshTokenRepository.buscarPorHash(hash(refreshToken))
+                .orElseThrow(() -> new IllegalArgumentException("Refresh token inválido"));
+        Usuario usuario = actual.getUsuario();
+
+        if (actual.getFechaUso() != null) {
+            System.err.println("Refresh token reutilizado del usuario " + usuario.getUsername()
+                    + "; se revocan todas sus sesiones");
+            revocarSesionesUsuario(usuario.getId());
+            throw new IllegalArgumentException("Refresh token revocado");
+        }
+        if (actual.getFechaExpiracion().isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Refresh token expirado");
+        }
+        if (Boolean.FALSE.equals(usuario.getActivo())) {
+            throw new IllegalArgumentException("Usuario inactivo");
+        }
+        // Otra renovación simultánea con el mismo token ya lo consumió
+        if (refreshTokenRepository.marcarUsado(actual.getId(), LocalDateTime.now()) == 0) {
+            throw new IllegalArgumentException("Refresh token revocado");
+        }
+        return emitir(usuario.getUsername(), usuario.getId());
+    }
+
+    @Override
+    public void cerrarSesion(String tokenAcceso, String refreshToken) {
+        TokenVerificado token = jwtUtil.verificar(tokenAcceso);
+        tokenRevocacionService.revocarToken(token.id(), token.expiracion());
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            refreshTokenRepository.eliminarPorHash(hash(refreshToken));
+        }
+    }
+
+    @Override
+    public void revocarSesionesUsuario(Long usuarioId) {
+        refreshTokenRepository.eliminarPorUsuario(usuarioId);
+        tokenRevocacionService.revocarUsuario(usuarioId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.refresh-limpieza-ms:3600000}")
+    public void eliminarExpirados() {
+        int eliminados = refreshTokenRepository.eliminarExpirados(LocalDateTime.now());
+        if (eliminados > 0) {
+            System.out.println("Refresh tokens expirados eliminados: " + eliminados);
+        }
+    }
+
+    private LoginResponse emitir(String username, Long usuarioId) {
+        // Roles y permisos firmados en el token para no consultarlos en cada petición
+        String tokenAcceso = jwtUtil.generarToken(username, usuarioId,
+                authorizationService.getUserRoles(username), authorizationService.getUserPermissions(username));
+
+        byte[] aleatorio = new byte[32];
+        ALEATORIO.nextBytes(aleatorio);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(aleatorio);
+
+        RefreshToken nuevo = new RefreshToken();
+        nuevo.setUsuario(usuarioRepository.getReferenceById(usuarioId));
+        nuevo.setHash(hash(refreshToken));
+        nuevo.setFechaExpiracion(LocalDateTime.now().plusDays(refreshDias));
+        refreshTokenRepository.save(nuevo);
+
+        return new LoginResponse(tokenAcceso, refreshToken, jwtUtil.getAccesoMs() / 1000);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+/**
+ *
+ * @author EG490082
+ */
+
+import hn.cus.api_repositorio.config.FileStorageConfig;
+import hn.cus.api_repositorio.dto.SesionSubidaDTO;
+import hn.cus.api_repositorio.dto.SesionSubidaRequest;
+import hn.cus.api_repositorio.entity.Documento;
+import hn.cus.api_repositorio.entity.SesionSubida;
+import hn.cus.api_repositorio.entity.Usuario;
+import hn.cus.api_repositorio.exception.OffsetInvalidoException;
+import hn.cus.api_repositorio.repository.SesionSubidaRepository;
+import hn.cus.api_repositorio.repository.UsuarioRepository;
+import hn.cus.api_repositorio.service.AlmacenamientoBlobService;
+import hn.cus.api_repositorio.service.DocumentoService;
+import hn.cus.api_repositorio.service.SubidaFragmentadaService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class SubidaFragmentadaServiceImpl implements SubidaFragmentadaService {
+
+    // Tamaño de cada transferFrom; también es la granularidad con la que se
+    // contabiliza lo escrito si la conexión se corta a mitad de un fragmento
+    private static final long BLOQUE_TRANSFERENCIA = 1024 * 1024;
+
+    @Autowired private SesionSubidaRepository sesionSubidaRepository;
+    @Autowired private UsuarioRepository usuarioRepository;
+    @Autowired private DocumentoService documentoService;
+    @Autowired private AlmacenamientoBlobService almacenamientoBlobService;
+    @Autowired private FileStorageConfig fileStorageConfig;
+
+    @Value("${app.upload.sesiones.expiracion-horas:24}")
+    private long expiracionHoras;
+
+    // Una sola operación por sesión (fragmento, completar, cancelar o limpieza);
+    // otra simultánea sobre la misma sesión recibe 409
+    private final Map<String, ReentrantLock> bloqueos = new ConcurrentHashMap<>();
+
+    // SHA-256 acumulado mientras llegan los fragmentos. Si se pierde (reinicio o
+    // fragmento interrumpido) el hash se recalcula al completar la sesión
+    private final Map<String, MessageDigest> digests = new ConcurrentHashMap<>();
+
+    @Override
+    public SesionSubidaDTO iniciarSesion(SesionSubidaRequest request) {
+        Usuario usuario = usuarioRepository.findById(request.getUsuarioId())
+            .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado con ID: " + request.getUsuarioId()));
+
+        SesionSubida sesion = new SesionSubida();
+        sesion.setId(UUID.randomUUID().toString());
+        sesion.setUsuario(usuario);
+        sesion.setNombreOriginal(Paths.get(request.getNombreOriginal()).getFileName().toString());
+        sesion.setTipoMime(request.getTipoMime() != null ? request.getTipoMime() : "application/octet-stream");
+        sesion.setTamanoTotal(request.getTamanoTotal());
+        sesion.setIdTarea(request.getIdTarea());
+
+        try {
+            Files.createDirectories(Paths.get(fileStorageConfig.getTmpDir()));
+            Files.createFile(rutaParcial(sesion.getId()));
+        } catch (IOException e) {
+            throw new RuntimeException("Error al crear el archivo parcial: " + e.getMessage(), e);
+        }
+
+        SesionSubida guardada = sesionSubidaRepository.save(sesion);
+        try {
+            digests.put(guardada.getId(), MessageDigest.getInstance("SHA-256"));
+        } catch (NoSuchAlgorithmException e) {
+            // Sin digest incremental; se calculará al completar
+        }
+        return new SesionSubidaDTO(guardada);
+    }
+
+    @Override
+    public SesionSubidaDTO obtenerSesion(String sesionId) {
+        return new SesionSubidaDTO(buscarSesion(sesionId));
+    }
+
+    @Override
+    public SesionSubidaDTO escribirFragmento(String sesionId, long offset, InputStream datos) {
+        ReentrantLock bloqueo = bloquear(buscarSesion(sesionId));
+        try {
+            // Se vuelve a leer dentro del bloqueo por si otra operación acaba de terminar
+            SesionSubida sesion = buscarSesion(sesionId);
+            if (offset != sesion.getBytesRecibidos()) {
+                throw new OffsetInvalidoException("Offset " + offset + " no coincide con los bytes recibidos",
+                        sesion.getBytesRecibidos());
+            }
+
+            long restante = sesion.getTamanoTotal() - offset;
+            long escritos = 0;
+            boolean excede = false;
+            IOException error = null;
+            MessageDigest digest = digests.get(sesionId);
+            try (FileChannel canal = FileChannel.open(rutaParcial(sesionId), StandardOpenOption.WRITE);
+                 ReadableByteChannel origen = conDigest(Channels.newChannel(datos), digest)) {
+                // Se escribe directamente en la posición del archivo parcial, sin buffer en memoria
+                while (escritos < restante) {
+                    long n = canal.transferFrom(origen, offset + escritos, Math.min(BLOQUE_TRANSFERENCIA, restante - escritos));
+                    if (n <= 0) {
+                        break;
+                    }
+                    escritos += n;
+                }
+                excede = escritos == restante && datos.read() != -1;
+            } catch (IOException e) {
+                // Conexión cortada: se conserva lo escrito para que el cliente reanude desde ahí.
+                // El digest puede incluir bytes leídos pero no escritos, así que se descarta
+                error = e;
+                digests.remove(sesionId);
+            }
+
+            long nuevoOffset = offset + escritos;
+            sesionSubidaRepository.avanzarOffset(sesionId, offset, nuevoOffset, LocalDateTime.now());
+            if (error != null) {
+                throw new RuntimeException("Fragmento interrumpido en el byte " + nuevoOffset + ": " + error.getMessage(), error);
+            }
+            if (excede) {
+                throw new IllegalArgumentException("El fragmento excede el tamaño total declarado");
+            }
+            return new SesionSubidaDTO(buscarSesion(sesionId));
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    @Override
+    public Documento completarSesion(String sesionId) {
+        ReentrantLock bloqueo = bloquear(buscarSesion(sesionId));
+        try {
+            // Dentro del bloqueo: un fragmento no puede seguir escribiendo el archivo
+            // parcial mientras se mueve, ni otra petición completarla dos veces
+            SesionSubida sesion = buscarSesion(sesionId);
+            if (!sesion.getBytesRecibidos().equals(sesion.getTamanoTotal())) {
+                throw new OffsetInvalidoException("La subida está incompleta", sesion.getBytesRecibidos());
+            }
+
+            MessageDigest digest = digests.remove(sesionId);
+            String hash = digest != null ? HexFormat.of().formatHex(digest.digest()) : null;
+
+            Documento doc = documentoService.guardarDocumentoDesdeArchivo(
+                    almacenamientoBlobService.desdeArchivo(rutaParcial(sesionId), hash),
+                    sesion.getNombreOriginal(),
+                    sesion.getTipoMime(),
+                    sesion.getUsuario().getId(),
+                    sesion.getIdTarea());
+
+            sesionSubidaRepository.deleteById(sesionId);
+            bloqueos.remove(sesionId);
+            return doc;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    @Override
+    public void cancelarSesion(String sesionId) {
+        ReentrantLock bloqueo = bloquear(buscarSesion(sesionId));
+        try {
+            buscarSesion(sesionId);
+            eliminarSesion(sesionId);
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.upload.sesiones.limpieza-ms:3600000}")
+    public void limpiarSesionesExpiradas() {
+        List<SesionSubida> expiradas = sesionSubidaRepository
+                .findByFechaActualizacionBefore(LocalDateTime.now().minusHours(expiracionHoras));
+        for (SesionSubida sesion : expiradas) {
+            ReentrantLock bloqueo = bloqueos.computeIfAbsent(sesion.getId(), k -> new ReentrantLock());
+            if (!bloqueo.tryLock()) {
+                // Tiene una operación en curso: ya no está abandonada
+                continue;
+            }
+            try {
+                System.out.println("Eliminando sesión de subida expirada: " + sesion.getId());
+                eliminarSesion(sesion.getId());
+            } finally {
+                bloqueo.unlock();
+            }
+        }
+    }
+
+    // Quien obtiene un bloqueo que otra operación acaba de retirar del mapa no
+    // encuentra ya la sesión al volver a leerla, así que no hace falta más
+    private ReentrantLock bloquear(SesionSubida sesion) {
+        ReentrantLock bloqueo = bloqueos.computeIfAbsent(sesion.getId(), k -> new ReentrantLock());
+        if (!bloqueo.tryLock()) {
+            throw new OffsetInvalidoException("Ya hay una operación en curso para la sesión " + sesion.getId(),
+                    sesion.getBytesRecibidos());
+        }
+        return bloqueo;
+    }
+
+    private void eliminarSesion(String sesionId) {
+        try {
+            Files.deleteIfExists(rutaParcial(sesionId));
+        } catch (IOException e) {
+            System.err.println("No se pudo eliminar el archivo parcial " + sesionId + ": " + e.getMessage());
+        }
+        sesionSubidaRepository.deleteById(sesionId);
+        bloqueos.remove(sesionId);
+        digests.remove(sesionId);
+    }
+
+    private static ReadableByteChannel conDigest(ReadableByteChannel origen, MessageDigest digest) {
+        if (digest == null) {
+            return origen;
+        }
+        return new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer destino) throws IOException {
+                int inicio = destino.position();
+                int leidos = origen.read(destino);
+                if (leidos > 0) {
+                    ByteBuffer nuevos = destino.duplicate();
+                    nuevos.flip().position(inicio);
+                    digest.update(nuevos);
+                }
+                return leidos;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return origen.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                origen.close();
+            }
+        };
+    }
+
+    private SesionSubida buscarSesion(String sesionId) {
+        return sesionSubidaRepository.findById(sesionId)
+            .orElseThrow(() -> new IllegalArgumentException("Sesión de subida no encontrada: " + sesionId));
+    }
+
+    private Path rutaParcial(String sesionId) {
+        return Paths.get(fileStorageConfig.getTmpDir()).resolve(sesionId + ".part");
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+/**
+ *
+ * @author EG490082
+ */
+
+import hn.cus.api_repositorio.config.FileStorageConfig;
+import hn.cus.api_repositorio.dto.ResultadoSubidaDTO;
+import hn.cus.api_repositorio.entity.Documento;
+import hn.cus.api_repositorio.repository.UsuarioRepository;
+import hn.cus.api_repositorio.service.AlmacenamientoBlobService;
+import hn.cus.api_repositorio.service.CompresionService;
+import hn.cus.api_repositorio.service.DocumentoService;
+import hn.cus.api_repositorio.service.DocumentoService.ArchivoLote;
+import hn.cus.api_repositorio.service.SubidaLoteService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+@Service
+public class SubidaLoteServiceImpl implements SubidaLoteService {
+
+    @Autowired private DocumentoService documentoService;
+    @Autowired private AlmacenamientoBlobService almacenamientoBlobService;
+    @Autowired private CompresionService compresionService;
+    @Autowired private FileStorageConfig fileStorageConfig;
+    @Autowired private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    @Qualifier("subidaLoteExecutor")
+    private Executor subidaLoteExecutor;
+
+    @Value("${app.upload.lote.maximo-archivos:50}")
+    private int maximoArchivos;
+
+    @Override
+    public List<ResultadoSubidaDTO> subirLote(List<MultipartFile> archivos, Long usuarioId, Long idTarea) {
+        if (archivos == null || archivos.isEmpty()) {
+            throw new IllegalArgumentException("Debe enviar al menos un archivo");
+        }
+        if (archivos.size() > maximoArchivos) {
+            throw new IllegalArgumentException("Se admiten como máximo " + maximoArchivos + " archivos por lote");
+        }
+        // Antes de escribir nada en disco
+        if (usuarioId == null || !usuarioRepository.existsById(usuarioId)) {
+            throw new IllegalArgumentException("Usuario no encontrado con ID: " + usuarioId);
+        }
+
+        // Fase en paralelo y fuera de transacción: escritura a disco con su hash
+        // o lectura y compresión, según el tamaño de cada archivo
+        List<CompletableFuture<ArchivoLote>> tareas = archivos.stream()
+                .map(archivo -> CompletableFuture.supplyAsync(() -> preparar(archivo), subidaLoteExecutor))
+                .toList();
+
+        ResultadoSubidaDTO[] resultados = new ResultadoSubidaDTO[archivos.size()];
+        List<ArchivoLote> preparados = new ArrayList<>();
+        List<Integer> posiciones = new ArrayList<>();
+        for (int i = 0; i < tareas.size(); i++) {
+            try {
+                preparados.add(tareas.get(i).join());
+                posiciones.add(i);
+            } catch (CompletionException e) {
+                Throwable causa = e.getCause() != null ? e.getCause() : e;
+                System.err.println("Archivo del lote rechazado " + archivos.get(i).getOriginalFilename() + ": " + causa.getMessage());
+                resultados[i] = ResultadoSubidaDTO.error(archivos.get(i).getOriginalFilename(), causa.getMessage());
+            }
+        }
+
+        if (!preparados.isEmpty()) {
+            // Todos los documentos válidos en una sola transacción: si una inserción
+            // falla no se guarda ninguno y el error llega al cliente
+            try {
+                List<Documento> documentos = documentoService.guardarDocumentosLote(preparados, usuarioId, idTarea);
+                for (int j = 0; j < documentos.size(); j++) {
+                    resultados[posiciones.get(j)] = ResultadoSubidaDTO.exito(documentos.get(j));
+                }
+            } catch (RuntimeException e) {
+                preparados.forEach(SubidaLoteServiceImpl::borrarTemporal);
+                throw e;
+            }
+        }
+        System.out.println("Lote subido: " + preparados.size() + " de " + archivos.size() + " archivos guardados");
+        return Arrays.asList(resultados);
+    }
+
+    // Misma regla que guardarDocumento: pequeños en la base de datos, grandes en disco
+    private ArchivoLote preparar(MultipartFile archivo) {
+        if (archivo.isEmpty()) {
+            throw new IllegalArgumentException("El archivo no puede estar vacío");
+        }
+        String nombre = archivo.getOriginalFilename();
+        String tipoMime = archivo.getContentType();
+        try {
+            if (archivo.getSize() <= fileStorageConfig.getMaxFileSizeBase64()) {
+                byte[] contenido = archivo.getBytes();
+                return new ArchivoLote(nombre, tipoMime, contenido.length,
+                        compresionService.codificar(contenido, tipoMime), null);
+            }
+            return new ArchivoLote(nombre, tipoMime, archivo.getSize(), null,
+                    almacenamientoBlobService.recibir(archivo.getInputStream()));
+        } catch (IOException e) {
+            throw new RuntimeException("Error al leer el archivo: " + e.getMessage(), e);
+        }
+    }
+
+    // Si la transacción falla, los temporales que no llegaron al almacén sobran
+    private static void borrarTemporal(ArchivoLote archivo) {
+        if (archivo.archivo() == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(archivo.archivo().ruta());
+        } catch (IOException e) {
+            System.err.println("No se pudo eliminar " + archivo.archivo().ruta() + ": " + e.getMessage());
+        }
+    }
+}
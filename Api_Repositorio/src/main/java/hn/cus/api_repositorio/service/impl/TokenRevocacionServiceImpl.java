@@ -0,0 +1,171 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package hn.cus.api_repositorio.service.impl;
+
+/**
+ *
+ * @author EG490082
+ */
+
+import hn.cus.api_repositorio.entity.TokenRevocado;
+import hn.cus.api_repositorio.repository.TokenRevocadoRepository;
+import hn.cus.api_repositorio.security.FiltroBloom;
+import hn.cus.api_repositorio.security.JwtUtil;
+import hn.cus.api_repositorio.security.JwtUtil.TokenVerificado;
+import hn.cus.api_repositorio.service.TokenRevocacionService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Revocación de tokens de acceso sin consultar la base de datos en cada
+ * petición. Las revocaciones vigentes (tabla token_revocado) se cargan en
+ * dos filtros de Bloom: el actual recibe las nuevas y, cada vez que pasa la
+ * vigencia de un token de acceso, pasa a ser el anterior y se crea uno vacío.
+ * Una clave permanece así al menos esa vigencia, tras la cual los tokens que
+ * revocaba ya expiraron. Cada instancia incorpora cada pocos segundos las
+ * revocaciones hechas por las demás.
+ */
+@Service
+public class TokenRevocacionServiceImpl implements TokenRevocacionService {
+
+    private static final String PREFIJO_TOKEN = "jti:";
+    private static final String PREFIJO_USUARIO = "usuario:";
+    // Revocaciones confirmadas tarde (transacciones lentas, relojes desfasados)
+    private static final long MARGEN_SINCRONIZACION_MS = 60_000;
+
+    @Autowired private TokenRevocadoRepository tokenRevocadoRepository;
+    @Autowired private JwtUtil jwtUtil;
+
+    @Value("${app.jwt.revocacion.capacidad:100000}")
+    private int capacidad;
+
+    @Value("${app.jwt.revocacion.falsos-positivos:0.001}")
+    private double falsosPositivos;
+
+    private volatile FiltroBloom actual;
+    private volatile FiltroBloom anterior;
+    private volatile long ultimaRotacion;
+    private volatile LocalDateTime ultimaSincronizacion;
+
+    private final LongAdder positivos = new LongAdder();
+    private final LongAdder falsosPositivosContados = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        actual = new FiltroBloom(capacidad, falsosPositivos);
+        anterior = new FiltroBloom(capacidad, falsosPositivos);
+        ultimaRotacion = System.currentTimeMillis();
+        LocalDateTime ahora = LocalDateTime.now();
+        int cargadas = 0;
+        for (TokenRevocado revocado : tokenRevocadoRepository.findByFechaExpiracionAfter(ahora)) {
+            actual.agregar(revocado.getClave());
+            cargadas++;
+        }
+        ultimaSincronizacion = ahora;
+        System.out.println("Filtro de revocación de tokens: " + cargadas + " revocaciones vigentes cargadas ("
+                + actual.getTamanoBytes() / 1024 + " KB por generación)");
+    }
+
+    @Override
+    public void revocarToken(String tokenId, Date expiracion) {
+        if (tokenId == null) {
+            return;
+        }
+        guardar(PREFIJO_TOKEN + tokenId, aLocal(expiracion));
+    }
+
+    @Override
+    public void revocarUsuario(Long usuarioId) {
+        if (usuarioId == null) {
+            return;
+        }
+        // Los tokens emitidos hasta ahora expiran, como muy tarde, dentro de una vigencia
+        guardar(PREFIJO_USUARIO + usuarioId, LocalDateTime.now().plusNanos(jwtUtil.getAccesoMs() * 1_000_000));
+    }
+
+    @Override
+    public boolean estaRevocado(TokenVerificado token) {
+        LocalDateTime emision = token.emision() != null ? aLocal(token.emision()) : LocalDateTime.of(1970, 1, 1, 0, 0);
+        return (token.id() != null && confirmar(PREFIJO_TOKEN + token.id(), null))
+                || (token.usuarioId() != null && confirmar(PREFIJO_USUARIO + token.usuarioId(), emision));
+    }
+
+    /**
+     * Incorpora las revocaciones de otras instancias y, pasada la vigencia de
+     * los tokens de acceso, rota los filtros y borra las filas expiradas
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.revocacion.sincronizacion-ms:10000}")
+    public void sincronizar() {
+        LocalDateTime ahora = LocalDateTime.now();
+        for (TokenRevocado revocado : tokenRevocadoRepository.findByFechaRevocacionAfter(
+                ultimaSincronizacion.minusNanos(MARGEN_SINCRONIZACION_MS * 1_000_000))) {
+            actual.agregar(revocado.getClave());
+        }
+        ultimaSincronizacion = ahora;
+
+        if (System.currentTimeMillis() - ultimaRotacion < jwtUtil.getAccesoMs()) {
+            return;
+        }
+        FiltroBloom saliente = actual;
+        anterior = saliente;
+        actual = new FiltroBloom(capacidad, falsosPositivos);
+        ultimaRotacion = System.currentTimeMillis();
+        int eliminadas = tokenRevocadoRepository.eliminarExpirados(ahora);
+
+        long positivosPeriodo = positivos.sumThenReset();
+        long falsosPeriodo = falsosPositivosContados.sumThenReset();
+        if (saliente.getAgregadas() > 0 || positivosPeriodo > 0 || eliminadas > 0) {
+            System.out.println("Filtro de revocación rotado: " + saliente.getAgregadas() + " claves en el periodo"
+                    + "; positivos: " + positivosPeriodo + " (falsos: " + falsosPeriodo + ")"
+                    + "; revocaciones expiradas eliminadas: " + eliminadas);
+        }
+        if (saliente.getAgregadas() > saliente.getCapacidad()) {
+            System.err.println("Filtro de revocación por encima de su capacidad (" + saliente.getCapacidad()
+                    + "); aumente app.jwt.revocacion.capacidad");
+        }
+    }
+
+    private void guardar(String clave, LocalDateTime expiracion) {
+        TokenRevocado revocado = new TokenRevocado();
+        revocado.setClave(clave);
+        // En segundos, como el iat de los tokens: un token emitido en el mismo
+        // segundo que la revocación (un nuevo login tras cambiar la contraseña)
+        // sigue siendo válido
+        revocado.setFechaRevocacion(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
+        revocado.setFechaExpiracion(expiracion);
+        tokenRevocadoRepository.save(revocado);
+        // Efecto inmediato en esta instancia; las demás lo ven al sincronizar
+        actual.agregar(clave);
+    }
+
+    // emision null: la clave revoca un token concreto, sin comparar fechas
+    private boolean confirmar(String clave, LocalDateTime emision) {
+        if (!actual.puedeContener(clave) && !anterior.puedeContener(clave)) {
+            return false;
+        }
+        positivos.increment();
+        boolean revocado = emision == null
+                ? tokenRevocadoRepository.existsByClave(clave)
+                : tokenRevocadoRepository.existsByClaveAndFechaRevocacionGreaterThan(clave, emision);
+        if (!revocado) {
+            falsosPositivosContados.increment();
+        }
+        return revocado;
+    }
+
+    private static LocalDateTime aLocal(Date fecha) {
+        return LocalDateTime.ofInstant(fecha.toInstant(), ZoneId.systemDefault());
+    }
+}
@@ -13,6 +13,9 @@ import hn.cus.api_repositorio.entity.Usuario;
 import hn.cus.api_repositorio.entity.Rol;
 import hn.cus.api_repositorio.repository.UsuarioRepository;
 import hn.cus.api_repositorio.repository.RolRepository;
+import hn.cus.api_repositorio.service.AuditoriaService;
+import hn.cus.api_repositorio.service.AuthorizationService;
+import hn.cus.api_repositorio.service.SesionService;
 import hn.cus.api_repositorio.service.UsuarioService;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,6 +33,9 @@ public class UsuarioServiceImpl implements UsuarioService {
     @Autowired private UsuarioRepository usuarioRepository;
     @Autowired private RolRepository rolRepository;
     @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private AuthorizationService authorizationService;
+    @Autowired private SesionService sesionService;
+    @Autowired private AuditoriaService auditoriaService;
 
     @Override
     public UsuarioDTO obtenerUsuarioDTO(Long id) {
@@ -115,6 +121,9 @@ public class UsuarioServiceImpl implements UsuarioService {
         }
         
         Usuario usuarioGuardado = usuarioRepository.save(usuario);
+        // Por si se consultó antes de existir y quedó en caché sin permisos
+        authorizationService.invalidarUsuario(usuarioGuardado.getUsername());
+        auditoriaService.invalidarUsuario(usuarioGuardado.getUsername());
         return new UsuarioDTO(
                 usuarioGuardado.getId(),
                 usuarioGuardado.getUsername(),
@@ -130,12 +139,15 @@ public class UsuarioServiceImpl implements UsuarioService {
     @Override
     public UsuarioDTO actualizarUsuario(Long id, UsuarioDTO usuarioDTO) {
         Usuario usuario = usuarioRepository.findById(id).orElseThrow();
+        String usernameAnterior = usuario.getUsername();
+        boolean estabaActivo = !Boolean.FALSE.equals(usuario.getActivo());
+        boolean cambiaContrasena = usuarioDTO.getPassword() != null && !usuarioDTO.getPassword().isEmpty();
         usuario.setUsername(usuarioDTO.getUsername());
         usuario.setEmail(usuarioDTO.getEmail());
         usuario.setActivo(usuarioDTO.getActivo());
         
         // Actualizar contraseña si se proporciona
-        if (usuarioDTO.getPassword() != null && !usuarioDTO.getPassword().isEmpty()) {
+        if (cambiaContrasena) {
             usuario.setPassword(passwordEncoder.encode(usuarioDTO.getPassword()));
         }
         
@@ -149,6 +161,15 @@ public class UsuarioServiceImpl implements UsuarioService {
         }
         
         Usuario usuarioActualizado = usuarioRepository.save(usuario);
+        authorizationService.invalidarUsuario(usernameAnterior);
+        authorizationService.invalidarUsuario(usuarioActualizado.getUsername());
+        // La auditoría guarda username -> id; el nombre anterior podría reutilizarse
+        auditoriaService.invalidarUsuario(usernameAnterior);
+        auditoriaService.invalidarUsuario(usuarioActualizado.getUsername());
+        // Al desactivarlo o cambiar su contraseña se cierran sus sesiones abiertas
+        if ((estabaActivo && Boolean.FALSE.equals(usuarioActualizado.getActivo())) || cambiaContrasena) {
+            sesionService.revocarSesionesUsuario(usuarioActualizado.getId());
+        }
         return new UsuarioDTO(
                 usuarioActualizado.getId(),
                 usuarioActualizado.getUsername(),
@@ -163,6 +184,14 @@ public class UsuarioServiceImpl implements UsuarioService {
 
     @Override
     public void eliminarUsuario(Long id) {
+        String username = usuarioRepository.findById(id).map(Usuario::getUsername).orElse(null);
+        // Borra sus refresh tokens y revoca los tokens de acceso aún vigentes
+        sesionService.revocarSesionesUsuario(id);
         usuarioRepository.deleteById(id);
+        if (username != null) {
+            authorizationService.invalidarUsuario(username);
+            // Si se vuelve a crear con el mismo nombre tendrá otro id
+            auditoriaService.invalidarUsuario(username);
+        }
     }
 }
@@ -0,0 +1,16 @@
+-- Sesiones de subida por fragmentos (POST/PUT /api/documentos/subidas)
+CREATE TABLE IF NOT EXISTS gestdoc_ow.sesion_subida (
+    id VARCHAR(36) PRIMARY KEY,
+    usuario_id BIGINT NOT NULL REFERENCES gestdoc_ow.usuarios(id) ON DELETE CASCADE,
+    nombre_original VARCHAR(255) NOT NULL,
+    tipo_mime VARCHAR(255),
+    tamano_total BIGINT NOT NULL,
+    bytes_recibidos BIGINT NOT NULL DEFAULT 0,
+    id_tarea BIGINT,
+    fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    fecha_actualizacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- La limpieza de sesiones expiradas filtra por fecha_actualizacion
+CREATE INDEX IF NOT EXISTS idx_sesion_subida_actualizacion
+    ON gestdoc_ow.sesion_subida(fecha_actualizacion);
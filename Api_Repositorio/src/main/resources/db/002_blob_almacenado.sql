@@ -0,0 +1,14 @@
+-- Almacén de archivos por contenido (SHA-256) con conteo de referencias
+CREATE TABLE IF NOT EXISTS gestdoc_ow.blob_almacenado (
+    hash VARCHAR(64) PRIMARY KEY,
+    ruta_archivo VARCHAR(255) NOT NULL,
+    tamano BIGINT NOT NULL,
+    referencias INTEGER NOT NULL CHECK (referencias > 0),
+    fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+ALTER TABLE gestdoc_ow.documentos ADD COLUMN IF NOT EXISTS hash_contenido VARCHAR(64);
+ALTER TABLE gestdoc_ow.documentos ADD COLUMN IF NOT EXISTS tamano BIGINT;
+
+CREATE INDEX IF NOT EXISTS idx_documentos_hash_contenido
+    ON gestdoc_ow.documentos(hash_contenido);
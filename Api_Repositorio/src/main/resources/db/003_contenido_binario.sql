@@ -0,0 +1,4 @@
+-- Contenido de archivos pequeños como bytea en lugar de Base64 en TEXT.
+-- Las filas existentes las convierte MigracionContenidoService en segundo plano.
+ALTER TABLE gestdoc_ow.documentos ADD COLUMN IF NOT EXISTS contenido_binario BYTEA;
+
@@ -0,0 +1,17 @@
+-- Contenido de los documentos guardados en la base de datos, fuera de la fila
+-- de documentos para que listados y consultas de metadatos no lo lean
+CREATE TABLE IF NOT EXISTS gestdoc_ow.documento_contenido (
+    documento_id BIGINT PRIMARY KEY REFERENCES gestdoc_ow.documentos(id) ON DELETE CASCADE,
+    contenido_binario BYTEA,
+    contenido_base64 TEXT
+);
+
+-- contenido_base64 se copia tal cual: en filas antiguas es el oid del large object
+INSERT INTO gestdoc_ow.documento_contenido (documento_id, contenido_binario, contenido_base64)
+SELECT id, contenido_binario, contenido_base64
+  FROM gestdoc_ow.documentos
+ WHERE contenido_binario IS NOT NULL OR contenido_base64 IS NOT NULL
+ON CONFLICT (documento_id) DO NOTHING;
+
+ALTER TABLE gestdoc_ow.documentos DROP COLUMN IF EXISTS contenido_binario;
+ALTER TABLE gestdoc_ow.documentos DROP COLUMN IF EXISTS contenido_base64;
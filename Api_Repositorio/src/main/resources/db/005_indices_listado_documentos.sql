@@ -0,0 +1,18 @@
+-- Listado paginado por cursor sobre (fecha_creacion, id), más recientes primero.
+-- El keyset necesita fecha_creacion sin nulos
+UPDATE gestdoc_ow.documentos SET fecha_creacion = CURRENT_TIMESTAMP WHERE fecha_creacion IS NULL;
+ALTER TABLE gestdoc_ow.documentos ALTER COLUMN fecha_creacion SET NOT NULL;
+
+-- CONCURRENTLY para no bloquear escrituras en tablas grandes (psql, fuera de transacción)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_documentos_fecha_id
+    ON gestdoc_ow.documentos(fecha_creacion DESC, id DESC);
+
+-- Un índice por filtro, con el orden del listado detrás de la igualdad
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_documentos_creado_por_fecha_id
+    ON gestdoc_ow.documentos(creado_por, fecha_creacion DESC, id DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_documentos_tipo_mime_fecha_id
+    ON gestdoc_ow.documentos(tipo_mime, fecha_creacion DESC, id DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_documentos_id_tarea_fecha_id
+    ON gestdoc_ow.documentos(id_tarea, fecha_creacion DESC, id DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_documentos_publico_fecha_id
+    ON gestdoc_ow.documentos(publico, fecha_creacion DESC, id DESC);
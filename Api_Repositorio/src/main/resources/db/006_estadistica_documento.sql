@@ -0,0 +1,27 @@
+-- Contadores de documentos y bytes por dimensión, mantenidos en cada alta y baja
+CREATE TABLE IF NOT EXISTS gestdoc_ow.estadistica_documento (
+    dimension VARCHAR(20) NOT NULL,
+    clave VARCHAR(255) NOT NULL,
+    documentos BIGINT NOT NULL,
+    bytes BIGINT NOT NULL,
+    PRIMARY KEY (dimension, clave)
+);
+
+-- Carga inicial desde los documentos existentes. Ejecutar con la aplicación
+-- detenida; las altas y bajas posteriores actualizan los contadores
+INSERT INTO gestdoc_ow.estadistica_documento (dimension, clave, documentos, bytes)
+SELECT dimension, clave, COUNT(*), COALESCE(SUM(tamano), 0)
+  FROM (
+        SELECT 'TOTAL' AS dimension, '' AS clave, tamano FROM gestdoc_ow.documentos
+        UNION ALL
+        SELECT 'USUARIO', COALESCE(creado_por::text, ''), tamano FROM gestdoc_ow.documentos
+        UNION ALL
+        SELECT 'TIPO_MIME', COALESCE(tipo_mime, ''), tamano FROM gestdoc_ow.documentos
+        UNION ALL
+        SELECT 'TAREA', COALESCE(id_tarea::text, ''), tamano FROM gestdoc_ow.documentos
+        UNION ALL
+        SELECT 'DIA', COALESCE(fecha_creacion::date::text, ''), tamano FROM gestdoc_ow.documentos
+       ) d
+ GROUP BY dimension, clave
+ON CONFLICT (dimension, clave) DO UPDATE
+   SET documentos = EXCLUDED.documentos, bytes = EXCLUDED.bytes;
@@ -0,0 +1,4 @@
+-- Codificación (Content-Encoding) con la que se guarda el contenido; NULL
+-- es sin comprimir, que es como quedan todas las filas existentes
+ALTER TABLE gestdoc_ow.blob_almacenado ADD COLUMN IF NOT EXISTS codificacion VARCHAR(16);
+ALTER TABLE gestdoc_ow.documento_contenido ADD COLUMN IF NOT EXISTS codificacion VARCHAR(16);
@@ -0,0 +1,21 @@
+-- Las entidades generan sus ids con las secuencias de las columnas BIGSERIAL
+-- (optimizador pooled, allocationSize = 50): Hibernate reserva 50 ids por
+-- llamada a nextval y puede agrupar las inserciones en lotes JDBC.
+-- El incremento de cada secuencia debe coincidir con allocationSize.
+-- setval deja cada secuencia por encima del id máximo actual para que el
+-- primer bloque reservado no se solape con filas existentes. El DEFAULT
+-- nextval de las columnas se mantiene para inserciones hechas a mano.
+DO $$
+DECLARE
+    tabla TEXT;
+BEGIN
+    FOREACH tabla IN ARRAY ARRAY['audit_log', 'documento_comentarios', 'documento_version',
+                                 'documento_workflow', 'documentos', 'metadata', 'permisos',
+                                 'roles', 'usuarios', 'workflow_etapas', 'workflows']
+    LOOP
+        EXECUTE format('ALTER SEQUENCE gestdoc_ow.%I INCREMENT BY 50', tabla || '_id_seq');
+        EXECUTE format('SELECT setval(%L, GREATEST((SELECT COALESCE(MAX(id), 1) FROM gestdoc_ow.%I), '
+                       || '(SELECT last_value FROM gestdoc_ow.%I)))',
+                       'gestdoc_ow.' || tabla || '_id_seq', tabla, tabla || '_id_seq');
+    END LOOP;
+END $$;
@@ -0,0 +1,92 @@
+-- audit_log particionada por mes sobre fecha. Las consultas por rango de
+-- fechas solo recorren las particiones afectadas y la retención elimina
+-- meses completos con DROP TABLE en lugar de DELETE fila a fila.
+-- Particiones: gestdoc_ow.audit_log_pAAAAMM, [primer día del mes, primer día del siguiente).
+-- Ejecutar con la aplicación detenida: copia las filas existentes.
+
+-- Crea las particiones mensuales que falten entre los meses de desde y hasta
+CREATE OR REPLACE FUNCTION gestdoc_ow.crear_particiones_audit_log(desde DATE, hasta DATE)
+RETURNS INTEGER AS $$
+DECLARE
+    mes DATE := date_trunc('month', desde)::date;
+    particion TEXT;
+    creadas INTEGER := 0;
+BEGIN
+    WHILE mes <= hasta LOOP
+        particion := 'audit_log_p' || to_char(mes, 'YYYYMM');
+        IF to_regclass('gestdoc_ow.' || particion) IS NULL THEN
+            EXECUTE format('CREATE TABLE gestdoc_ow.%I PARTITION OF gestdoc_ow.audit_log '
+                           || 'FOR VALUES FROM (%L) TO (%L)',
+                           particion, mes, (mes + INTERVAL '1 month')::date);
+            creadas := creadas + 1;
+        END IF;
+        mes := (mes + INTERVAL '1 month')::date;
+    END LOOP;
+    RETURN creadas;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Elimina las particiones cuyo mes termina antes de antes_de y devuelve sus nombres
+CREATE OR REPLACE FUNCTION gestdoc_ow.eliminar_particiones_audit_log(antes_de DATE)
+RETURNS SETOF TEXT AS $$
+DECLARE
+    particion TEXT;
+BEGIN
+    FOR particion IN
+        SELECT c.relname
+          FROM pg_inherits i
+          JOIN pg_class c ON c.oid = i.inhrelid
+         WHERE i.inhparent = 'gestdoc_ow.audit_log'::regclass
+           AND c.relname ~ '^audit_log_p[0-9]{6}$'
+           AND (to_date(substring(c.relname FROM 12), 'YYYYMM') + INTERVAL '1 month')::date <= antes_de
+         ORDER BY c.relname
+    LOOP
+        EXECUTE format('ALTER TABLE gestdoc_ow.audit_log DETACH PARTITION gestdoc_ow.%I', particion);
+        EXECUTE format('DROP TABLE gestdoc_ow.%I', particion);
+        RETURN NEXT particion;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+DECLARE
+    primera DATE;
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'gestdoc_ow.audit_log'::regclass) THEN
+        RETURN;
+    END IF;
+
+    ALTER TABLE gestdoc_ow.audit_log RENAME TO audit_log_anterior;
+    ALTER TABLE gestdoc_ow.audit_log_anterior RENAME CONSTRAINT audit_log_pkey TO audit_log_anterior_pkey;
+    UPDATE gestdoc_ow.audit_log_anterior SET fecha = CURRENT_TIMESTAMP WHERE fecha IS NULL;
+
+    -- La clave primaria de una tabla particionada debe incluir la columna de partición
+    CREATE TABLE gestdoc_ow.audit_log (
+        id BIGINT NOT NULL DEFAULT nextval('gestdoc_ow.audit_log_id_seq'),
+        usuario_id BIGINT REFERENCES gestdoc_ow.usuarios(id),
+        accion VARCHAR(100) NOT NULL,
+        descripcion VARCHAR(255),
+        fecha TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+        PRIMARY KEY (id, fecha)
+    ) PARTITION BY RANGE (fecha);
+
+    -- Desde el mes más antiguo con datos hasta tres meses por delante;
+    -- después las crea el mantenimiento programado de la aplicación
+    SELECT COALESCE(MIN(fecha), CURRENT_DATE)::date INTO primera FROM gestdoc_ow.audit_log_anterior;
+    PERFORM gestdoc_ow.crear_particiones_audit_log(primera, (CURRENT_DATE + INTERVAL '3 months')::date);
+
+    INSERT INTO gestdoc_ow.audit_log (id, usuario_id, accion, descripcion, fecha)
+    SELECT id, usuario_id, accion, descripcion, fecha FROM gestdoc_ow.audit_log_anterior;
+
+    ALTER SEQUENCE gestdoc_ow.audit_log_id_seq OWNED BY gestdoc_ow.audit_log.id;
+    DROP TABLE gestdoc_ow.audit_log_anterior;
+END $$;
+
+-- Consulta paginada por (fecha, id), más recientes primero, con y sin filtro.
+-- Definidos en la tabla padre se crean en cada partición, también en las nuevas
+CREATE INDEX IF NOT EXISTS idx_audit_log_fecha_id
+    ON gestdoc_ow.audit_log(fecha DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_audit_log_usuario_fecha_id
+    ON gestdoc_ow.audit_log(usuario_id, fecha DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_audit_log_accion_fecha_id
+    ON gestdoc_ow.audit_log(accion, fecha DESC, id DESC);
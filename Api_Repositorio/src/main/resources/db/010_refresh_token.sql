@@ -0,0 +1,37 @@
+-- Refresh tokens (POST /api/auth/refresh). Se guarda solo el hash SHA-256 del
+-- token; cada uso lo marca en fecha_uso y emite uno nuevo (rotación). Logout
+-- y revocación de sesiones borran las filas
+CREATE TABLE IF NOT EXISTS gestdoc_ow.refresh_token (
+    id BIGSERIAL PRIMARY KEY,
+    usuario_id BIGINT NOT NULL REFERENCES gestdoc_ow.usuarios(id) ON DELETE CASCADE,
+    hash VARCHAR(64) NOT NULL UNIQUE,
+    fecha_creacion TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    fecha_expiracion TIMESTAMP NOT NULL,
+    fecha_uso TIMESTAMP
+);
+
+-- Revocación de todas las sesiones de un usuario y limpieza de expirados
+CREATE INDEX IF NOT EXISTS idx_refresh_token_usuario
+    ON gestdoc_ow.refresh_token(usuario_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_token_expiracion
+    ON gestdoc_ow.refresh_token(fecha_expiracion);
+
+-- Tokens de acceso revocados antes de expirar: 'jti:<id del token>' (logout)
+-- o 'usuario:<id>' (todos los emitidos hasta fecha_revocacion). Cada
+-- instancia los carga en un filtro de Bloom y solo consulta esta tabla
+-- cuando el filtro da positivo. Las filas se borran al pasar fecha_expiracion
+CREATE TABLE IF NOT EXISTS gestdoc_ow.token_revocado (
+    id BIGSERIAL PRIMARY KEY,
+    clave VARCHAR(100) NOT NULL,
+    fecha_revocacion TIMESTAMP NOT NULL,
+    fecha_expiracion TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_token_revocado_clave
+    ON gestdoc_ow.token_revocado(clave, fecha_revocacion);
+CREATE INDEX IF NOT EXISTS idx_token_revocado_expiracion
+    ON gestdoc_ow.token_revocado(fecha_expiracion);
+
+-- Mismo incremento que allocationSize (ver 008_secuencias_ids.sql)
+ALTER SEQUENCE gestdoc_ow.refresh_token_id_seq INCREMENT BY 50;
+ALTER SEQUENCE gestdoc_ow.token_revocado_id_seq INCREMENT BY 50;
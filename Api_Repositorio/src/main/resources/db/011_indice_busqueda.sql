@@ -0,0 +1,25 @@
+-- Índice de búsqueda de texto completo (GET /api/documentos/buscar): una fila
+-- por documento con el texto de cada fuente y un tsvector calculado por
+-- PostgreSQL, ponderado por fuente: nombre (A), metadatos (B), comentarios (C)
+-- y contenido extraído de archivos de texto y PDF (D). El índice GIN sobre
+-- vector es el índice invertido. La aplicación actualiza las filas en cada
+-- alta y comentario; las bajas las borra la cascada. Los documentos sin fila
+-- se indexan en segundo plano (app.busqueda.reindexado-*)
+CREATE TABLE IF NOT EXISTS gestdoc_ow.indice_busqueda (
+    documento_id BIGINT PRIMARY KEY REFERENCES gestdoc_ow.documentos(id) ON DELETE CASCADE,
+    nombre TEXT,
+    metadatos TEXT,
+    comentarios TEXT,
+    contenido TEXT,
+    fecha_actualizacion TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    -- '_', '.' y '-' separan palabras en los nombres de archivo (informe_anual-2024.pdf)
+    vector TSVECTOR GENERATED ALWAYS AS (
+        setweight(to_tsvector('spanish', translate(coalesce(nombre, ''), '_.-', '   ')), 'A') ||
+        setweight(to_tsvector('spanish', coalesce(metadatos, '')), 'B') ||
+        setweight(to_tsvector('spanish', coalesce(comentarios, '')), 'C') ||
+        setweight(to_tsvector('spanish', coalesce(contenido, '')), 'D')
+    ) STORED
+);
+
+CREATE INDEX IF NOT EXISTS idx_indice_busqueda_vector
+    ON gestdoc_ow.indice_busqueda USING GIN (vector);
@@ -0,0 +1,26 @@
+-- Consulta de documentos por metadatos (GET /api/documentos/metadatos). Cada
+-- condición clave/valor es un semi-join d.id IN (SELECT documento_id ...) que
+-- se resuelve con un recorrido de índice. AND une esos IN con AND y PostgreSQL
+-- empieza por el más selectivo; OR une las subconsultas con UNION dentro de un
+-- mismo IN. Ninguna condición recorre la tabla metadata
+
+-- Valor numérico de un metadato, o NULL si no lo es. IMMUTABLE para poder indexarlo
+CREATE OR REPLACE FUNCTION gestdoc_ow.metadato_numerico(valor TEXT) RETURNS NUMERIC
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE AS
+$$ SELECT CASE WHEN valor ~ '^-?[0-9]{1,30}(\.[0-9]{1,30})?$' THEN valor::NUMERIC END $$;
+
+-- CONCURRENTLY para no bloquear escrituras en tablas grandes (psql, fuera de transacción)
+
+-- Igualdad y rangos de texto (fechas ISO: 2025-01-01); documento_id al final
+-- para resolver la condición solo con el índice
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_metadata_clave_valor_documento
+    ON gestdoc_ow.metadata(clave, valor, documento_id);
+
+-- Rangos numéricos (monto>1000), que como texto ordenarían mal
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_metadata_clave_numero_documento
+    ON gestdoc_ow.metadata(clave, gestdoc_ow.metadato_numerico(valor), documento_id)
+    WHERE gestdoc_ow.metadato_numerico(valor) IS NOT NULL;
+
+-- Metadatos de un documento (MetadataRepository.findByDocumento_Id, índice de búsqueda)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_metadata_documento
+    ON gestdoc_ow.metadata(documento_id);
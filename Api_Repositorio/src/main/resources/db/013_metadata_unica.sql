@@ -0,0 +1,15 @@
+-- Carga masiva de metadatos (POST /api/documentos/metadatos/lote): cada
+-- documento tiene a lo sumo un valor por clave, y el INSERT ... ON CONFLICT
+-- necesita un índice único sobre (documento_id, clave)
+
+-- Se conserva el valor más reciente de las claves repetidas
+DELETE FROM gestdoc_ow.metadata a
+    USING gestdoc_ow.metadata b
+    WHERE a.documento_id = b.documento_id AND a.clave = b.clave AND a.id < b.id;
+
+-- CONCURRENTLY para no bloquear escrituras en tablas grandes (psql, fuera de transacción)
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uq_metadata_documento_clave
+    ON gestdoc_ow.metadata(documento_id, clave);
+
+-- El índice único empieza por documento_id y cubre también las búsquedas por documento
+DROP INDEX CONCURRENTLY IF EXISTS gestdoc_ow.idx_metadata_documento;
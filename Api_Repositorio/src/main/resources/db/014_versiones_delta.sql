@@ -0,0 +1,22 @@
+-- Versiones de documentos (POST /api/documentos/{id}/versiones). Cada versión
+-- se guarda COMPLETA o como DELTA binario contra version_base. Las completas
+-- pequeñas van en datos y las grandes en el almacén de blobs (hash_contenido,
+-- una referencia más del blob). hash_contenido es siempre el SHA-256 del
+-- contenido entero y comprueba la reconstrucción de los deltas. Las filas
+-- anteriores quedan como COMPLETA con el archivo en ruta_archivo
+ALTER TABLE gestdoc_ow.documento_version ADD COLUMN IF NOT EXISTS almacenamiento VARCHAR(10) NOT NULL DEFAULT 'COMPLETA';
+ALTER TABLE gestdoc_ow.documento_version ADD COLUMN IF NOT EXISTS version_base INTEGER;
+ALTER TABLE gestdoc_ow.documento_version ADD COLUMN IF NOT EXISTS datos BYTEA;
+ALTER TABLE gestdoc_ow.documento_version ADD COLUMN IF NOT EXISTS codificacion VARCHAR(16);
+ALTER TABLE gestdoc_ow.documento_version ADD COLUMN IF NOT EXISTS hash_contenido VARCHAR(64);
+ALTER TABLE gestdoc_ow.documento_version ADD COLUMN IF NOT EXISTS tamano BIGINT;
+ALTER TABLE gestdoc_ow.documento_version ADD COLUMN IF NOT EXISTS nombre_original VARCHAR(255);
+ALTER TABLE gestdoc_ow.documento_version ADD COLUMN IF NOT EXISTS tipo_mime VARCHAR(255);
+
+-- Un número de versión por documento; también sirve para leer la cadena de
+-- deltas de una versión en orden
+CREATE UNIQUE INDEX IF NOT EXISTS uq_documento_version
+    ON gestdoc_ow.documento_version(documento_id, version);
+
+-- Fecha de la última versión: Last-Modified de la descarga
+ALTER TABLE gestdoc_ow.documentos ADD COLUMN IF NOT EXISTS fecha_modificacion TIMESTAMP;
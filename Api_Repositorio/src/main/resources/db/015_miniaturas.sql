@@ -0,0 +1,17 @@
+-- Miniaturas y vistas previas (GET /api/documentos/{id}/thumbnail): una fila
+-- por documento y tipo (MINIATURA, VISTA_PREVIA) que apunta a la imagen JPEG
+-- en el almacén de blobs (una referencia más del blob). hash_origen es el
+-- hash_contenido del documento al generarla: si no coincide, el documento
+-- tiene una versión nueva y se vuelve a generar. hash_blob null indica que el
+-- contenido no se pudo renderizar y no se reintenta hasta que cambie. Las
+-- imágenes se generan en segundo plano tras cada alta (app.miniaturas.*)
+CREATE TABLE IF NOT EXISTS gestdoc_ow.documento_miniatura (
+    documento_id BIGINT NOT NULL REFERENCES gestdoc_ow.documentos(id) ON DELETE CASCADE,
+    tipo VARCHAR(20) NOT NULL,
+    hash_origen VARCHAR(64),
+    hash_blob VARCHAR(64),
+    ancho INTEGER,
+    alto INTEGER,
+    fecha_creacion TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (documento_id, tipo)
+);
@@ -0,0 +1,200 @@
+package hn.cus.api_repositorio;
+
+import hn.cus.api_repositorio.dto.DocumentoBase64Request;
+import hn.cus.api_repositorio.entity.Documento;
+import hn.cus.api_repositorio.entity.Usuario;
+import hn.cus.api_repositorio.repository.UsuarioRepository;
+import hn.cus.api_repositorio.security.JwtUtil;
+import hn.cus.api_repositorio.service.DocumentoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Descargas concurrentes con un almacenamiento lento, con los hilos de
+ * plataforma de Tomcat (Plataforma) y con hilos virtuales (Virtuales, solo en
+ * Java 21; en Java 17 se omite). Solo se ejecuta con -Dbenchmark=true. La
+ * lectura del contenido se retrasa benchmark.latencia-ms, como lo haría un
+ * disco de red. Cada modo informa de su rendimiento y latencia p50/p99/máxima
+ * con el mismo número de clientes, para compararlos en la misma máquina
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+        "logging.level.org.springframework.transaction=WARN"
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class HilosVirtualesBenchmarkTest {
+
+    private static final int CLIENTES = Integer.getInteger("benchmark.clientes", 400);
+    private static final int PETICIONES = Integer.getInteger("benchmark.peticiones", 20);
+    private static final int LATENCIA_MS = Integer.getInteger("benchmark.latencia-ms", 50);
+
+    @TestConfiguration
+    static class AlmacenamientoLento {
+
+        // Envuelve el servicio para que leer el contenido tarde LATENCIA_MS
+        @Bean
+        static BeanPostProcessor documentoServiceLento() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String nombre) {
+                    if (!(bean instanceof DocumentoService servicio)) {
+                        return bean;
+                    }
+                    return Proxy.newProxyInstance(DocumentoService.class.getClassLoader(),
+                            new Class<?>[] { DocumentoService.class }, (proxy, metodo, args) -> {
+                                if (metodo.getName().startsWith("obtenerContenido")) {
+                                    Thread.sleep(LATENCIA_MS);
+                                }
+                                try {
+                                    return metodo.invoke(servicio, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                            });
+                }
+            };
+        }
+    }
+
+    @Nested
+    class Plataforma extends Medicion {
+    }
+
+    @Nested
+    @TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    class Virtuales extends Medicion {
+    }
+
+    // Cada modo es un contexto (y un servidor) distinto: el estado va en la clase anidada
+    abstract class Medicion {
+
+        @LocalServerPort
+        private int puerto;
+
+        @Autowired
+        private DocumentoService documentoService;
+
+        @Autowired
+        private UsuarioRepository usuarioRepository;
+
+        @Autowired
+        private JwtUtil jwtUtil;
+
+        @Autowired
+        private Environment environment;
+
+        private Documento documento;
+        private String token;
+
+        @BeforeEach
+        void setUp() {
+            long timestamp = System.currentTimeMillis();
+            Usuario usuario = new Usuario();
+            usuario.setUsername("bench_" + timestamp);
+            usuario.setEmail("bench" + timestamp + "@example.com");
+            usuario.setPassword("password123");
+            usuario.setActivo(true);
+            usuario = usuarioRepository.save(usuario);
+
+            // Pequeño: se guarda en la base de datos y se lee con obtenerContenido
+            DocumentoBase64Request request = new DocumentoBase64Request();
+            request.setFileName("bench.txt");
+            request.setFileType("text/plain");
+            request.setContentBase64(Base64.getEncoder().encodeToString("x".repeat(4096).getBytes()));
+            request.setUsuarioId(usuario.getId());
+            documento = documentoService.guardarDocumentoBase64(request);
+            token = jwtUtil.generarToken(usuario.getUsername(), usuario.getId(), List.of(), List.of());
+        }
+
+        @Test
+        void descargasConAlmacenamientoLento() throws Exception {
+            HttpClient cliente = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            HttpRequest descarga = HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + puerto + "/api/documentos/" + documento.getId() + "/download"))
+                    .header("Authorization", "Bearer " + token)
+                    .timeout(Duration.ofSeconds(60))
+                    .build();
+            // Calentamiento
+            for (int i = 0; i < 50; i++) {
+                cliente.send(descarga, HttpResponse.BodyHandlers.discarding());
+            }
+
+            long[] latencias = new long[CLIENTES * PETICIONES];
+            AtomicInteger siguiente = new AtomicInteger();
+            AtomicInteger errores = new AtomicInteger();
+            ExecutorService clientes = Executors.newFixedThreadPool(CLIENTES);
+            long inicio = System.nanoTime();
+            for (int c = 0; c < CLIENTES; c++) {
+                clientes.execute(() -> {
+                    for (int i = 0; i < PETICIONES; i++) {
+                        long antes = System.nanoTime();
+                        try {
+                            if (cliente.send(descarga, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                                errores.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errores.incrementAndGet();
+                        }
+                        latencias[siguiente.getAndIncrement()] = System.nanoTime() - antes;
+                    }
+                });
+            }
+            clientes.shutdown();
+            assertTrue(clientes.awaitTermination(10, TimeUnit.MINUTES));
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+
+            Arrays.sort(latencias);
+            System.out.printf("BENCHMARK descargas (hilos %s, %d clientes, latencia de almacenamiento %d ms): "
+                            + "%d peticiones en %.2f s (%.0f/s); p50 %.1f ms, p99 %.1f ms, máx. %.1f ms; errores: %d%n",
+                    Threading.VIRTUAL.isActive(environment) ? "virtuales" : "de plataforma",
+                    CLIENTES, LATENCIA_MS, latencias.length, segundos, latencias.length / segundos,
+                    percentil(latencias, 0.50), percentil(latencias, 0.99), latencias[latencias.length - 1] / 1e6,
+                    errores.get());
+            assertEquals(0, errores.get());
+            assertEquals(this instanceof Virtuales, Threading.VIRTUAL.isActive(environment));
+        }
+
+        private double percentil(long[] ordenadas, double p) {
+            return ordenadas[(int) Math.min(ordenadas.length - 1, Math.ceil(p * ordenadas.length) - 1)] / 1e6;
+        }
+    }
+}
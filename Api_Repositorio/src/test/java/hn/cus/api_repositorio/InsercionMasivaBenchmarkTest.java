@@ -0,0 +1,123 @@
+package hn.cus.api_repositorio;
+
+import hn.cus.api_repositorio.entity.AuditLog;
+import hn.cus.api_repositorio.entity.Documento;
+import hn.cus.api_repositorio.entity.Metadata;
+import hn.cus.api_repositorio.entity.Usuario;
+import hn.cus.api_repositorio.repository.AuditLogRepository;
+import hn.cus.api_repositorio.repository.DocumentoRepository;
+import hn.cus.api_repositorio.repository.MetadataRepository;
+import hn.cus.api_repositorio.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rendimiento de inserciones masivas de metadatos y auditoría.
+ * Solo se ejecuta con -Dbenchmark=true; las filas se guardan en transacciones
+ * de 1000 como haría una carga real y se informa de las filas por segundo
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+        "logging.level.org.springframework.transaction=WARN"
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class InsercionMasivaBenchmarkTest {
+
+    private static final int FILAS = Integer.getInteger("benchmark.filas", 20_000);
+    private static final int POR_TRANSACCION = 1_000;
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private DocumentoRepository documentoRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Usuario usuario;
+    private Documento documento;
+
+    @BeforeEach
+    void setUp() {
+        long timestamp = System.currentTimeMillis();
+        usuario = new Usuario();
+        usuario.setUsername("bench_" + timestamp);
+        usuario.setEmail("bench" + timestamp + "@example.com");
+        usuario.setPassword("password123");
+        usuario.setActivo(true);
+        usuario = usuarioRepository.save(usuario);
+
+        documento = new Documento();
+        documento.setNombreOriginal("bench.pdf");
+        documento.setRutaArchivo("/uploads/bench.pdf");
+        documento.setCreadoPor(usuario);
+        documento.setFechaCreacion(LocalDateTime.now());
+        documento = documentoRepository.save(documento);
+    }
+
+    @Test
+    void insercionMasivaMetadata() {
+        long antes = metadataRepository.count();
+        medir("metadata", i -> {
+            Metadata metadata = new Metadata();
+            metadata.setDocumento(documento);
+            metadata.setClave("clave" + (i % 20));
+            metadata.setValor("valor " + i);
+            return metadata;
+        }, metadataRepository::saveAll);
+        assertEquals(antes + FILAS, metadataRepository.count());
+    }
+
+    @Test
+    void insercionMasivaAuditoria() {
+        long antes = auditLogRepository.count();
+        medir("audit_log", i -> {
+            AuditLog audit = new AuditLog();
+            audit.setUsuario(usuario);
+            audit.setAccion("BENCHMARK");
+            audit.setDescripcion("Evento " + i);
+            return audit;
+        }, auditLogRepository::saveAll);
+        assertEquals(antes + FILAS, auditLogRepository.count());
+    }
+
+    private <T> void medir(String tabla, IntFunction<T> crear, Consumer<List<T>> guardar) {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        long inicio = System.nanoTime();
+        for (int desde = 0; desde < FILAS; desde += POR_TRANSACCION) {
+            List<T> filas = new ArrayList<>(POR_TRANSACCION);
+            for (int i = desde; i < Math.min(FILAS, desde + POR_TRANSACCION); i++) {
+                filas.add(crear.apply(i));
+            }
+            transaccion.executeWithoutResult(estado -> guardar.accept(filas));
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        System.out.printf("BENCHMARK %s: %d filas en %.2f s (%.0f filas/s)%n", tabla, FILAS, segundos, FILAS / segundos);
+    }
+}
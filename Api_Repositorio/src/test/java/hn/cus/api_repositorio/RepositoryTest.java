@@ -1,16 +1,39 @@
 package hn.cus.api_repositorio;
 
+import hn.cus.api_repositorio.config.FileStorageConfig;
+import hn.cus.api_repositorio.dto.AuditLogDTO;
+import hn.cus.api_repositorio.dto.DocumentoBase64Request;
+import hn.cus.api_repositorio.dto.DocumentoResponseDTO;
+import hn.cus.api_repositorio.dto.DocumentoVersionDTO;
+import hn.cus.api_repositorio.dto.FiltroAuditoriaDTO;
+import hn.cus.api_repositorio.dto.FiltroDocumentoDTO;
 import hn.cus.api_repositorio.entity.*;
 import hn.cus.api_repositorio.repository.*;
+import hn.cus.api_repositorio.security.JwtUtil;
+import hn.cus.api_repositorio.service.AlmacenamientoBlobService;
+import hn.cus.api_repositorio.service.DocumentoService;
+import hn.cus.api_repositorio.service.DocumentoVersionService;
+import hn.cus.api_repositorio.service.TokenRevocacionService;
+import hn.cus.api_repositorio.service.impl.DeltaBinario;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.transaction.TestTransaction;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
@@ -37,6 +60,12 @@ class RepositoryTest {
     @Autowired
     private DocumentoRepository documentoRepository;
 
+    @Autowired
+    private DocumentoContenidoRepository documentoContenidoRepository;
+
+    @Autowired
+    private EstadisticaDocumentoRepository estadisticaDocumentoRepository;
+
     @Autowired
     private WorkflowRepository workflowRepository;
 
@@ -52,6 +81,42 @@ class RepositoryTest {
     @Autowired
     private AuditLogRepository auditLogRepository;
 
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private TokenRevocadoRepository tokenRevocadoRepository;
+
+    @Autowired
+    private DocumentoService documentoService;
+
+    @Autowired
+    private AlmacenamientoBlobService almacenamientoBlobService;
+
+    @Autowired
+    private FileStorageConfig fileStorageConfig;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private DocumentoVersionService documentoVersionService;
+
+    @Autowired
+    private TokenRevocacionService tokenRevocacionService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private IndiceBusquedaRepository indiceBusquedaRepository;
+
+    @Autowired
+    private DocumentoVersionRepository documentoVersionRepository;
+
+    @Autowired
+    private DocumentoMiniaturaRepository documentoMiniaturaRepository;
+
     private Usuario testUsuario;
     private Rol testRol;
     private Workflow testWorkflow;
@@ -204,6 +269,78 @@ class RepositoryTest {
         assertTrue(privateDocs.stream().noneMatch(Documento::getPublico));
     }
 
+    @Test
+    void testDocumentoRepositoryResumenYContenido() {
+        // Crear documento con su contenido en la tabla aparte
+        Documento documento = new Documento();
+        documento.setNombreOriginal("resumen.txt");
+        documento.setTipoMime("text/plain");
+        documento.setRutaArchivo("base64://resumen.txt");
+        documento.setPublico(false);
+        documento.setCreadoPor(testUsuario);
+        documento.setFechaCreacion(LocalDateTime.now());
+        documento = documentoRepository.save(documento);
+        documentoContenidoRepository.save(new DocumentoContenido(documento, "hola".getBytes()));
+
+        // La proyección trae los metadatos y el usuario sin cargar la entidad
+        Optional<DocumentoResponseDTO> resumen = documentoRepository.buscarResumenPorId(documento.getId());
+        assertTrue(resumen.isPresent());
+        assertEquals("resumen.txt", resumen.get().getNombreOriginal());
+        assertEquals(testUsuario.getUsername(), resumen.get().getUsername());
+
+        Long id = documento.getId();
+        assertTrue(documentoRepository.listarResumen().stream().anyMatch(d -> d.getId().equals(id)));
+
+        // El contenido se obtiene por el id del documento
+        Optional<DocumentoContenido> contenido = documentoContenidoRepository.findById(id);
+        assertTrue(contenido.isPresent());
+        assertArrayEquals("hola".getBytes(), contenido.get().getContenidoBinario());
+    }
+
+    @Test
+    void testDocumentoRepositoryListarPaginaKeyset() {
+        // Cinco documentos de la tarea con la misma fecha: el id desempata
+        LocalDateTime fecha = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Long idTarea = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            Documento documento = new Documento();
+            documento.setNombreOriginal("pagina" + i + ".pdf");
+            documento.setTipoMime("application/pdf");
+            documento.setRutaArchivo("/uploads/pagina" + i + ".pdf");
+            documento.setPublico(false);
+            documento.setCreadoPor(testUsuario);
+            documento.setFechaCreacion(fecha);
+            documento.setIdTarea(idTarea);
+            documentoRepository.save(documento);
+        }
+        FiltroDocumentoDTO filtro = new FiltroDocumentoDTO(null, null, idTarea, null);
+
+        List<DocumentoResponseDTO> primera = documentoRepository.listarPagina(filtro, null, null, 3);
+        assertEquals(3, primera.size());
+        DocumentoResponseDTO ultimo = primera.get(2);
+
+        List<DocumentoResponseDTO> segunda = documentoRepository.listarPagina(
+                filtro, ultimo.getFechaCreacion(), ultimo.getId(), 3);
+        assertEquals(2, segunda.size());
+        assertTrue(segunda.stream().allMatch(d -> d.getId() < ultimo.getId()));
+    }
+
+    @Test
+    void testEstadisticaDocumentoRepositoryAcumular() {
+        String usuario = "est_" + System.currentTimeMillis();
+
+        // Dos altas y una baja del mismo usuario
+        estadisticaDocumentoRepository.acumular(usuario, "application/pdf", "", "2024-01-01", 1, 100);
+        estadisticaDocumentoRepository.acumular(usuario, "application/pdf", "", "2024-01-01", 1, 50);
+        estadisticaDocumentoRepository.acumular(usuario, "application/pdf", "", "2024-01-01", -1, -100);
+
+        Optional<EstadisticaDocumento> porUsuario = estadisticaDocumentoRepository
+                .findById(new EstadisticaDocumentoId("USUARIO", usuario));
+        assertTrue(porUsuario.isPresent());
+        assertEquals(1L, porUsuario.get().getDocumentos());
+        assertEquals(50L, porUsuario.get().getBytes());
+    }
+
     @Test
     void testWorkflowRepositorySaveAndFind() {
         // Verificar que el workflow se guardó correctamente
@@ -388,6 +525,391 @@ class RepositoryTest {
         assertTrue(logsByAction.stream().allMatch(log -> "CREATE".equals(log.getAccion())));
     }
 
+    @Test
+    void testAuditLogRepositoryListarPaginaKeyset() {
+        // Cuatro eventos del usuario en la misma fecha y uno fuera del rango
+        LocalDateTime fecha = LocalDateTime.of(2024, 3, 15, 8, 0);
+        for (int i = 0; i < 5; i++) {
+            AuditLog auditLog = new AuditLog();
+            auditLog.setUsuario(testUsuario);
+            auditLog.setAccion("LOGIN");
+            auditLog.setDescripcion("Evento " + i);
+            auditLog.setFecha(i < 4 ? fecha : fecha.minusMonths(2));
+            auditLogRepository.save(auditLog);
+        }
+        FiltroAuditoriaDTO filtro = new FiltroAuditoriaDTO(testUsuario.getId(), "LOGIN",
+                LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 4, 1, 0, 0));
+
+        List<AuditLogDTO> primera = auditLogRepository.listarPagina(filtro, null, null, 3);
+        assertEquals(3, primera.size());
+        assertEquals(testUsuario.getUsername(), primera.get(0).getUsername());
+        AuditLogDTO ultimo = primera.get(2);
+
+        List<AuditLogDTO> segunda = auditLogRepository.listarPagina(filtro, ultimo.getFecha(), ultimo.getId(), 3);
+        assertEquals(1, segunda.size());
+        assertTrue(segunda.get(0).getId() < ultimo.getId());
+    }
+
+    @Test
+    void testRefreshTokenRepositoryMarcarUsadoUnaVez() {
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUsuario(testUsuario);
+        refreshToken.setHash("a".repeat(64));
+        refreshToken.setFechaExpiracion(LocalDateTime.now().plusDays(7));
+        refreshToken = refreshTokenRepository.save(refreshToken);
+
+        // Solo el primer canje del mismo token lo marca como usado
+        assertEquals(1, refreshTokenRepository.marcarUsado(refreshToken.getId(), LocalDateTime.now()));
+        assertEquals(0, refreshTokenRepository.marcarUsado(refreshToken.getId(), LocalDateTime.now()));
+        assertNotNull(refreshTokenRepository.buscarPorHash("a".repeat(64)).orElseThrow().getFechaUso());
+
+        assertEquals(1, refreshTokenRepository.eliminarPorUsuario(testUsuario.getId()));
+        assertTrue(refreshTokenRepository.buscarPorHash("a".repeat(64)).isEmpty());
+    }
+
+    @Test
+    void testTokenRevocadoRepositoryPorFechaDeEmision() {
+        LocalDateTime revocacion = LocalDateTime.now().truncatedTo(java.time.temporal.ChronoUnit.SECONDS);
+        TokenRevocado revocado = new TokenRevocado();
+        revocado.setClave("usuario:" + testUsuario.getId());
+        revocado.setFechaRevocacion(revocacion);
+        revocado.setFechaExpiracion(revocacion.plusMinutes(15));
+        tokenRevocadoRepository.save(revocado);
+
+        // Revoca los tokens emitidos en segundos anteriores, no los del mismo segundo ni posteriores
+        assertTrue(tokenRevocadoRepository.existsByClaveAndFechaRevocacionGreaterThan(
+                "usuario:" + testUsuario.getId(), revocacion.minusSeconds(1)));
+        assertFalse(tokenRevocadoRepository.existsByClaveAndFechaRevocacionGreaterThan(
+                "usuario:" + testUsuario.getId(), revocacion));
+        assertFalse(tokenRevocadoRepository.existsByClaveAndFechaRevocacionGreaterThan(
+                "usuario:" + testUsuario.getId(), revocacion.plusSeconds(1)));
+    }
+
+    @Test
+    void testTokenRevocacionLoginEnElMismoSegundo() throws InterruptedException {
+        // Al inicio de un segundo, para que la revocación y el login caigan en el mismo
+        Thread.sleep(1000 - System.currentTimeMillis() % 1000 + 50);
+        Date antes = new Date(System.currentTimeMillis() / 1000 * 1000 - 1000);
+        tokenRevocacionService.revocarUsuario(testUsuario.getId());
+        String token = jwtUtil.generarToken(testUsuario.getUsername(), testUsuario.getId(), List.of(), List.of());
+
+        JwtUtil.TokenVerificado nuevo = jwtUtil.verificar(token);
+        assertFalse(tokenRevocacionService.estaRevocado(nuevo), "El token del nuevo login no está revocado");
+        JwtUtil.TokenVerificado anterior = new JwtUtil.TokenVerificado(null, testUsuario.getUsername(),
+                testUsuario.getId(), List.of(), List.of(), antes, nuevo.expiracion());
+        assertTrue(tokenRevocacionService.estaRevocado(anterior), "El token emitido antes sí");
+
+        // Un token concreto (logout) queda revocado aunque se emitiera en el mismo segundo
+        tokenRevocacionService.revocarToken(nuevo.id(), nuevo.expiracion());
+        assertTrue(tokenRevocacionService.estaRevocado(nuevo));
+    }
+
+    @Test
+    void testJwtRechazaTokensDeVigenciaAnterior() {
+        // Token de 5 horas, como los emitidos antes de los tokens de acceso cortos
+        String largo = io.jsonwebtoken.Jwts.builder()
+                .setSubject(testUsuario.getUsername())
+                .claim("uid", testUsuario.getId())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 18_000_000))
+                .signWith(io.jsonwebtoken.security.Keys.hmacShaKeyFor(
+                        "clave-super-secreta-segura-para-jwt-token-generation".getBytes()))
+                .compact();
+        assertThrows(io.jsonwebtoken.JwtException.class, () -> jwtUtil.verificar(largo));
+        assertEquals(testUsuario.getId(), jwtUtil.verificar(
+                jwtUtil.generarToken(testUsuario.getUsername(), testUsuario.getId(), List.of(), List.of())).usuarioId());
+    }
+
+    @Test
+    void testGuardarDocumentoBase64RechazaBase64Invalido() {
+        DocumentoBase64Request request = new DocumentoBase64Request();
+        request.setFileName("hola.txt");
+        request.setFileType("text/plain");
+        request.setUsuarioId(testUsuario.getId());
+        // Saltos de línea (Base64 MIME) y caracteres fuera del alfabeto no se aceptan
+        request.setContentBase64("aG9s\r\nYQ==");
+        assertThrows(IllegalArgumentException.class, () -> documentoService.guardarDocumentoBase64(request));
+        request.setContentBase64("aG9s*YQ==");
+        assertThrows(IllegalArgumentException.class, () -> documentoService.guardarDocumentoBase64(request));
+
+        request.setContentBase64("aG9sYQ==");
+        Documento doc = documentoService.guardarDocumentoBase64(request);
+        assertArrayEquals("hola".getBytes(), documentoService.obtenerContenido(doc));
+    }
+
+    @Test
+    void testAlmacenarBlobRefrescaSoloSuFila() {
+        byte[] datos = ("blob " + System.nanoTime()).getBytes();
+        BlobAlmacenado primero = almacenamientoBlobService.almacenar(
+                almacenamientoBlobService.recibir(new ByteArrayInputStream(datos)), "application/octet-stream");
+        assertEquals(1, primero.getReferencias());
+
+        // El mismo contenido otra vez: la fila ya cargada se refresca y el resto del contexto sigue intacto
+        BlobAlmacenado segundo = almacenamientoBlobService.almacenar(
+                almacenamientoBlobService.recibir(new ByteArrayInputStream(datos)), "application/octet-stream");
+        assertSame(primero, segundo);
+        assertEquals(2, segundo.getReferencias());
+        assertTrue(entityManager.contains(testUsuario));
+
+        // Sin confirmar, el archivo del blob nuevo no se queda en el almacén
+        Path archivo = Paths.get(fileStorageConfig.getUploadDir()).resolve(segundo.getRutaArchivo());
+        assertTrue(Files.exists(archivo));
+        TestTransaction.end();
+        assertFalse(Files.exists(archivo));
+    }
+
+    @Test
+    void testCrearVersionSinCambiosNoGuardaVersiones() {
+        DocumentoBase64Request request = new DocumentoBase64Request();
+        request.setFileName("informe.txt");
+        request.setFileType("text/plain");
+        request.setUsuarioId(testUsuario.getId());
+        request.setContentBase64(java.util.Base64.getEncoder().encodeToString("informe v1".getBytes()));
+        Documento doc = documentoService.guardarDocumentoBase64(request);
+
+        // El mismo contenido que ya tiene: es la versión 1 y no se escribe ninguna fila
+        DocumentoVersionDTO igual = documentoVersionService.crearVersion(doc.getId(),
+                new MockMultipartFile("file", "informe.txt", "text/plain", "informe v1".getBytes()), testUsuario.getId());
+        assertEquals(1, igual.getVersion());
+        assertTrue(documentoVersionRepository.findFirstByDocumento_IdOrderByVersionDesc(doc.getId()).isEmpty());
+
+        DocumentoVersionDTO nueva = documentoVersionService.crearVersion(doc.getId(),
+                new MockMultipartFile("file", "informe.txt", "text/plain", "informe v2".getBytes()), testUsuario.getId());
+        assertEquals(2, nueva.getVersion());
+        assertArrayEquals("informe v1".getBytes(), documentoVersionService.obtenerContenidoVersion(doc.getId(), 1));
+
+        DocumentoVersionDTO repetida = documentoVersionService.crearVersion(doc.getId(),
+                new MockMultipartFile("file", "informe.txt", "text/plain", "informe v2".getBytes()), testUsuario.getId());
+        assertEquals(2, repetida.getVersion());
+        assertEquals(2, documentoVersionRepository.findFirstByDocumento_IdOrderByVersionDesc(doc.getId())
+                .orElseThrow().getVersion());
+    }
+
+    @Test
+    void testIndiceBusquedaRepositoryPorRelevancia() {
+        Documento porNombre = new Documento();
+        porNombre.setNombreOriginal("presupuesto_zarzamora-2024.txt");
+        porNombre.setTipoMime("text/plain");
+        porNombre.setRutaArchivo("base64://presupuesto_zarzamora-2024.txt");
+        porNombre.setPublico(false);
+        porNombre.setCreadoPor(testUsuario);
+        porNombre.setFechaCreacion(LocalDateTime.now());
+        porNombre = documentoRepository.save(porNombre);
+
+        Documento porContenido = new Documento();
+        porContenido.setNombreOriginal("notas.txt");
+        porContenido.setTipoMime("text/plain");
+        porContenido.setRutaArchivo("base64://notas.txt");
+        porContenido.setPublico(false);
+        porContenido.setCreadoPor(testUsuario);
+        porContenido.setFechaCreacion(LocalDateTime.now());
+        porContenido = documentoRepository.save(porContenido);
+
+        Metadata metadata = new Metadata();
+        metadata.setDocumento(porContenido);
+        metadata.setClave("proyecto");
+        metadata.setValor("Zarzamora");
+        metadataRepository.save(metadata);
+        metadataRepository.flush();
+
+        assertEquals(1, indiceBusquedaRepository.indexar(porNombre.getId(), null));
+        assertEquals(1, indiceBusquedaRepository.indexar(porContenido.getId(), "Revisión de los presupuestos del proyecto"));
+        assertFalse(indiceBusquedaRepository.buscarSinIndexar(10).contains(porContenido.getId()));
+
+        // Plurales y mayúsculas coinciden; el nombre pesa más que el contenido
+        List<Object[]> resultados = indiceBusquedaRepository.buscar("Presupuestos zarzamora", 0, 10);
+        assertEquals(2, resultados.size());
+        assertEquals(porNombre.getId(), ((Number) resultados.get(0)[0]).longValue());
+        assertEquals(porContenido.getId(), ((Number) resultados.get(1)[0]).longValue());
+        assertTrue(((String) resultados.get(1)[6]).contains("<b>presupuestos</b>"));
+
+        assertEquals(1, indiceBusquedaRepository.buscar("zarzamora -notas", 0, 10).size());
+    }
+
+    @Test
+    void testDocumentoRepositoryBuscarPorMetadatos() {
+        Documento factura = documentoConMetadatos("factura.pdf", "expediente", "123", "tipo", "factura", "monto", "950");
+        Documento recibo = documentoConMetadatos("recibo.pdf", "expediente", "123", "tipo", "recibo", "monto", "1200.50");
+        Documento otro = documentoConMetadatos("otro.pdf", "expediente", "124", "tipo", "factura", "monto", "80");
+        metadataRepository.flush();
+
+        assertEquals(List.of(factura.getId()), idsPorMetadatos("expediente=123 AND tipo=factura"));
+        assertEquals(List.of(recibo.getId(), factura.getId()),
+                idsPorMetadatos("expediente=123 AND (tipo=factura OR tipo=\"recibo\")"));
+        // Como número 1200.50 > 999; como texto sería menor
+        assertEquals(List.of(recibo.getId()), idsPorMetadatos("expediente = 123 and monto>999"));
+        assertEquals(List.of(recibo.getId()), idsPorMetadatos("expediente=123 AND tipo!=factura"));
+        assertEquals(List.of(otro.getId(), recibo.getId()),
+                idsPorMetadatos("(expediente=123 AND tipo=recibo) OR expediente=124 AND monto<100"));
+
+        assertThrows(IllegalArgumentException.class, () -> ConsultaMetadatos.parsear("expediente=123 AND"));
+        assertThrows(IllegalArgumentException.class, () -> ConsultaMetadatos.parsear("(tipo=factura"));
+        assertThrows(IllegalArgumentException.class, () -> ConsultaMetadatos.parsear("tipo factura"));
+    }
+
+    @Test
+    void testMetadataRepositoryEscribirLoteDevuelveSoloCambios() {
+        Long id = documentoConMetadatos("lote.pdf", "a", "1", "b", "2").getId();
+        metadataRepository.flush();
+
+        List<String> cambios = metadataRepository.escribirLote(new Long[] { id, id, id },
+                        new String[] { "a", "b", "c" }, new String[] { "1", "3", "4" }, new Long[0])
+                .stream().map(fila -> fila[1] + "=" + fila[2] + ":" + fila[3]).sorted().toList();
+        assertEquals(List.of("b=3:MODIFICADA", "c=4:AGREGADA"), cambios);
+
+        // Con reemplazar se eliminan las claves que no vienen
+        cambios = metadataRepository.escribirLote(new Long[] { id }, new String[] { "a" }, new String[] { "1" }, new Long[] { id })
+                .stream().map(fila -> fila[1] + ":" + fila[3]).sorted().toList();
+        assertEquals(List.of("b:ELIMINADA", "c:ELIMINADA"), cambios);
+    }
+
+    @Test
+    void testDocumentoVersionRepositoryCadenaDeDeltas() {
+        Documento documento = documentoConMetadatos("contrato.txt");
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            texto.append("Cláusula ").append(i).append(": el arrendatario pagará puntualmente.\n");
+        }
+        byte[][] contenidos = new byte[5][];
+        for (int v = 0; v < contenidos.length; v++) {
+            texto.replace(v * 5000, v * 5000 + 8, "Cambio " + v);
+            contenidos[v] = texto.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        }
+        // Versiones 1 y 4 completas; 2, 3 y 5 como delta contra la anterior
+        for (int v = 1; v <= contenidos.length; v++) {
+            DocumentoVersion version = new DocumentoVersion();
+            version.setDocumento(documento);
+            version.setVersion(v);
+            version.setRutaArchivo("base64://contrato.txt");
+            if (v == 1 || v == 4) {
+                version.setDatos(contenidos[v - 1]);
+            } else {
+                byte[] delta = DeltaBinario.calcular(contenidos[v - 2], contenidos[v - 1]);
+                assertTrue(delta.length < 200, "Un cambio pequeño da un delta pequeño: " + delta.length);
+                version.setAlmacenamiento(DocumentoVersion.DELTA);
+                version.setVersionBase(v - 1);
+                version.setDatos(delta);
+            }
+            documentoVersionRepository.save(version);
+        }
+
+        assertEquals(4, documentoVersionRepository.ultimaVersionCompleta(documento.getId()));
+        List<DocumentoVersion> cadena = documentoVersionRepository.buscarCadena(documento.getId(), 3);
+        assertEquals(List.of(1, 2, 3), cadena.stream().map(DocumentoVersion::getVersion).toList());
+        assertEquals(List.of(4, 5), documentoVersionRepository.buscarCadena(documento.getId(), 5).stream()
+                .map(DocumentoVersion::getVersion).toList());
+
+        byte[] reconstruido = cadena.get(0).getDatos();
+        for (DocumentoVersion delta : cadena.subList(1, cadena.size())) {
+            reconstruido = DeltaBinario.aplicar(reconstruido, delta.getDatos());
+        }
+        assertArrayEquals(contenidos[2], reconstruido);
+        // Sobre otra base el delta se rechaza
+        assertThrows(IllegalArgumentException.class,
+                () -> DeltaBinario.aplicar(java.util.Arrays.copyOf(contenidos[0], 100), cadena.get(1).getDatos()));
+    }
+
+    @Test
+    void testDocumentoVersionRepositoryHistorialYRetencion() {
+        Documento documento = documentoConMetadatos("historial.txt");
+        for (int v = 1; v <= 4; v++) {
+            DocumentoVersion version = new DocumentoVersion();
+            version.setDocumento(documento);
+            version.setVersion(v);
+            version.setRutaArchivo("base64://historial.txt");
+            version.setDatos(new byte[v * 10]);
+            version.setTamano((long) v * 10);
+            version.setCreadoPor(testUsuario);
+            version.setFechaCreacion(LocalDateTime.now());
+            documentoVersionRepository.save(version);
+        }
+
+        // Historial de 2 en 2, más recientes primero, con el tamaño guardado pero sin el contenido
+        List<DocumentoVersionDTO> pagina = documentoVersionRepository.listarPagina(
+                documento.getId(), Integer.MAX_VALUE, PageRequest.of(0, 2));
+        assertEquals(List.of(4, 3), pagina.stream().map(DocumentoVersionDTO::getVersion).toList());
+        assertEquals(40L, pagina.get(0).getTamanoAlmacenado());
+        assertEquals(testUsuario.getUsername(), pagina.get(0).getUsername());
+        assertEquals(List.of(2, 1), documentoVersionRepository.listarPagina(
+                documento.getId(), 3, PageRequest.of(0, 2)).stream().map(DocumentoVersionDTO::getVersion).toList());
+        assertTrue(documentoVersionRepository.buscarResumen(documento.getId(), 5).isEmpty());
+
+        // Pendiente de retención si pasa de 3 versiones; con 4 o más no
+        assertEquals(List.of(documento.getId()), documentoVersionRepository.buscarDocumentosConVersionesDeMas(
+                documento.getId() - 1, 3, PageRequest.of(0, 10)));
+        assertTrue(documentoVersionRepository.buscarDocumentosConVersionesDeMas(
+                documento.getId() - 1, 4, PageRequest.of(0, 10)).isEmpty());
+
+        assertEquals(2, documentoVersionRepository.eliminarVersiones(documento.getId(), List.of(1, 2)));
+        assertEquals(List.of(3, 4), documentoVersionRepository.listarParaRetencion(documento.getId()).stream()
+                .map(fila -> (Integer) fila[0]).toList());
+    }
+
+    @Test
+    void testDocumentoMiniaturaRepositoryPendientes() {
+        Documento imagen = documentoConMetadatos("foto.png");
+        imagen.setTipoMime("image/png");
+        imagen.setHashContenido("a".repeat(64));
+        imagen = documentoRepository.save(imagen);
+        Documento pdf = documentoConMetadatos("informe.pdf");
+        Documento texto = documentoConMetadatos("notas.txt");
+        texto.setTipoMime("text/plain");
+        documentoRepository.save(texto);
+        Set<String> tipos = Set.of("image/png", "application/pdf");
+
+        List<Long> pendientes = documentoMiniaturaRepository.buscarSinGenerar(tipos, 1000);
+        assertTrue(pendientes.containsAll(List.of(imagen.getId(), pdf.getId())));
+        assertFalse(pendientes.contains(texto.getId()));
+
+        // Generada del contenido actual: deja de estar pendiente; el PDF no se pudo renderizar
+        documentoMiniaturaRepository.save(miniatura(imagen, "b".repeat(64)));
+        documentoMiniaturaRepository.save(miniatura(pdf, null));
+        pendientes = documentoMiniaturaRepository.buscarSinGenerar(tipos, 1000);
+        assertFalse(pendientes.contains(imagen.getId()));
+        assertFalse(pendientes.contains(pdf.getId()));
+        assertEquals(List.of("b".repeat(64)), documentoMiniaturaRepository.buscarHashesBlob(imagen.getId()));
+
+        // Una versión nueva cambia el hash del contenido y la vuelve a dejar pendiente
+        imagen.setHashContenido("c".repeat(64));
+        documentoRepository.saveAndFlush(imagen);
+        assertTrue(documentoMiniaturaRepository.buscarSinGenerar(tipos, 1000).contains(imagen.getId()));
+
+        assertEquals(1, documentoMiniaturaRepository.eliminarPorDocumento(imagen.getId()));
+        assertTrue(documentoMiniaturaRepository.buscarHashesBlob(imagen.getId()).isEmpty());
+    }
+
+    private DocumentoMiniatura miniatura(Documento documento, String hashBlob) {
+        DocumentoMiniatura miniatura = new DocumentoMiniatura();
+        miniatura.setId(new DocumentoMiniaturaId(documento.getId(), DocumentoMiniatura.MINIATURA));
+        miniatura.setHashOrigen(documento.getHashContenido());
+        miniatura.setHashBlob(hashBlob);
+        return miniatura;
+    }
+
+    private Documento documentoConMetadatos(String nombre, String... pares) {
+        Documento documento = new Documento();
+        documento.setNombreOriginal(nombre);
+        documento.setTipoMime("application/pdf");
+        documento.setRutaArchivo("/uploads/" + nombre);
+        documento.setPublico(false);
+        documento.setCreadoPor(testUsuario);
+        documento.setFechaCreacion(LocalDateTime.now());
+        documento = documentoRepository.save(documento);
+        for (int i = 0; i < pares.length; i += 2) {
+            Metadata metadata = new Metadata();
+            metadata.setDocumento(documento);
+            metadata.setClave(pares[i]);
+            metadata.setValor(pares[i + 1]);
+            metadataRepository.save(metadata);
+        }
+        return documento;
+    }
+
+    private List<Long> idsPorMetadatos(String consulta) {
+        return documentoRepository.buscarPorMetadatos(ConsultaMetadatos.parsear(consulta), null, null, 10)
+                .stream().map(DocumentoResponseDTO::getId).toList();
+    }
+
     @Test
     void testRepositoryDelete() {
         // Verificar que se puede eliminar
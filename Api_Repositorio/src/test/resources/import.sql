@@ -0,0 +1,4 @@
+-- Hibernate lo ejecuta tras crear el esquema de los tests (create-drop). Objetos
+-- de db/*.sql que las entidades no describen; cada sentencia en una línea
+ALTER TABLE gestdoc_ow.indice_busqueda ADD COLUMN vector TSVECTOR GENERATED ALWAYS AS (setweight(to_tsvector('spanish', translate(coalesce(nombre, ''), '_.-', '   ')), 'A') || setweight(to_tsvector('spanish', coalesce(metadatos, '')), 'B') || setweight(to_tsvector('spanish', coalesce(comentarios, '')), 'C') || setweight(to_tsvector('spanish', coalesce(contenido, '')), 'D')) STORED;
+CREATE OR REPLACE FUNCTION gestdoc_ow.metadato_numerico(valor TEXT) RETURNS NUMERIC LANGUAGE sql IMMUTABLE PARALLEL SAFE AS $$ SELECT CASE WHEN valor ~ '^-?[0-9]{1,30}(\.[0-9]{1,30})?$' THEN valor::NUMERIC END $$;
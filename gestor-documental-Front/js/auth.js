@@ -5,6 +5,9 @@
 
 class AuthManager {
     static API_BASE_URL = 'http://localhost:8081';
+
+    // Renovación en curso; las peticiones que reciben 401 a la vez esperan la misma
+    static renovacionEnCurso = null;
     
     /**
      * Realiza login del usuario
@@ -29,8 +32,10 @@ class AuthManager {
 
             const data = await response.json();
             
-            // Guardar token y datos del usuario
+            // Guardar tokens y datos del usuario. El token de acceso dura pocos
+            // minutos; el refresh token sirve para obtener uno nuevo
             localStorage.setItem('auth_token', data.token);
+            localStorage.setItem('refresh_token', data.refreshToken);
             localStorage.setItem('user_data', JSON.stringify({
                 username: username,
                 loginTime: new Date().toISOString()
@@ -116,11 +121,63 @@ class AuthManager {
         return null;
     }
 
+    /**
+     * Canjea el refresh token por un token de acceso y un refresh token nuevos
+     * @returns {Promise<boolean>} - True si la sesión se renovó
+     */
+    static async renovarSesion() {
+        if (!this.renovacionEnCurso) {
+            this.renovacionEnCurso = (async () => {
+                const refreshToken = localStorage.getItem('refresh_token');
+                if (!refreshToken) {
+                    return false;
+                }
+                try {
+                    const response = await fetch(`${this.API_BASE_URL}/api/auth/refresh`, {
+                        method: 'POST',
+                        headers: {
+                            'Content-Type': 'application/json'
+                        },
+                        body: JSON.stringify({ refreshToken })
+                    });
+                    if (!response.ok) {
+                        return false;
+                    }
+                    const data = await response.json();
+                    localStorage.setItem('auth_token', data.token);
+                    localStorage.setItem('refresh_token', data.refreshToken);
+                    return true;
+                } catch (error) {
+                    console.error('Error al renovar la sesión:', error);
+                    return false;
+                }
+            })().finally(() => {
+                this.renovacionEnCurso = null;
+            });
+        }
+        return this.renovacionEnCurso;
+    }
+
     /**
      * Cierra la sesión del usuario
      */
     static logout() {
+        const token = localStorage.getItem('auth_token');
+        const refreshToken = localStorage.getItem('refresh_token');
+        if (token) {
+            // Revoca los tokens en el servidor; no se espera la respuesta
+            fetch(`${this.API_BASE_URL}/api/auth/logout`, {
+                method: 'POST',
+                keepalive: true,
+                headers: {
+                    'Authorization': `Bearer ${token}`,
+                    'Content-Type': 'application/json'
+                },
+                body: JSON.stringify({ refreshToken })
+            }).catch(() => {});
+        }
         localStorage.removeItem('auth_token');
+        localStorage.removeItem('refresh_token');
         localStorage.removeItem('user_data');
         window.location.href = '../index.html';
     }
@@ -147,21 +204,22 @@ class AuthManager {
             throw new Error('Usuario no autenticado');
         }
 
-        const defaultOptions = {
-            headers: this.getAuthHeaders()
-        };
-
-        const mergedOptions = {
-            ...defaultOptions,
+        // Authorization se toma siempre del almacenamiento, también si el llamador
+        // pasó sus propios headers: al repetir la petición lleva el token nuevo
+        const enviar = () => fetch(url, {
             ...options,
             headers: {
-                ...defaultOptions.headers,
-                ...options.headers
+                ...options.headers,
+                ...this.getAuthHeaders()
             }
-        };
+        });
 
-        const response = await fetch(url, mergedOptions);
-        
+        let response = await enviar();
+
+        // Token de acceso caducado: se renueva una vez y se repite la petición
+        if (response.status === 401 && await this.renovarSesion()) {
+            response = await enviar();
+        }
         if (response.status === 401) {
             this.logout();
             throw new Error('Sesión expirada');